@@ -0,0 +1,104 @@
+package no.acntech.common.test.plugin;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+import no.acntech.common.test.ClassIndex;
+
+/**
+ * Writes the class index of the classes and test classes of a project, so <b>TestReflectionUtils</b> can answer class searches
+ * from the index instead of every test JVM searching the class directories. The index is only written again if a class directory
+ * has changed since the index was written.
+ *
+ * @see no.acntech.common.test.ClassIndex
+ */
+@Mojo(name = "index", defaultPhase = LifecyclePhase.PROCESS_TEST_CLASSES, threadSafe = true)
+public class ClassIndexMojo extends AbstractMojo {
+
+    @Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
+    private File classesDirectory;
+
+    @Parameter(defaultValue = "${project.build.testOutputDirectory}", required = true)
+    private File testClassesDirectory;
+
+    @Parameter(property = ClassIndex.INDEX_FILE_PROPERTY, defaultValue = "${project.build.directory}/acntech-test-tools/class-index.bin", required = true)
+    private File indexFile;
+
+    @Parameter(property = "acntech.test.skipIndex", defaultValue = "false")
+    private boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        if (skip) {
+            getLog().info("Skipping class index as ordered");
+            return;
+        }
+
+        try {
+            if (isUpToDate()) {
+                getLog().info("Class index " + indexFile + " is up to date");
+                return;
+            }
+
+            ClassIndex.create(indexFile.toPath(), classesDirectory.toPath(), testClassesDirectory.toPath());
+            getLog().info("Wrote class index " + indexFile);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to write class index " + indexFile, e);
+        }
+    }
+
+    /**
+     * Adding or removing a class file changes the last modified time of its directory, and changing a class file changes its own,
+     * so the index is up to date if nothing in the class directories was modified after it.
+     * An index written by an older version of the plugin is always written again.
+     */
+    private boolean isUpToDate() throws IOException {
+        if (!indexFile.isFile() || !ClassIndex.isCurrentVersion(indexFile.toPath())) {
+            return Boolean.FALSE;
+        }
+
+        FileTime indexModified = Files.getLastModifiedTime(indexFile.toPath());
+        return !isModifiedAfter(classesDirectory, indexModified) && !isModifiedAfter(testClassesDirectory, indexModified);
+    }
+
+    private static boolean isModifiedAfter(File directory, FileTime time) throws IOException {
+        if (!directory.isDirectory()) {
+            return Boolean.FALSE;
+        }
+
+        boolean[] modified = {Boolean.FALSE};
+        Files.walkFileTree(directory.toPath(), new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult preVisitDirectory(Path path, BasicFileAttributes attributes) {
+                return check(attributes);
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path path, BasicFileAttributes attributes) {
+                return check(attributes);
+            }
+
+            private FileVisitResult check(BasicFileAttributes attributes) {
+                if (attributes.lastModifiedTime().compareTo(time) >= 0) {
+                    modified[0] = Boolean.TRUE;
+                    return FileVisitResult.TERMINATE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return modified[0];
+    }
+}
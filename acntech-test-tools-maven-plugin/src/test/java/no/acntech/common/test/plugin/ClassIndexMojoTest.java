@@ -0,0 +1,77 @@
+package no.acntech.common.test.plugin;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import no.acntech.common.test.ClassIndex;
+import no.acntech.common.test.TestReflectionUtils;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+public class ClassIndexMojoTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private ClassIndexMojo mojo;
+    private File indexFile;
+
+    @Before
+    public void setUp() throws Exception {
+        File classesDirectory = Paths.get(ClassIndexMojo.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toFile();
+        indexFile = new File(temporaryFolder.getRoot(), "acntech-test-tools/class-index.bin");
+
+        mojo = new ClassIndexMojo();
+        TestReflectionUtils.setInternalField(mojo, "classesDirectory", classesDirectory);
+        TestReflectionUtils.setInternalField(mojo, "testClassesDirectory", temporaryFolder.newFolder("test-classes"));
+        TestReflectionUtils.setInternalField(mojo, "indexFile", indexFile);
+    }
+
+    @Test
+    public void testExecuteWritesClassIndex() throws Exception {
+        mojo.execute();
+
+        assertThat("Class index not written", indexFile.isFile(), is(true));
+        assertThat("Class index not readable", ClassIndex.open(indexFile.toPath()), notNullValue());
+    }
+
+    @Test
+    public void testExecuteSkipsUpToDateClassIndex() throws Exception {
+        mojo.execute();
+        FileTime future = FileTime.fromMillis(System.currentTimeMillis() + 60000);
+        Files.setLastModifiedTime(indexFile.toPath(), future);
+
+        mojo.execute();
+
+        assertThat("Up to date class index written again", Files.getLastModifiedTime(indexFile.toPath()), is(future));
+    }
+
+    @Test
+    public void testExecuteRewritesOutdatedClassIndex() throws Exception {
+        Files.createDirectories(indexFile.toPath().getParent());
+        Files.write(indexFile.toPath(), new byte[]{0x41, 0x54, 0x43, 0x49, 0, 0, 0, 1});
+        Files.setLastModifiedTime(indexFile.toPath(), FileTime.fromMillis(System.currentTimeMillis() + 60000));
+
+        mojo.execute();
+
+        assertThat("Outdated class index not written again", ClassIndex.isCurrentVersion(indexFile.toPath()), is(true));
+    }
+
+    @Test
+    public void testExecuteSkip() throws Exception {
+        TestReflectionUtils.setInternalField(mojo, "skip", Boolean.TRUE);
+
+        mojo.execute();
+
+        assertThat("Skipped class index written", indexFile.exists(), is(false));
+    }
+}
@@ -0,0 +1,160 @@
+package no.acntech.common.test.processor;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Finds the getters and setters of a class at compile time, following the same naming rules as <b>TestReflectionUtils</b> does
+ * when the test runs. Types are given as the erasure of the types seen by the class, so inherited generic properties get the
+ * type of the class.
+ */
+final class BeanPropertyElements {
+
+    private static final String GET_PREFIX = "get";
+    private static final String IS_PREFIX = "is";
+    private static final String SET_PREFIX = "set";
+    private static final String BOOLEAN_CLASS = "java.lang.Boolean";
+
+    private BeanPropertyElements() {
+    }
+
+    /**
+     * A getter, with its setter if the property has a setter of the same type.
+     */
+    static final class Property {
+
+        private final String name;
+        private final TypeMirror type;
+        private final ExecutableElement getter;
+        private final ExecutableElement setter;
+
+        private Property(String name, TypeMirror type, ExecutableElement getter, ExecutableElement setter) {
+            this.name = name;
+            this.type = type;
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        TypeMirror getType() {
+            return type;
+        }
+
+        ExecutableElement getGetter() {
+            return getter;
+        }
+
+        ExecutableElement getSetter() {
+            return setter;
+        }
+    }
+
+    /**
+     * @param type          A class.
+     * @param excludeFields Names of the fields not to find.
+     * @param elements      Element utils of the compiler.
+     * @param types         Type utils of the compiler.
+     * @return The getters of the class, sorted by name.
+     */
+    static List<Property> find(TypeElement type, Set<String> excludeFields, Elements elements, Types types) {
+        DeclaredType declaredType = (DeclaredType) type.asType();
+        Map<String, ExecutableElement> getters = new TreeMap<>();
+        Map<String, ExecutableElement> booleanWrapperGetters = new HashMap<>();
+        Map<String, List<ExecutableElement>> setters = new HashMap<>();
+
+        for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(type))) {
+            if (!method.getModifiers().contains(Modifier.PUBLIC) || method.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+
+            String name = method.getSimpleName().toString();
+            int paramCount = method.getParameters().size();
+            TypeMirror returnType = getReturnType(declaredType, method, types);
+            if (paramCount == 0 && name.startsWith(IS_PREFIX) && name.length() > IS_PREFIX.length()) {
+                String propertyName = decapitalize(name.substring(IS_PREFIX.length()));
+                if (returnType.getKind() == TypeKind.BOOLEAN) {
+                    // An is getter wins over a get getter of the same property
+                    getters.put(propertyName, method);
+                } else if (isBooleanClass(returnType)) {
+                    booleanWrapperGetters.put(propertyName, method);
+                }
+            } else if (paramCount == 0 && name.startsWith(GET_PREFIX) && name.length() > GET_PREFIX.length() && returnType.getKind() != TypeKind.VOID) {
+                String propertyName = decapitalize(name.substring(GET_PREFIX.length()));
+                ExecutableElement getter = getters.get(propertyName);
+                if (getter == null || getReturnType(declaredType, getter, types).getKind() != TypeKind.BOOLEAN) {
+                    getters.put(propertyName, method);
+                }
+            } else if (paramCount == 1 && name.startsWith(SET_PREFIX) && name.length() > SET_PREFIX.length() && returnType.getKind() == TypeKind.VOID) {
+                setters.computeIfAbsent(decapitalize(name.substring(SET_PREFIX.length())), key -> new ArrayList<>()).add(method);
+            }
+        }
+
+        // An is getter of a Boolean property is only a getter when the property has a setter
+        for (Map.Entry<String, ExecutableElement> entry : booleanWrapperGetters.entrySet()) {
+            TypeMirror booleanType = getReturnType(declaredType, entry.getValue(), types);
+            if (!getters.containsKey(entry.getKey()) && findSetter(setters.get(entry.getKey()), booleanType, declaredType, types) != null) {
+                getters.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        List<Property> properties = new ArrayList<>();
+        for (Map.Entry<String, ExecutableElement> entry : getters.entrySet()) {
+            if (excludeFields.contains(entry.getKey())) {
+                continue;
+            }
+            TypeMirror propertyType = getReturnType(declaredType, entry.getValue(), types);
+            ExecutableElement setter = findSetter(setters.get(entry.getKey()), propertyType, declaredType, types);
+            properties.add(new Property(entry.getKey(), propertyType, entry.getValue(), setter));
+        }
+        return properties;
+    }
+
+    private static TypeMirror getReturnType(DeclaredType declaredType, ExecutableElement method, Types types) {
+        return types.erasure(((ExecutableType) types.asMemberOf(declaredType, method)).getReturnType());
+    }
+
+    private static boolean isBooleanClass(TypeMirror type) {
+        return type.getKind() == TypeKind.DECLARED && BOOLEAN_CLASS.equals(type.toString());
+    }
+
+    private static ExecutableElement findSetter(List<ExecutableElement> setters, TypeMirror type, DeclaredType declaredType, Types types) {
+        if (setters != null) {
+            for (ExecutableElement setter : setters) {
+                TypeMirror paramType = types.erasure(((ExecutableType) types.asMemberOf(declaredType, setter)).getParameterTypes().get(0));
+                if (types.isSameType(paramType, type)) {
+                    return setter;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Same as <b>java.beans.Introspector.decapitalize</b>, where a name starting with two upper case letters, like <b>URL</b>, is kept.
+     */
+    private static String decapitalize(String name) {
+        if (name.length() > 1 && Character.isUpperCase(name.charAt(1)) && Character.isUpperCase(name.charAt(0))) {
+            return name;
+        }
+        char[] chars = name.toCharArray();
+        chars[0] = Character.toLowerCase(chars[0]);
+        return new String(chars);
+    }
+}
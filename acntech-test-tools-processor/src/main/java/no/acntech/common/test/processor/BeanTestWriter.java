@@ -0,0 +1,295 @@
+package no.acntech.common.test.processor;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes the source of a JUnit test of beans, testing the same as <b>JavaBeanTester.testClass</b>. For each getter with a setter of
+ * the same type a new bean is created with the default constructor, the setter is called with a test value, and the getter must give
+ * the value back. For each getter, every public constructor taking the type of the getter is called with the test value, and a warning
+ * is logged if the getter does not give the value back. Test values are the same as given by <b>TestTypeFactory</b>, where primitives,
+ * their wrappers and strings are written as constants, and other values are created by <b>TestTypeFactory</b> when the test runs.
+ * <p>
+ * Beans that can not be called directly from the test, like interfaces, abstract classes, classes not public, or classes with getters
+ * and setters but no public default constructor, are tested by <b>JavaBeanTester.testClass</b> when the test runs, so they are tested
+ * exactly as before.
+ */
+final class BeanTestWriter {
+
+    private static final String INDENT = "    ";
+    private static final String TEST_TYPE_FACTORY = "no.acntech.common.test.TestTypeFactory";
+    private static final String JAVA_BEAN_TESTER = "no.acntech.common.test.JavaBeanTester";
+    private static final Map<String, String> CONSTANTS = new HashMap<>();
+    private final Elements elements;
+    private final Types types;
+    private final Set<String> excludeFields;
+    private final Set<String> methodNames = new HashSet<>();
+    private final StringBuilder source = new StringBuilder();
+
+    static {
+        // The values given by TestTypeFactory, referenced so they can not differ
+        putConstant("BOOLEAN_VALUE", "boolean", "java.lang.Boolean");
+        putConstant("INT_VALUE", "int", "java.lang.Integer");
+        putConstant("LONG_VALUE", "long", "java.lang.Long");
+        putConstant("DOUBLE_VALUE", "double", "java.lang.Double");
+        putConstant("FLOAT_VALUE", "float", "java.lang.Float");
+        putConstant("CHAR_VALUE", "char", "java.lang.Character");
+        putConstant("BYTE_VALUE", "byte", "java.lang.Byte");
+        putConstant("SHORT_VALUE", "short", "java.lang.Short");
+        putConstant("STRING_VALUE", "java.lang.String");
+    }
+
+    private static void putConstant(String constantName, String... typeNames) {
+        for (String typeName : typeNames) {
+            CONSTANTS.put(typeName, TEST_TYPE_FACTORY + "." + constantName);
+        }
+    }
+
+    /**
+     * @param packageName   Package of the test.
+     * @param testName      Simple name of the test.
+     * @param annotatedName Name of the class annotated with <b>TestBeans</b>.
+     * @param excludeFields Names of the fields not to test.
+     * @param elements      Element utils of the compiler.
+     * @param types         Type utils of the compiler.
+     */
+    BeanTestWriter(String packageName, String testName, String annotatedName, Set<String> excludeFields, Elements elements, Types types) {
+        this.elements = elements;
+        this.types = types;
+        this.excludeFields = excludeFields;
+
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("import static org.hamcrest.CoreMatchers.is;\n");
+        source.append("import static org.junit.Assert.assertThat;\n\n");
+        source.append("/**\n");
+        source.append(" * Bean tests generated from <b>TestBeans</b> on <b>").append(annotatedName).append("</b>. Do not edit.\n");
+        source.append(" */\n");
+        source.append("public class ").append(testName).append(" {\n\n");
+        source.append(INDENT).append("private static final org.slf4j.Logger LOGGER = org.slf4j.LoggerFactory.getLogger(").append(testName).append(".class);\n");
+    }
+
+    /**
+     * Write the test of a bean.
+     *
+     * @param bean The bean.
+     */
+    void writeTest(TypeElement bean) {
+        String beanName = bean.getQualifiedName().toString();
+        source.append('\n');
+        source.append(INDENT).append("@org.junit.Test\n");
+        source.append(INDENT).append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+        source.append(INDENT).append("public void ").append(createMethodName(bean)).append("() throws Exception {\n");
+
+        List<BeanPropertyElements.Property> properties = BeanPropertyElements.find(bean, excludeFields, elements, types);
+        if (isDirectlyCallable(bean, properties)) {
+            for (BeanPropertyElements.Property property : properties) {
+                if (property.getSetter() != null) {
+                    writeSetterAndGetter(beanName, property);
+                }
+            }
+            for (BeanPropertyElements.Property property : properties) {
+                for (ExecutableElement constructor : findConstructorsWithParamMatch(bean, property.getType())) {
+                    writeConstructorAndGetter(beanName, property, constructor);
+                }
+            }
+        } else {
+            source.append(INDENT).append(INDENT).append("// Can not be called directly, so tested by JavaBeanTester\n");
+            source.append(INDENT).append(INDENT).append(JAVA_BEAN_TESTER).append(".testClass(Class.forName(\"").append(elements.getBinaryName(bean)).append("\"), new String[]{");
+            String separator = "";
+            for (String excludeField : excludeFields) {
+                source.append(separator).append(quote(excludeField));
+                separator = ", ";
+            }
+            source.append("});\n");
+        }
+
+        source.append(INDENT).append("}\n");
+    }
+
+    /**
+     * @return Source of the test.
+     */
+    String getSource() {
+        return source + "}\n";
+    }
+
+    private void writeSetterAndGetter(String beanName, BeanPropertyElements.Property property) {
+        String indent = INDENT + INDENT + INDENT;
+        source.append(INDENT).append(INDENT).append("{\n");
+        writeExpected(indent, property.getType());
+        source.append(indent).append(beanName).append(" bean = new ").append(beanName).append("();\n");
+        source.append(indent).append("bean.").append(property.getSetter().getSimpleName()).append("(expected);\n");
+        source.append(indent).append("assertThat(").append(quote("Failed when testing field " + property.getName()))
+                .append(", expected, is(bean.").append(property.getGetter().getSimpleName()).append("()));\n");
+        source.append(INDENT).append(INDENT).append("}\n");
+    }
+
+    private void writeConstructorAndGetter(String beanName, BeanPropertyElements.Property property, ExecutableElement constructor) {
+        String indent = INDENT + INDENT + INDENT;
+        source.append(INDENT).append(INDENT).append("{\n");
+        writeExpected(indent, property.getType());
+        source.append(indent).append("try {\n");
+        source.append(indent).append(INDENT).append(beanName).append(" bean = new ").append(beanName).append('(');
+        String separator = "";
+        for (VariableElement param : constructor.getParameters()) {
+            TypeMirror paramType = types.erasure(param.asType());
+            source.append(separator).append('(').append(getTypeName(paramType)).append(") ").append(isParamMatch(paramType, property.getType()) ? "expected" : "null");
+            separator = ", ";
+        }
+        source.append(");\n");
+        source.append(indent).append(INDENT).append("if (bean.").append(property.getGetter().getSimpleName()).append("() != expected) {\n");
+        source.append(indent).append(INDENT).append(INDENT).append("LOGGER.warn(\"Constructor did not set same class field as used for getter\");\n");
+        source.append(indent).append(INDENT).append("}\n");
+        source.append(indent).append("} catch (Exception e) {\n");
+        source.append(indent).append(INDENT).append("LOGGER.trace(")
+                .append(quote("Failed when testing field " + property.getName() + " of class " + beanName)).append(", e);\n");
+        source.append(indent).append("}\n");
+        source.append(INDENT).append(INDENT).append("}\n");
+    }
+
+    private void writeExpected(String indent, TypeMirror type) {
+        String typeName = getTypeName(type);
+        String constant = CONSTANTS.get(typeName);
+        source.append(indent).append(typeName).append(" expected = ");
+        if (constant != null) {
+            source.append(constant);
+        } else {
+            source.append(TEST_TYPE_FACTORY).append(".createType(").append(typeName).append(".class)");
+        }
+        source.append(";\n");
+    }
+
+    private boolean isDirectlyCallable(TypeElement bean, List<BeanPropertyElements.Property> properties) {
+        if (bean.getKind() != ElementKind.CLASS || bean.getModifiers().contains(Modifier.ABSTRACT) || !isAccessible(bean)
+                || (bean.getNestingKind() == NestingKind.MEMBER && !bean.getModifiers().contains(Modifier.STATIC))) {
+            return Boolean.FALSE;
+        }
+
+        boolean hasSetters = Boolean.FALSE;
+        for (BeanPropertyElements.Property property : properties) {
+            hasSetters |= property.getSetter() != null;
+            if (!isAccessible(property.getType())) {
+                return Boolean.FALSE;
+            }
+            for (ExecutableElement constructor : findConstructorsWithParamMatch(bean, property.getType())) {
+                for (VariableElement param : constructor.getParameters()) {
+                    if (!isAccessible(types.erasure(param.asType()))) {
+                        return Boolean.FALSE;
+                    }
+                }
+            }
+        }
+
+        if (hasSetters) {
+            for (ExecutableElement constructor : ElementFilter.constructorsIn(bean.getEnclosedElements())) {
+                if (constructor.getModifiers().contains(Modifier.PUBLIC) && constructor.getParameters().isEmpty()) {
+                    return Boolean.TRUE;
+                }
+            }
+            return Boolean.FALSE;
+        }
+        return Boolean.TRUE;
+    }
+
+    /**
+     * Public constructors with a parameter the type can be given to, where any other parameters can be given null.
+     */
+    private List<ExecutableElement> findConstructorsWithParamMatch(TypeElement bean, TypeMirror type) {
+        List<ExecutableElement> constructors = new ArrayList<>();
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(bean.getEnclosedElements())) {
+            if (!constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                continue;
+            }
+
+            boolean paramMatch = Boolean.FALSE;
+            boolean primitiveMismatch = Boolean.FALSE;
+            for (VariableElement param : constructor.getParameters()) {
+                TypeMirror paramType = types.erasure(param.asType());
+                if (isParamMatch(paramType, type)) {
+                    paramMatch = Boolean.TRUE;
+                } else if (paramType.getKind().isPrimitive()) {
+                    // Calling the constructor through reflection would fail on null for a primitive
+                    primitiveMismatch = Boolean.TRUE;
+                }
+            }
+            if (paramMatch && !primitiveMismatch) {
+                constructors.add(constructor);
+            }
+        }
+        return constructors;
+    }
+
+    /**
+     * Same as <b>Class.isAssignableFrom</b> on the parameter type, where primitives only match the same primitive.
+     */
+    private boolean isParamMatch(TypeMirror paramType, TypeMirror type) {
+        if (paramType.getKind().isPrimitive() || type.getKind().isPrimitive()) {
+            return types.isSameType(paramType, type);
+        }
+        return types.isAssignable(type, paramType);
+    }
+
+    private boolean isAccessible(TypeMirror type) {
+        if (type.getKind() == TypeKind.ARRAY) {
+            return isAccessible(((ArrayType) type).getComponentType());
+        } else if (type.getKind() == TypeKind.DECLARED) {
+            return isAccessible((TypeElement) ((DeclaredType) type).asElement());
+        }
+        return type.getKind().isPrimitive();
+    }
+
+    private static boolean isAccessible(TypeElement type) {
+        for (Element element = type; element instanceof TypeElement; element = element.getEnclosingElement()) {
+            if (!element.getModifiers().contains(Modifier.PUBLIC)) {
+                return Boolean.FALSE;
+            }
+        }
+        return Boolean.TRUE;
+    }
+
+    /**
+     * @return Name of an erased type as written in source, without any type annotations.
+     */
+    private static String getTypeName(TypeMirror type) {
+        if (type.getKind() == TypeKind.ARRAY) {
+            return getTypeName(((ArrayType) type).getComponentType()) + "[]";
+        } else if (type.getKind() == TypeKind.DECLARED) {
+            return ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+        }
+        return type.getKind().name().toLowerCase(Locale.ROOT);
+    }
+
+    private String createMethodName(TypeElement bean) {
+        String baseName = "test" + bean.getSimpleName();
+        String methodName = baseName;
+        for (int i = 2; !methodNames.add(methodName); i++) {
+            methodName = baseName + i;
+        }
+        return methodName;
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
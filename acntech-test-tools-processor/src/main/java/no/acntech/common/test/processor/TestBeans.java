@@ -0,0 +1,31 @@
+package no.acntech.common.test.processor;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generates a JUnit test of the getters and setters of all classes in the given packages when the annotated test class is compiled.
+ * The generated test is named after the annotated class with the suffix <b>_BeansTest</b>, and tests the same as
+ * <b>JavaBeanTester.testClass</b>, calling the beans directly, so no package is searched and no bean is introspected or called
+ * through reflection when the test runs.
+ *
+ * @see no.acntech.common.test.processor.TestBeansProcessor
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface TestBeans {
+
+    /**
+     * @return Names of the packages holding the beans to test. Child packages are not tested.
+     */
+    String[] packages();
+
+    /**
+     * @return Names of the fields not to test.
+     */
+    String[] excludeFields() default {};
+}
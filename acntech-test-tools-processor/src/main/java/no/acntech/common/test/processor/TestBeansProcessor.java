@@ -0,0 +1,92 @@
+package no.acntech.common.test.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates the bean tests asked for by <b>TestBeans</b> when the annotated test classes are compiled. The beans of a package
+ * are found through the compiler, from the sources being compiled or from the class path, so the packages must be compiled before
+ * the tests, like the main classes of a project are compiled before its test classes. The processor is found by the compiler
+ * through <b>META-INF/services</b>, so it runs when this module is on the test class path.
+ *
+ * @see no.acntech.common.test.processor.TestBeans
+ */
+@SupportedAnnotationTypes("no.acntech.common.test.processor.TestBeans")
+public class TestBeansProcessor extends AbstractProcessor {
+
+    static final String TEST_NAME_SUFFIX = "_BeansTest";
+    private static final String INTERNAL_CLASS_FIELD = "class";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotated : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(TestBeans.class))) {
+            try {
+                writeTest(annotated, annotated.getAnnotation(TestBeans.class));
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write bean tests: " + e, annotated);
+            }
+        }
+        return Boolean.TRUE;
+    }
+
+    private void writeTest(TypeElement annotated, TestBeans testBeans) throws IOException {
+        Set<String> excludeFields = new HashSet<>(Arrays.asList(testBeans.excludeFields()));
+        excludeFields.add(INTERNAL_CLASS_FIELD);
+
+        String packageName = processingEnv.getElementUtils().getPackageOf(annotated).getQualifiedName().toString();
+        String testName = annotated.getSimpleName() + TEST_NAME_SUFFIX;
+        BeanTestWriter testWriter = new BeanTestWriter(packageName, testName, annotated.getQualifiedName().toString(), excludeFields,
+                processingEnv.getElementUtils(), processingEnv.getTypeUtils());
+
+        for (String beanPackageName : testBeans.packages()) {
+            PackageElement beanPackage = processingEnv.getElementUtils().getPackageElement(beanPackageName);
+            if (beanPackage == null) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Package " + beanPackageName + " of bean tests not found", annotated);
+                continue;
+            }
+
+            List<TypeElement> beans = new ArrayList<>();
+            findBeans(beanPackage, beans);
+            beans.sort(Comparator.comparing(bean -> bean.getQualifiedName().toString()));
+            for (TypeElement bean : beans) {
+                testWriter.writeTest(bean);
+            }
+        }
+
+        String qualifiedTestName = packageName.isEmpty() ? testName : packageName + "." + testName;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedTestName, annotated).openWriter()) {
+            writer.write(testWriter.getSource());
+        }
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "Wrote bean tests " + qualifiedTestName);
+    }
+
+    /**
+     * Find the classes of a package, and their member classes, like a package search using <b>ClassCriteria.createDefault</b> does.
+     */
+    private static void findBeans(Element element, List<TypeElement> beans) {
+        for (TypeElement type : ElementFilter.typesIn(element.getEnclosedElements())) {
+            beans.add(type);
+            findBeans(type, beans);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package no.acntech.common.test.processor;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import no.acntech.common.test.processor.testsubject.DummyBean;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+public class TestBeansProcessorTest {
+
+    private static final String TEST_SUBJECT_PACKAGE = DummyBean.class.getPackage().getName();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File sourceDirectory;
+    private File classesDirectory;
+    private DiagnosticCollector<JavaFileObject> diagnostics;
+
+    @Before
+    public void setUp() throws Exception {
+        sourceDirectory = temporaryFolder.newFolder("sources");
+        classesDirectory = temporaryFolder.newFolder("classes");
+        diagnostics = new DiagnosticCollector<>();
+    }
+
+    @Test
+    public void testProcessWritesBeanTests() throws Exception {
+        boolean compiled = compile("@no.acntech.common.test.processor.TestBeans(packages = \"" + TEST_SUBJECT_PACKAGE + "\")");
+
+        assertThat("Compilation failed: " + diagnostics.getDiagnostics(), compiled, is(true));
+
+        String source = new String(Files.readAllBytes(sourceDirectory.toPath().resolve("generated/DummyTest_BeansTest.java")), StandardCharsets.UTF_8);
+        assertThat("Setter not called directly", source, containsString("bean.setName(expected);"));
+        assertThat("Test value not taken from TestTypeFactory", source, containsString("java.lang.String expected = no.acntech.common.test.TestTypeFactory.STRING_VALUE;"));
+        assertThat("Boolean getter not called directly", source, containsString("is(bean.isActive())"));
+        assertThat("Constructor not called directly", source, containsString("new " + TEST_SUBJECT_PACKAGE + ".DummyBean((java.lang.String) null, (int) expected)"));
+        assertThat("Constructor called with null for primitive", source, not(containsString("(int) null")));
+        assertThat("Member class not tested", source, containsString("bean.setCount(expected);"));
+        assertThat("Abstract class not tested by JavaBeanTester", source, containsString("Class.forName(\"" + TEST_SUBJECT_PACKAGE + ".DummyAbstractBean\")"));
+        assertThat("Hidden class not tested by JavaBeanTester", source, containsString("Class.forName(\"" + TEST_SUBJECT_PACKAGE + ".DummyHiddenBean\")"));
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{classesDirectory.toURI().toURL()}, TestBeansProcessorTest.class.getClassLoader())) {
+            Result result = new JUnitCore().run(classLoader.loadClass("generated.DummyTest_BeansTest"));
+
+            assertThat("Generated bean tests failed: " + result.getFailures(), result.wasSuccessful(), is(true));
+            assertThat("Wrong number of generated bean tests", result.getRunCount(), is(5));
+        }
+    }
+
+    @Test
+    public void testProcessExcludeFields() throws Exception {
+        boolean compiled = compile("@no.acntech.common.test.processor.TestBeans(packages = \"" + TEST_SUBJECT_PACKAGE + "\", excludeFields = \"name\")");
+
+        assertThat("Compilation failed: " + diagnostics.getDiagnostics(), compiled, is(true));
+
+        String source = new String(Files.readAllBytes(sourceDirectory.toPath().resolve("generated/DummyTest_BeansTest.java")), StandardCharsets.UTF_8);
+        assertThat("Excluded field tested", source, not(containsString("bean.setName(expected);")));
+    }
+
+    @Test
+    public void testProcessPackageNotFound() throws Exception {
+        boolean compiled = compile("@no.acntech.common.test.processor.TestBeans(packages = \"no.such.pkg\")");
+
+        assertThat("Compilation did not fail", compiled, is(false));
+        assertThat("Missing package not reported", diagnostics.getDiagnostics().stream()
+                .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                .anyMatch(diagnostic -> diagnostic.getMessage(Locale.ROOT).contains("no.such.pkg")), is(true));
+    }
+
+    private boolean compile(String annotation) throws Exception {
+        Path testSource = sourceDirectory.toPath().resolve("generated/DummyTest.java");
+        Files.createDirectories(testSource.getParent());
+        Files.write(testSource, Arrays.asList("package generated;", annotation, "public class DummyTest {", "}"), StandardCharsets.UTF_8);
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, Locale.ROOT, StandardCharsets.UTF_8)) {
+            // Surefire may run the tests from a manifest only jar, so the class path is taken from surefire when given
+            String classPath = System.getProperty("surefire.test.class.path", System.getProperty("java.class.path"));
+            List<String> options = Arrays.asList("-classpath", classPath, "-d", classesDirectory.getPath(), "-s", sourceDirectory.getPath());
+
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null, fileManager.getJavaFileObjects(testSource.toFile()));
+            task.setProcessors(Collections.singletonList(new TestBeansProcessor()));
+            return task.call();
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package no.acntech.common.test.processor.testsubject;
+
+public abstract class DummyAbstractBean {
+
+    public abstract String getName();
+}
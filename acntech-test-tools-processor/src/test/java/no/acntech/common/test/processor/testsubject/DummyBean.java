@@ -0,0 +1,82 @@
+package no.acntech.common.test.processor.testsubject;
+
+import java.util.List;
+
+public class DummyBean {
+
+    private int id;
+    private String name;
+    private Boolean active;
+    private double price;
+    private List<String> tags;
+    private DummyGenericBean<String> parent;
+
+    public DummyBean() {
+    }
+
+    public DummyBean(String name, int id) {
+        this.name = name;
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Boolean isActive() {
+        return active;
+    }
+
+    public void setActive(Boolean active) {
+        this.active = active;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public void setPrice(double price) {
+        this.price = price;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public void setTags(List<String> tags) {
+        this.tags = tags;
+    }
+
+    public DummyGenericBean<String> getParent() {
+        return parent;
+    }
+
+    public void setParent(DummyGenericBean<String> parent) {
+        this.parent = parent;
+    }
+
+    public static class DummyMemberBean {
+
+        private long count;
+
+        public long getCount() {
+            return count;
+        }
+
+        public void setCount(long count) {
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package no.acntech.common.test.processor.testsubject;
+
+public class DummyGenericBean<T> {
+
+    private T value;
+
+    public T getValue() {
+        return value;
+    }
+
+    public void setValue(T value) {
+        this.value = value;
+    }
+}
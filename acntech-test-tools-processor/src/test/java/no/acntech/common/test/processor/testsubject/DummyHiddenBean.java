@@ -0,0 +1,10 @@
+package no.acntech.common.test.processor.testsubject;
+
+class DummyHiddenBean {
+
+    private String name;
+
+    public String getName() {
+        return name;
+    }
+}
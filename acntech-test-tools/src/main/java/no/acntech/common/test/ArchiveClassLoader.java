@@ -0,0 +1,324 @@
+package no.acntech.common.test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+
+/**
+ * Class loader for classes packaged inside an archive, like an executable Spring Boot jar or war.
+ * Nested jar files are read in place from the memory mapped outer archive, so nothing is extracted to disk.
+ * The class path is resolved in the same order as the Spring Boot launcher: the classes directory first,
+ * then the nested jars in the order of the class path index if present, otherwise in archive order.
+ * Resources are served from the same index as the classes, through <b>jar:</b> URLs read from the mapped archive.
+ */
+final class ArchiveClassLoader extends ClassLoader {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArchiveClassLoader.class);
+    private static final String[] LAYOUT_DIRECTORIES = {"BOOT-INF/", "WEB-INF/"};
+    private static final String CLASSES_DIRECTORY = "classes/";
+    private static final String LIB_DIRECTORY = "lib/";
+    private static final String CLASS_PATH_INDEX = "classpath.idx";
+    private static final String JAR_FILE_SUFFIX = ".jar";
+    private static final String CLASS_FILE_SUFFIX = ".class";
+    private static final String MANIFEST_NAME = "META-INF/MANIFEST.MF";
+    private static final String JAR_URL_SEPARATOR = "!/";
+    private final List<Root> roots;
+    private Map<String, IndexedEntry> entryIndex;
+
+    private ArchiveClassLoader(List<Root> roots, ClassLoader parent) {
+        super(parent);
+        this.roots = roots;
+    }
+
+    /**
+     * Open an archive and resolve its class path.
+     *
+     * @param archive Archive file.
+     * @param parent  Parent class loader.
+     * @return Class loader for the classes in the archive.
+     * @throws IOException If reading the archive fails.
+     */
+    static ArchiveClassLoader open(File archive, ClassLoader parent) throws IOException {
+        if (archive == null) {
+            throw new IllegalArgumentException("Archive is null");
+        }
+
+        ZipCentralDirectory centralDirectory = ZipCentralDirectory.map(archive.toPath());
+        String location = archive.getAbsolutePath();
+        String url = archive.toURI() + JAR_URL_SEPARATOR;
+
+        for (String layoutDirectory : LAYOUT_DIRECTORIES) {
+            String classesDirectory = layoutDirectory + CLASSES_DIRECTORY;
+            String libDirectory = layoutDirectory + LIB_DIRECTORY;
+            boolean layoutFound = Boolean.FALSE;
+            Map<String, Integer> libs = new LinkedHashMap<>();
+
+            int entry = centralDirectory.getFirstEntry();
+            for (int i = 0; i < centralDirectory.getEntryCount(); i++, entry = centralDirectory.getNextEntry(entry)) {
+                String name = centralDirectory.getName(entry);
+                if (name.startsWith(classesDirectory)) {
+                    layoutFound = Boolean.TRUE;
+                } else if (name.startsWith(libDirectory) && name.endsWith(JAR_FILE_SUFFIX)) {
+                    layoutFound = Boolean.TRUE;
+                    libs.put(name, entry);
+                }
+            }
+
+            if (layoutFound) {
+                List<Root> roots = new ArrayList<>();
+                roots.add(new Root(centralDirectory, classesDirectory, location + "!/" + classesDirectory, url + classesDirectory));
+
+                for (String lib : orderLibs(centralDirectory, layoutDirectory, libs)) {
+                    LOGGER.trace("Adding nested jar {} to class path of archive {}", lib, location);
+                    roots.add(new Root(centralDirectory.getNestedArchive(libs.get(lib)), "", location + "!/" + lib + "!/", url + lib + JAR_URL_SEPARATOR));
+                }
+
+                LOGGER.debug("Resolved class path of archive {} with {} nested jars", location, libs.size());
+                return new ArchiveClassLoader(roots, parent);
+            }
+        }
+
+        LOGGER.debug("Archive {} has no nested class path, so using archive root", location);
+        return new ArchiveClassLoader(Collections.singletonList(new Root(centralDirectory, "", location + "!/", url)), parent);
+    }
+
+    List<Root> getRoots() {
+        return roots;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        String entryName = name.replace('.', '/') + CLASS_FILE_SUFFIX;
+        IndexedEntry indexedEntry;
+        try {
+            indexedEntry = getEntryIndex().get(entryName);
+        } catch (IOException e) {
+            throw new ClassNotFoundException("Failed to index archive classes", e);
+        }
+        if (indexedEntry == null) {
+            throw new ClassNotFoundException(name);
+        }
+
+        try {
+            int packageEnd = name.lastIndexOf('.');
+            if (packageEnd > 0) {
+                definePackage(name.substring(0, packageEnd), indexedEntry.root);
+            }
+
+            ByteBuffer data = indexedEntry.root.centralDirectory.getData(indexedEntry.entry);
+            return defineClass(name, data, null);
+        } catch (IOException e) {
+            throw new ClassNotFoundException("Failed to read class " + name + " from " + indexedEntry.root.location, e);
+        }
+    }
+
+    @Override
+    protected URL findResource(String name) {
+        try {
+            IndexedEntry indexedEntry = getEntryIndex().get(name);
+            return indexedEntry == null ? null : indexedEntry.toUrl(name);
+        } catch (IOException e) {
+            LOGGER.debug("Failed to find resource {} in archive", name, e);
+            return null;
+        }
+    }
+
+    @Override
+    protected Enumeration<URL> findResources(String name) throws IOException {
+        List<URL> urls = new ArrayList<>();
+        for (IndexedEntry indexedEntry = getEntryIndex().get(name); indexedEntry != null; indexedEntry = indexedEntry.shadowed) {
+            urls.add(indexedEntry.toUrl(name));
+        }
+        return Collections.enumeration(urls);
+    }
+
+    @SuppressWarnings("deprecation")
+    private void definePackage(String packageName, Root root) throws IOException {
+        // Classes are loaded while holding the lock of this class loader, so no other thread defines the package in between
+        if (getPackage(packageName) == null) {
+            Attributes attributes = root.getManifestAttributes();
+            if (attributes == null) {
+                definePackage(packageName, null, null, null, null, null, null, null);
+            } else {
+                definePackage(packageName,
+                        attributes.getValue(Attributes.Name.SPECIFICATION_TITLE),
+                        attributes.getValue(Attributes.Name.SPECIFICATION_VERSION),
+                        attributes.getValue(Attributes.Name.SPECIFICATION_VENDOR),
+                        attributes.getValue(Attributes.Name.IMPLEMENTATION_TITLE),
+                        attributes.getValue(Attributes.Name.IMPLEMENTATION_VERSION),
+                        attributes.getValue(Attributes.Name.IMPLEMENTATION_VENDOR),
+                        null);
+            }
+        }
+    }
+
+    private synchronized Map<String, IndexedEntry> getEntryIndex() throws IOException {
+        if (entryIndex == null) {
+            Map<String, IndexedEntry> index = new HashMap<>();
+            Map<String, IndexedEntry> lastEntries = new HashMap<>();
+            for (Root root : roots) {
+                ZipCentralDirectory centralDirectory = root.centralDirectory;
+                int entry = centralDirectory.getFirstEntry();
+                for (int i = 0; i < centralDirectory.getEntryCount(); i++, entry = centralDirectory.getNextEntry(entry)) {
+                    String name = centralDirectory.getName(entry);
+                    if (name.startsWith(root.prefix) && !name.endsWith("/")) {
+                        String entryName = name.substring(root.prefix.length());
+                        IndexedEntry indexedEntry = new IndexedEntry(root, entry);
+                        // Entries later on the class path are kept behind the entry shadowing them, for findResources
+                        IndexedEntry lastEntry = lastEntries.put(entryName, indexedEntry);
+                        if (lastEntry == null) {
+                            index.put(entryName, indexedEntry);
+                        } else {
+                            lastEntry.shadowed = indexedEntry;
+                        }
+                    }
+                }
+            }
+            entryIndex = index;
+        }
+        return entryIndex;
+    }
+
+    private static Set<String> orderLibs(ZipCentralDirectory centralDirectory, String layoutDirectory, Map<String, Integer> libs) throws IOException {
+        Set<String> orderedLibs = new LinkedHashSet<>();
+
+        int indexEntry = centralDirectory.findEntry(layoutDirectory + CLASS_PATH_INDEX);
+        if (indexEntry >= 0) {
+            String index = StandardCharsets.UTF_8.decode(centralDirectory.getData(indexEntry)).toString();
+            for (String line : index.split("\n")) {
+                // Lines are formatted as: - "BOOT-INF/lib/library.jar", older versions only list the file name
+                String lib = line.trim();
+                if (lib.startsWith("- ")) {
+                    lib = lib.substring(2).replace("\"", "").trim();
+                }
+                if (!lib.startsWith(layoutDirectory)) {
+                    lib = layoutDirectory + LIB_DIRECTORY + lib;
+                }
+                if (libs.containsKey(lib)) {
+                    orderedLibs.add(lib);
+                }
+            }
+        }
+
+        orderedLibs.addAll(libs.keySet());
+
+        return orderedLibs;
+    }
+
+    /**
+     * A class path root in the archive, either a directory of the outer archive or a nested jar file.
+     */
+    static final class Root {
+
+        private final ZipCentralDirectory centralDirectory;
+        private final String prefix;
+        private final String location;
+        private final String url;
+        private Attributes manifestAttributes;
+        private boolean manifestRead;
+
+        private Root(ZipCentralDirectory centralDirectory, String prefix, String location, String url) {
+            this.centralDirectory = centralDirectory;
+            this.prefix = prefix;
+            this.location = location;
+            this.url = url;
+        }
+
+        ZipCentralDirectory getCentralDirectory() {
+            return centralDirectory;
+        }
+
+        String getPrefix() {
+            return prefix;
+        }
+
+        String getLocation() {
+            return location;
+        }
+
+        private synchronized Attributes getManifestAttributes() throws IOException {
+            if (!manifestRead) {
+                int entry = centralDirectory.findEntry(prefix + MANIFEST_NAME);
+                if (entry >= 0) {
+                    try (InputStream in = toInputStream(centralDirectory.getData(entry))) {
+                        manifestAttributes = new Manifest(in).getMainAttributes();
+                    }
+                }
+                manifestRead = Boolean.TRUE;
+            }
+            return manifestAttributes;
+        }
+    }
+
+    private static final class IndexedEntry {
+
+        private final Root root;
+        private final int entry;
+        private IndexedEntry shadowed;
+
+        private IndexedEntry(Root root, int entry) {
+            this.root = root;
+            this.entry = entry;
+        }
+
+        private URL toUrl(String name) throws MalformedURLException {
+            return new URL("jar", null, -1, root.url + name, new EntryUrlStreamHandler(this));
+        }
+    }
+
+    /**
+     * Opens the entry a URL was made for, reading it from the mapped archive instead of opening the archive again.
+     */
+    private static final class EntryUrlStreamHandler extends URLStreamHandler {
+
+        private final IndexedEntry indexedEntry;
+
+        private EntryUrlStreamHandler(IndexedEntry indexedEntry) {
+            this.indexedEntry = indexedEntry;
+        }
+
+        @Override
+        protected URLConnection openConnection(URL url) {
+            return new URLConnection(url) {
+
+                @Override
+                public void connect() {
+                    connected = Boolean.TRUE;
+                }
+
+                @Override
+                public InputStream getInputStream() throws IOException {
+                    connect();
+                    return toInputStream(indexedEntry.root.centralDirectory.getData(indexedEntry.entry));
+                }
+            };
+        }
+    }
+
+    private static InputStream toInputStream(ByteBuffer data) {
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        return new ByteArrayInputStream(bytes);
+    }
+}
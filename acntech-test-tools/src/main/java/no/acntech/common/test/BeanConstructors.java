@@ -0,0 +1,221 @@
+package no.acntech.common.test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The constructors of a class, with their method handles, attached to the class through a <b>ClassValue</b>.
+ * Creating beans through a method handle skips the access checks and argument copying done by every <b>Constructor.newInstance</b>.
+ * Constructors that can not be made into a method handle, like the constructors of abstract or inaccessible classes, are called
+ * through reflection, so they fail as before.
+ * <p>
+ * The constructors are fetched once per class and indexed by their number of parameters, and the constructors found for
+ * a set of parameter types are cached, so looking up constructors for the same parameter types again is a single map lookup.
+ * Lookups for parameter types not seen by the classloader of the class are not cached, as the cache would keep their
+ * classloader as long as the class.
+ */
+final class BeanConstructors {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BeanConstructors.class);
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class, Object[].class);
+    private static final Object[] NO_ARGS = new Object[0];
+    private static final ClassValue<BeanConstructors> CONSTRUCTORS = new ClassValue<BeanConstructors>() {
+
+        @Override
+        protected BeanConstructors computeValue(Class<?> type) {
+            return new BeanConstructors(type);
+        }
+    };
+    private final ClassLoader classLoader;
+    private final Constructor<?>[] constructors;
+    private final Map<Integer, List<Constructor<?>>> constructorsByParamCount = new HashMap<>();
+    private final Map<List<Class<?>>, Optional<Constructor<?>>> allParamsMatches = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Constructor<?>[]> paramMatches = new ConcurrentHashMap<>();
+    private final Map<Constructor<?>, Optional<CompiledConstructor>> handles = new ConcurrentHashMap<>();
+
+    private BeanConstructors(Class<?> clazz) {
+        this.classLoader = clazz.getClassLoader();
+
+        // Classes without public constructors are tried with their other constructors
+        Constructor<?>[] publicConstructors = clazz.getConstructors();
+        this.constructors = publicConstructors.length > 0 ? publicConstructors : clazz.getDeclaredConstructors();
+        for (Constructor<?> constructor : constructors) {
+            constructorsByParamCount.computeIfAbsent(constructor.getParameterCount(), key -> new ArrayList<>()).add(constructor);
+        }
+    }
+
+    /**
+     * Find the first constructor where each parameter can be given the parameter type in the same place.
+     *
+     * @param clazz        The class.
+     * @param wantedParams Types of the parameters.
+     * @param <T>          Type of the class.
+     * @return The constructor, or null if no constructor matches.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> Constructor<T> findConstructorWithAllParamsMatch(Class<T> clazz, Class<?>... wantedParams) {
+        if (wantedParams == null) {
+            return null;
+        }
+
+        BeanConstructors beanConstructors = CONSTRUCTORS.get(clazz);
+        List<Class<?>> key = Arrays.asList(wantedParams);
+        Optional<Constructor<?>> constructor = beanConstructors.allParamsMatches.get(key);
+        if (constructor == null) {
+            constructor = Optional.ofNullable(beanConstructors.matchAllParams(wantedParams));
+            if (beanConstructors.isCacheable(wantedParams)) {
+                // The parameter types are copied, so changing the array of the caller does not change the key
+                beanConstructors.allParamsMatches.putIfAbsent(Collections.unmodifiableList(Arrays.asList(wantedParams.clone())), constructor);
+            }
+        }
+        return (Constructor<T>) constructor.orElse(null);
+    }
+
+    /**
+     * Find the constructors with any parameter that can be given the parameter type.
+     *
+     * @param clazz       The class.
+     * @param wantedParam Type of the parameter.
+     * @param <T>         Type of the class.
+     * @return The constructors, or an empty array if no constructor matches.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> Constructor<T>[] findConstructorsWithParamMatch(Class<T> clazz, Class<?> wantedParam) {
+        if (wantedParam == null) {
+            return new Constructor[0];
+        }
+
+        BeanConstructors beanConstructors = CONSTRUCTORS.get(clazz);
+        Constructor<?>[] constructors = beanConstructors.paramMatches.get(wantedParam);
+        if (constructors == null) {
+            constructors = beanConstructors.matchParam(wantedParam);
+            if (beanConstructors.isCacheable(wantedParam)) {
+                beanConstructors.paramMatches.putIfAbsent(wantedParam, constructors);
+            }
+        }
+        // The cached array is not given out, so the caller can not change it
+        return (Constructor<T>[]) constructors.clone();
+    }
+
+    /**
+     * Create an object using a constructor.
+     *
+     * @param constructor The constructor.
+     * @param args        Constructor arguments.
+     * @param <T>         Type of the object.
+     * @return The object.
+     * @throws IllegalArgumentException  If the arguments do not match the parameters of the constructor.
+     * @throws IllegalAccessException    If the constructor is not accessible.
+     * @throws InvocationTargetException If the constructor throws an exception.
+     * @throws InstantiationException    If the class of the constructor is abstract.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T newInstance(Constructor<T> constructor, Object... args) throws IllegalAccessException, InvocationTargetException, InstantiationException {
+        Object[] constructorArgs = args == null ? NO_ARGS : args;
+
+        Optional<CompiledConstructor> compiledConstructor = CONSTRUCTORS.get(constructor.getDeclaringClass()).handles.computeIfAbsent(constructor, BeanConstructors::compile);
+        if (!compiledConstructor.isPresent()) {
+            return constructor.newInstance(constructorArgs);
+        }
+        // Checked before the call, so anything thrown by the method handle is thrown by the constructor
+        if (!ParameterTypes.isAssignable(compiledConstructor.get().parameterTypes, constructorArgs)) {
+            throw new IllegalArgumentException("Arguments do not match the parameters of constructor " + constructor);
+        }
+
+        try {
+            return (T) compiledConstructor.get().handle.invokeExact(constructorArgs);
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    private Constructor<?> matchAllParams(Class<?>[] wantedParams) {
+        for (Constructor<?> constructor : constructorsByParamCount.getOrDefault(wantedParams.length, Collections.emptyList())) {
+            Class<?>[] actualParams = constructor.getParameterTypes();
+            boolean allMatch = Boolean.TRUE;
+            for (int i = 0; i < actualParams.length && allMatch; i++) {
+                allMatch = actualParams[i].isAssignableFrom(wantedParams[i]);
+            }
+            if (allMatch) {
+                return constructor;
+            }
+        }
+        return null;
+    }
+
+    private Constructor<?>[] matchParam(Class<?> wantedParam) {
+        List<Constructor<?>> matchedConstructors = new ArrayList<>();
+        for (Constructor<?> constructor : constructors) {
+            for (Class<?> actualParam : constructor.getParameterTypes()) {
+                if (actualParam.isAssignableFrom(wantedParam)) {
+                    matchedConstructors.add(constructor);
+                    break;
+                }
+            }
+        }
+        return matchedConstructors.toArray(new Constructor<?>[matchedConstructors.size()]);
+    }
+
+    /**
+     * @return True if the types are defined by the classloader of the class or one of its parents, so caching them keeps no other classloader.
+     */
+    private boolean isCacheable(Class<?>... types) {
+        for (Class<?> type : types) {
+            if (type == null) {
+                return Boolean.FALSE;
+            }
+            ClassLoader typeClassLoader = type.getClassLoader();
+            boolean visible = typeClassLoader == null;
+            for (ClassLoader loader = classLoader; loader != null && !visible; loader = loader.getParent()) {
+                visible = loader == typeClassLoader;
+            }
+            if (!visible) {
+                return Boolean.FALSE;
+            }
+        }
+        return Boolean.TRUE;
+    }
+
+    private static Optional<CompiledConstructor> compile(Constructor<?> constructor) {
+        if (Modifier.isAbstract(constructor.getDeclaringClass().getModifiers())) {
+            return Optional.empty();
+        }
+
+        try {
+            MethodHandle handle = LOOKUP.unreflectConstructor(constructor)
+                    .asSpreader(Object[].class, constructor.getParameterCount())
+                    .asType(CONSTRUCTOR_TYPE);
+            return Optional.of(new CompiledConstructor(handle, constructor.getParameterTypes()));
+        } catch (IllegalAccessException e) {
+            LOGGER.debug("Constructor {} is not accessible as method handle, so calling constructor through reflection", constructor, e);
+            return Optional.empty();
+        }
+    }
+
+    private static final class CompiledConstructor {
+
+        private final MethodHandle handle;
+        private final Class<?>[] parameterTypes;
+
+        private CompiledConstructor(MethodHandle handle, Class<?>[] parameterTypes) {
+            this.handle = handle;
+            this.parameterTypes = parameterTypes;
+        }
+    }
+}
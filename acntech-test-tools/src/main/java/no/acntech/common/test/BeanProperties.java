@@ -0,0 +1,203 @@
+package no.acntech.common.test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.SoftReference;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The getters and setters of a class, found once per class and reused by every later test of the class. The properties are
+ * found in a single pass over the public methods of the class, following the naming rules of the JavaBeans specification,
+ * without the global caches of <b>java.beans.Introspector</b>. A <b>Boolean</b> property may also have an <b>is</b> getter.
+ * The properties are attached to the class itself through a <b>ClassValue</b>, so they are dropped together with the class.
+ * They are held softly, so the properties of a very large scan can be dropped when memory runs low, and found again if the
+ * class is tested again. Nothing else holds the properties, so they never keep a class or its classloader alive. Field criteria
+ * are applied when asking for the properties, so the same properties serve all field criteria. Each getter and setter is made
+ * into a method handle when the properties are found, so testing the properties does not pay for reflective calls, and
+ * primitive properties get method handles of their own primitive type, so they are tested without boxing.
+ */
+final class BeanProperties {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BeanProperties.class);
+    private static final String GET_PREFIX = "get";
+    private static final String IS_PREFIX = "is";
+    private static final String SET_PREFIX = "set";
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final ClassValue<SoftReference<BeanProperties>> PROPERTIES = new ClassValue<SoftReference<BeanProperties>>() {
+
+        @Override
+        protected SoftReference<BeanProperties> computeValue(Class<?> type) {
+            return new SoftReference<>(new BeanProperties(type));
+        }
+    };
+    private final List<Getter> properties = new ArrayList<>();
+
+    private BeanProperties(Class<?> clazz) {
+        // Properties are sorted by name, like the properties found by the Introspector
+        Map<String, Method> getters = new TreeMap<>();
+        Map<String, Method> booleanWrapperGetters = new HashMap<>();
+        Map<String, List<Method>> setters = new HashMap<>();
+
+        for (Method method : clazz.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers()) || method.isBridge()) {
+                continue;
+            }
+
+            String name = method.getName();
+            int paramCount = method.getParameterCount();
+            Class<?> returnType = method.getReturnType();
+            if (paramCount == 0 && name.startsWith(IS_PREFIX) && name.length() > IS_PREFIX.length()) {
+                String propertyName = decapitalize(name.substring(IS_PREFIX.length()));
+                if (returnType == boolean.class) {
+                    // An is getter wins over a get getter of the same property
+                    getters.put(propertyName, method);
+                } else if (returnType == Boolean.class) {
+                    booleanWrapperGetters.put(propertyName, method);
+                }
+            } else if (paramCount == 0 && name.startsWith(GET_PREFIX) && name.length() > GET_PREFIX.length() && returnType != void.class) {
+                String propertyName = decapitalize(name.substring(GET_PREFIX.length()));
+                Method getter = getters.get(propertyName);
+                if (getter == null || getter.getReturnType() != boolean.class) {
+                    getters.put(propertyName, method);
+                }
+            } else if (paramCount == 1 && name.startsWith(SET_PREFIX) && name.length() > SET_PREFIX.length() && returnType == void.class) {
+                setters.computeIfAbsent(decapitalize(name.substring(SET_PREFIX.length())), key -> new ArrayList<>()).add(method);
+            }
+        }
+
+        // An is getter of a Boolean property is only a getter when the property has a setter
+        for (Map.Entry<String, Method> entry : booleanWrapperGetters.entrySet()) {
+            if (!getters.containsKey(entry.getKey()) && findSetter(setters.get(entry.getKey()), Boolean.class) != null) {
+                LOGGER.debug("Getter for field {} is boolean", entry.getKey());
+                getters.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        for (Map.Entry<String, Method> entry : getters.entrySet()) {
+            String propertyName = entry.getKey();
+            Method getter = entry.getValue();
+            Method setter = findSetter(setters.get(propertyName), getter.getReturnType());
+
+            MethodHandle getterHandle = unreflect(getter);
+
+            if (setter != null) {
+                MethodHandle setterHandle = unreflect(setter);
+                if (getterHandle != null && setterHandle != null && PrimitiveGetterSetter.isPrimitive(getter.getReturnType())) {
+                    properties.add(new PrimitiveGetterSetter(propertyName, getter, getterHandle, setter, setterHandle));
+                } else {
+                    properties.add(new GetterSetter(propertyName, getter, asType(getterHandle, GETTER_TYPE), setter, asType(setterHandle, SETTER_TYPE)));
+                }
+            } else if (setters.containsKey(propertyName)) {
+                LOGGER.debug("Getter and setter for field {} has non matching type", propertyName);
+                properties.add(new Getter(propertyName, getter, asType(getterHandle, GETTER_TYPE)));
+            } else {
+                LOGGER.debug("Setter missing for field {}", propertyName);
+                properties.add(new Getter(propertyName, getter, asType(getterHandle, GETTER_TYPE)));
+            }
+        }
+    }
+
+    /**
+     * @param clazz A class.
+     * @return The properties of the class, found on first use.
+     */
+    static BeanProperties get(Class<?> clazz) {
+        BeanProperties beanProperties;
+        // Properties found again are only held softly until returned, so they can be dropped again under the same memory pressure
+        while ((beanProperties = PROPERTIES.get(clazz).get()) == null) {
+            LOGGER.trace("Properties of class {} were dropped, so finding properties again", clazz.getName());
+            PROPERTIES.remove(clazz);
+        }
+        return beanProperties;
+    }
+
+    /**
+     * @param fieldCriteria Search criteria for fields.
+     * @return The getters of the fields not excluded.
+     */
+    List<Getter> getGetters(FieldCriteria fieldCriteria) {
+        List<Getter> includedGetters = new ArrayList<>();
+        for (Getter getter : properties) {
+            if (isIncluded(getter, fieldCriteria)) {
+                includedGetters.add(getter);
+            }
+        }
+        return includedGetters;
+    }
+
+    /**
+     * @param fieldCriteria Search criteria for fields.
+     * @return The matching getters and setters of the fields not excluded.
+     */
+    List<GetterSetter> getGettersAndSetters(FieldCriteria fieldCriteria) {
+        List<GetterSetter> includedGettersAndSetters = new ArrayList<>();
+        for (Getter getter : properties) {
+            if (getter instanceof GetterSetter && isIncluded(getter, fieldCriteria)) {
+                includedGettersAndSetters.add((GetterSetter) getter);
+            }
+        }
+        return includedGettersAndSetters;
+    }
+
+    private static boolean isIncluded(Getter getter, FieldCriteria fieldCriteria) {
+        if (fieldCriteria.getExcludeFields().contains(getter.getName())) {
+            LOGGER.info("Skipping field {} as ordered", getter.getName());
+            return Boolean.FALSE;
+        }
+        return Boolean.TRUE;
+    }
+
+    /**
+     * @return A method handle of the method, or null if the method is not accessible, so the method is called through reflection.
+     */
+    private static MethodHandle unreflect(Method method) {
+        try {
+            return LOOKUP.unreflect(method);
+        } catch (IllegalAccessException e) {
+            LOGGER.debug("Method {} is not accessible as method handle, so calling method through reflection", method, e);
+            return null;
+        }
+    }
+
+    /**
+     * @return The method handle adapted to take and give objects, or null if there is no method handle.
+     */
+    private static MethodHandle asType(MethodHandle handle, MethodType type) {
+        return handle == null ? null : handle.asType(type);
+    }
+
+    private static Method findSetter(List<Method> setters, Class<?> type) {
+        if (setters != null) {
+            for (Method setter : setters) {
+                if (setter.getParameterTypes()[0] == type) {
+                    return setter;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Same as <b>java.beans.Introspector.decapitalize</b>, where a name starting with two upper case letters, like <b>URL</b>, is kept.
+     */
+    private static String decapitalize(String name) {
+        if (name.length() > 1 && Character.isUpperCase(name.charAt(1)) && Character.isUpperCase(name.charAt(0))) {
+            return name;
+        }
+        char[] chars = name.toCharArray();
+        chars[0] = Character.toLowerCase(chars[0]);
+        return new String(chars);
+    }
+}
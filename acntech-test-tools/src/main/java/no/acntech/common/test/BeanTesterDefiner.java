@@ -0,0 +1,23 @@
+package no.acntech.common.test;
+
+/**
+ * Defines the generated tester classes of beans. There are no hidden classes before Java 15, so this version defines
+ * each tester in a classloader of its own, as a child of the classloader of the bean. The version used on Java 9 and later
+ * is in the <b>src/main/java9</b> source folder, and is packaged in the multi-release section of the jar when building
+ * with Java 9 or later.
+ */
+final class BeanTesterDefiner {
+
+    private BeanTesterDefiner() {
+    }
+
+    /**
+     * @param beanClass The bean tested.
+     * @param className Name of the tester.
+     * @param bytes     Class file of the tester.
+     * @return The tester class.
+     */
+    static Class<?> define(Class<?> beanClass, String className, byte[] bytes) {
+        return new GeneratedClassLoader(beanClass.getClassLoader()).define(className, bytes);
+    }
+}
@@ -0,0 +1,384 @@
+package no.acntech.common.test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
+
+/**
+ * Generates a tester class for a bean, calling the constructor, setters and getters of the bean directly instead of through
+ * reflection, so the JIT can inline the accessors like in a hand written test. For each property the tester creates a bean,
+ * sets the test value of the property and compares the value read back, giving the index of the first property failing,
+ * or -1 if all properties pass. Primitive values are compared as primitives and other values like <b>Objects.deepEquals</b>.
+ * <p>
+ * The tester implements <b>ToIntFunction</b>, so it only uses classes seen by any classloader, and is defined through
+ * <b>BeanTesterDefiner</b> as a hidden class of the bean when running on Java 15 or later, else in a classloader of its own.
+ * Testers are made once per class and set of properties, and are attached to the class through a <b>ClassValue</b>.
+ * Beans that are not public, have no public default constructor, or have properties of types not public, get no tester.
+ */
+final class BeanTesterGenerator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BeanTesterGenerator.class);
+    private static final String TESTER_CLASS_SUFFIX = "$$BeanTester";
+    private static final int MAGIC = 0xCAFEBABE;
+    // Java 5 class files need no stack map frames
+    private static final int MAJOR_VERSION = 49;
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int ICONST_M1 = 0x02;
+    private static final int ICONST_0 = 0x03;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int ALOAD_2 = 0x2c;
+    private static final int ASTORE_1 = 0x4c;
+    private static final int ASTORE_2 = 0x4d;
+    private static final int AALOAD = 0x32;
+    private static final int DUP = 0x59;
+    private static final int LCMP = 0x94;
+    private static final int IFEQ = 0x99;
+    private static final int IFNE = 0x9a;
+    private static final int IF_ICMPEQ = 0x9f;
+    private static final int IRETURN = 0xac;
+    private static final int RETURN = 0xb1;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int NEW = 0xbb;
+    private static final int CHECKCAST = 0xc0;
+    private static final int MAX_CODE_LENGTH = 65535;
+    private static final String OBJECT = "java/lang/Object";
+    private static final String CONSTRUCTOR = "<init>";
+    private static final String VOID_DESCRIPTOR = "()V";
+    private static final ClassValue<Map<List<String>, Optional<ToIntFunction<Object[]>>>> TESTERS = new ClassValue<Map<List<String>, Optional<ToIntFunction<Object[]>>>>() {
+
+        @Override
+        protected Map<List<String>, Optional<ToIntFunction<Object[]>>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+    private final List<Object> constants = new ArrayList<>();
+    private final Map<List<Object>, Integer> constantIndexes = new HashMap<>();
+
+    private BeanTesterGenerator() {
+        // Index 0 of the constant pool is not used
+        constants.add(null);
+    }
+
+    /**
+     * Get the tester of a bean, generating the tester on first use.
+     *
+     * @param clazz             Class of the bean.
+     * @param gettersAndSetters Getters and setters to test.
+     * @return The tester, taking the test values of the properties, or null if the bean can not have a tester.
+     */
+    static ToIntFunction<Object[]> getTester(Class<?> clazz, List<GetterSetter> gettersAndSetters) {
+        List<String> key = new ArrayList<>();
+        for (GetterSetter getterSetter : gettersAndSetters) {
+            key.add(getterSetter.getName());
+        }
+        return TESTERS.get(clazz).computeIfAbsent(key, names -> createTester(clazz, gettersAndSetters)).orElse(null);
+    }
+
+    private static Optional<ToIntFunction<Object[]>> createTester(Class<?> clazz, List<GetterSetter> gettersAndSetters) {
+        if (!isTestable(clazz, gettersAndSetters)) {
+            LOGGER.debug("Class {} can not be called directly, so testing class through method handles", clazz.getName());
+            return Optional.empty();
+        }
+
+        String className = clazz.getName() + TESTER_CLASS_SUFFIX;
+        try {
+            byte[] bytes = new BeanTesterGenerator().generate(className, clazz, gettersAndSetters);
+            if (bytes == null) {
+                LOGGER.debug("Class {} has too many properties for a tester, so testing class through method handles", clazz.getName());
+                return Optional.empty();
+            }
+
+            @SuppressWarnings("unchecked")
+            ToIntFunction<Object[]> tester = (ToIntFunction<Object[]>) BeanTesterDefiner.define(clazz, className, bytes).getConstructor().newInstance();
+            LOGGER.trace("Generated tester of class {} for {} fields", clazz.getName(), gettersAndSetters.size());
+            return Optional.of(tester);
+        } catch (IOException | ReflectiveOperationException | LinkageError | SecurityException e) {
+            LOGGER.debug("Unable to generate tester of class {}, so testing class through method handles", clazz.getName(), e);
+            return Optional.empty();
+        }
+    }
+
+    private static boolean isTestable(Class<?> clazz, List<GetterSetter> gettersAndSetters) {
+        if (!isPublic(clazz) || clazz.isInterface() || Modifier.isAbstract(clazz.getModifiers())) {
+            return Boolean.FALSE;
+        }
+        try {
+            clazz.getConstructor();
+        } catch (NoSuchMethodException e) {
+            return Boolean.FALSE;
+        }
+        for (GetterSetter getterSetter : gettersAndSetters) {
+            if (!isPublic(getterSetter.getGetter().getReturnType())) {
+                return Boolean.FALSE;
+            }
+        }
+        return Boolean.TRUE;
+    }
+
+    private static boolean isPublic(Class<?> clazz) {
+        Class<?> type = clazz;
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        return type.isPrimitive() || Modifier.isPublic(type.getModifiers());
+    }
+
+    /**
+     * @return The class file of the tester, or null if the properties do not fit in one method.
+     */
+    private byte[] generate(String className, Class<?> clazz, List<GetterSetter> gettersAndSetters) throws IOException {
+        String internalName = className.replace('.', '/');
+        String beanName = getInternalName(clazz);
+        int thisClass = classConstant(internalName);
+        int superClass = classConstant(OBJECT);
+        int testerInterface = classConstant("java/util/function/ToIntFunction");
+        int codeName = utf8Constant("Code");
+
+        byte[] constructorCode = generateConstructor();
+        byte[] testCode = generateTest(beanName, gettersAndSetters);
+        if (testCode.length > MAX_CODE_LENGTH) {
+            return null;
+        }
+
+        int constructorName = utf8Constant(CONSTRUCTOR);
+        int constructorDescriptor = utf8Constant(VOID_DESCRIPTOR);
+        int testName = utf8Constant("applyAsInt");
+        int testDescriptor = utf8Constant("(Ljava/lang/Object;)I");
+        if (constants.size() > MAX_CODE_LENGTH) {
+            return null;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeShort(0);
+        out.writeShort(MAJOR_VERSION);
+        writeConstants(out);
+        out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+        out.writeShort(thisClass);
+        out.writeShort(superClass);
+        out.writeShort(1);
+        out.writeShort(testerInterface);
+        // No fields
+        out.writeShort(0);
+        out.writeShort(2);
+        writeMethod(out, constructorName, constructorDescriptor, codeName, 1, 1, constructorCode);
+        writeMethod(out, testName, testDescriptor, codeName, 4, 3, testCode);
+        // No class attributes
+        out.writeShort(0);
+        return bytes.toByteArray();
+    }
+
+    private byte[] generateConstructor() {
+        ByteArrayOutputStream code = new ByteArrayOutputStream();
+        code.write(ALOAD_0);
+        writeInstruction(code, INVOKESPECIAL, methodConstant(OBJECT, CONSTRUCTOR, VOID_DESCRIPTOR));
+        code.write(RETURN);
+        return code.toByteArray();
+    }
+
+    /**
+     * Code of <b>int applyAsInt(Object values)</b>, where the values are the test values of the properties in order.
+     */
+    private byte[] generateTest(String beanName, List<GetterSetter> gettersAndSetters) {
+        ByteArrayOutputStream code = new ByteArrayOutputStream();
+        code.write(ALOAD_1);
+        writeInstruction(code, CHECKCAST, classConstant("[Ljava/lang/Object;"));
+        code.write(ASTORE_1);
+
+        for (int i = 0; i < gettersAndSetters.size(); i++) {
+            Method getter = gettersAndSetters.get(i).getGetter();
+            Method setter = gettersAndSetters.get(i).getSetter();
+            Class<?> type = getter.getReturnType();
+
+            // Bean bean = new Bean()
+            writeInstruction(code, NEW, classConstant(beanName));
+            code.write(DUP);
+            writeInstruction(code, INVOKESPECIAL, methodConstant(beanName, CONSTRUCTOR, VOID_DESCRIPTOR));
+            code.write(ASTORE_2);
+
+            // bean.setValue((Type) values[i])
+            code.write(ALOAD_2);
+            writeValue(code, i, type);
+            writeInstruction(code, INVOKEVIRTUAL, methodConstant(beanName, setter.getName(), "(" + getDescriptor(type) + ")V"));
+
+            // if (bean.getValue() != values[i]) return i
+            code.write(ALOAD_2);
+            writeInstruction(code, INVOKEVIRTUAL, methodConstant(beanName, getter.getName(), "()" + getDescriptor(type)));
+            writeValue(code, i, type);
+            writeCompare(code, type);
+            int failureLength = writeIndex(new ByteArrayOutputStream(), i) + 1;
+            code.write((3 + failureLength) >> 8);
+            code.write(3 + failureLength);
+            writeIndex(code, i);
+            code.write(IRETURN);
+        }
+
+        // return -1
+        code.write(ICONST_M1);
+        code.write(IRETURN);
+        return code.toByteArray();
+    }
+
+    private void writeValue(ByteArrayOutputStream code, int index, Class<?> type) {
+        code.write(ALOAD_1);
+        writeIndex(code, index);
+        code.write(AALOAD);
+        if (type.isPrimitive()) {
+            String wrapperName = getInternalName(ParameterTypes.wrap(type));
+            writeInstruction(code, CHECKCAST, classConstant(wrapperName));
+            writeInstruction(code, INVOKEVIRTUAL, methodConstant(wrapperName, type.getName() + "Value", "()" + getDescriptor(type)));
+        } else if (type != Object.class) {
+            writeInstruction(code, CHECKCAST, classConstant(getInternalName(type)));
+        }
+    }
+
+    /**
+     * Write the comparison of the two values on the stack, followed by the opcode of a branch taken when the values are equal.
+     */
+    private void writeCompare(ByteArrayOutputStream code, Class<?> type) {
+        int branch;
+        if (type == long.class) {
+            code.write(LCMP);
+            branch = IFEQ;
+        } else if (type == float.class) {
+            // Compared like Float.equals, as the boxed values are
+            writeInstruction(code, INVOKESTATIC, methodConstant("java/lang/Float", "compare", "(FF)I"));
+            branch = IFEQ;
+        } else if (type == double.class) {
+            writeInstruction(code, INVOKESTATIC, methodConstant("java/lang/Double", "compare", "(DD)I"));
+            branch = IFEQ;
+        } else if (type.isPrimitive()) {
+            branch = IF_ICMPEQ;
+        } else {
+            writeInstruction(code, INVOKESTATIC, methodConstant("java/util/Objects", "deepEquals", "(Ljava/lang/Object;Ljava/lang/Object;)Z"));
+            branch = IFNE;
+        }
+        code.write(branch);
+    }
+
+    /**
+     * @return Length of the instruction written.
+     */
+    private static int writeIndex(ByteArrayOutputStream code, int index) {
+        if (index <= 5) {
+            code.write(ICONST_0 + index);
+            return 1;
+        } else if (index <= Byte.MAX_VALUE) {
+            code.write(BIPUSH);
+            code.write(index);
+            return 2;
+        } else {
+            code.write(SIPUSH);
+            code.write(index >> 8);
+            code.write(index);
+            return 3;
+        }
+    }
+
+    private static void writeInstruction(ByteArrayOutputStream code, int opcode, int constantIndex) {
+        code.write(opcode);
+        code.write(constantIndex >> 8);
+        code.write(constantIndex);
+    }
+
+    private static void writeMethod(DataOutputStream out, int name, int descriptor, int codeName, int maxStack, int maxLocals, byte[] code) throws IOException {
+        out.writeShort(ACC_PUBLIC);
+        out.writeShort(name);
+        out.writeShort(descriptor);
+        out.writeShort(1);
+        out.writeShort(codeName);
+        out.writeInt(12 + code.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        // No exception table or code attributes
+        out.writeShort(0);
+        out.writeShort(0);
+    }
+
+    private void writeConstants(DataOutputStream out) throws IOException {
+        out.writeShort(constants.size());
+        for (int i = 1; i < constants.size(); i++) {
+            Object constant = constants.get(i);
+            if (constant instanceof String) {
+                out.writeByte(CONSTANT_UTF8);
+                out.writeUTF((String) constant);
+            } else {
+                int[] values = (int[]) constant;
+                out.writeByte(values[0]);
+                for (int v = 1; v < values.length; v++) {
+                    out.writeShort(values[v]);
+                }
+            }
+        }
+    }
+
+    private int utf8Constant(String value) {
+        return constant(value, value);
+    }
+
+    private int classConstant(String internalName) {
+        int name = utf8Constant(internalName);
+        return constant(new int[]{CONSTANT_CLASS, name}, CONSTANT_CLASS, name);
+    }
+
+    private int methodConstant(String owner, String name, String descriptor) {
+        int ownerClass = classConstant(owner);
+        int methodName = utf8Constant(name);
+        int methodDescriptor = utf8Constant(descriptor);
+        int nameAndType = constant(new int[]{CONSTANT_NAME_AND_TYPE, methodName, methodDescriptor}, CONSTANT_NAME_AND_TYPE, methodName, methodDescriptor);
+        return constant(new int[]{CONSTANT_METHODREF, ownerClass, nameAndType}, CONSTANT_METHODREF, ownerClass, nameAndType);
+    }
+
+    private int constant(Object constant, Object... key) {
+        return constantIndexes.computeIfAbsent(Arrays.asList(key), k -> {
+            constants.add(constant);
+            return constants.size() - 1;
+        });
+    }
+
+    private static String getInternalName(Class<?> clazz) {
+        return clazz.getName().replace('.', '/');
+    }
+
+    private static String getDescriptor(Class<?> type) {
+        if (type.isArray()) {
+            return getInternalName(type);
+        } else if (type.isPrimitive()) {
+            if (type == boolean.class) {
+                return "Z";
+            } else if (type == long.class) {
+                return "J";
+            } else {
+                return String.valueOf(Character.toUpperCase(type.getName().charAt(0)));
+            }
+        }
+        return "L" + getInternalName(type) + ";";
+    }
+}
@@ -1,5 +1,7 @@
 package no.acntech.common.test;
 
+import java.io.File;
+import java.lang.annotation.Annotation;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
@@ -16,17 +18,77 @@ public class ClassCriteria {
      * Used if no other limit explicitly set.
      */
     public static final int DEFAULT_MAX_CLASS_LIMIT = 100;
+    /**
+     * System property giving the shard of the classes to find, from <b>0</b> to the shard count.
+     */
+    public static final String SHARD_INDEX_PROPERTY = "acntech.test.shardIndex";
+    /**
+     * System property giving the number of shards the classes are split between.
+     */
+    public static final String SHARD_COUNT_PROPERTY = "acntech.test.shardCount";
     private int maxClassLimit;
     private boolean recursiveSearch;
+    private boolean parallelSearch;
+    private boolean searchModules;
+    private boolean skipInitialization;
+    private boolean shareScan;
     private boolean excludeInterfaces;
     private boolean excludeEnums;
     private boolean excludeAnnotations;
     private boolean excludeMemberClasses;
     private Set<String> excludePathRegex;
+    private Set<String> excludePathGlobs;
+    private Set<String> includeNames;
+    private Set<String> excludeNames;
+    private Set<Class<?>> requiredSuperTypes;
+    private Set<Class<? extends Annotation>> requiredAnnotations;
+    private Set<Class<? extends Annotation>> forbiddenAnnotations;
+    private int requiredModifiers;
+    private int forbiddenModifiers;
+    private int shardIndex;
+    private int shardCount;
+    private File scanCache;
+    private File classIndex;
+    private ClassLoader classLoader;
+    private ClassFilter classFilter;
 
     private ClassCriteria() {
     }
 
+    /**
+     * Copy of other criteria, with sets of their own and without the class filter of the other criteria, which is bound to them.
+     */
+    private ClassCriteria(ClassCriteria other) {
+        this.maxClassLimit = other.maxClassLimit;
+        this.recursiveSearch = other.recursiveSearch;
+        this.parallelSearch = other.parallelSearch;
+        this.searchModules = other.searchModules;
+        this.skipInitialization = other.skipInitialization;
+        this.shareScan = other.shareScan;
+        this.excludeInterfaces = other.excludeInterfaces;
+        this.excludeEnums = other.excludeEnums;
+        this.excludeAnnotations = other.excludeAnnotations;
+        this.excludeMemberClasses = other.excludeMemberClasses;
+        this.excludePathRegex = copy(other.excludePathRegex);
+        this.excludePathGlobs = copy(other.excludePathGlobs);
+        this.includeNames = copy(other.includeNames);
+        this.excludeNames = copy(other.excludeNames);
+        this.requiredSuperTypes = copy(other.requiredSuperTypes);
+        this.requiredAnnotations = copy(other.requiredAnnotations);
+        this.forbiddenAnnotations = copy(other.forbiddenAnnotations);
+        this.requiredModifiers = other.requiredModifiers;
+        this.forbiddenModifiers = other.forbiddenModifiers;
+        this.shardIndex = other.shardIndex;
+        this.shardCount = other.shardCount;
+        this.scanCache = other.scanCache;
+        this.classIndex = other.classIndex;
+        this.classLoader = other.classLoader;
+    }
+
+    private static <T> Set<T> copy(Set<T> set) {
+        return set == null ? null : new HashSet<>(set);
+    }
+
     public int getMaxClassLimit() {
         return maxClassLimit;
     }
@@ -35,6 +97,22 @@ public class ClassCriteria {
         return recursiveSearch;
     }
 
+    public boolean isParallelSearch() {
+        return parallelSearch;
+    }
+
+    public boolean isSearchModules() {
+        return searchModules;
+    }
+
+    public boolean isSkipInitialization() {
+        return skipInitialization;
+    }
+
+    public boolean isShareScan() {
+        return shareScan;
+    }
+
     public boolean isExcludeInterfaces() {
         return excludeInterfaces;
     }
@@ -58,6 +136,101 @@ public class ClassCriteria {
         return excludePathRegex;
     }
 
+    public Set<String> getExcludePathGlobs() {
+        if (excludePathGlobs == null) {
+            excludePathGlobs = new HashSet<>();
+        }
+        return excludePathGlobs;
+    }
+
+    public Set<String> getIncludeNames() {
+        if (includeNames == null) {
+            includeNames = new HashSet<>();
+        }
+        return includeNames;
+    }
+
+    public Set<String> getExcludeNames() {
+        if (excludeNames == null) {
+            excludeNames = new HashSet<>();
+        }
+        return excludeNames;
+    }
+
+    public Set<Class<?>> getRequiredSuperTypes() {
+        if (requiredSuperTypes == null) {
+            requiredSuperTypes = new HashSet<>();
+        }
+        return requiredSuperTypes;
+    }
+
+    public Set<Class<? extends Annotation>> getRequiredAnnotations() {
+        if (requiredAnnotations == null) {
+            requiredAnnotations = new HashSet<>();
+        }
+        return requiredAnnotations;
+    }
+
+    public Set<Class<? extends Annotation>> getForbiddenAnnotations() {
+        if (forbiddenAnnotations == null) {
+            forbiddenAnnotations = new HashSet<>();
+        }
+        return forbiddenAnnotations;
+    }
+
+    public int getRequiredModifiers() {
+        return requiredModifiers;
+    }
+
+    public int getForbiddenModifiers() {
+        return forbiddenModifiers;
+    }
+
+    public int getShardIndex() {
+        return shardIndex;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public File getScanCache() {
+        return scanCache;
+    }
+
+    public File getClassIndex() {
+        return classIndex;
+    }
+
+    ClassFilter getClassFilter() {
+        if (classFilter == null) {
+            classFilter = new ClassFilter(this);
+        }
+        return classFilter;
+    }
+
+    /**
+     * @param defaultClassLoader The classloader of the location being searched.
+     * @return The classloader to load the found classes with.
+     */
+    ClassLoader getClassLoader(ClassLoader defaultClassLoader) {
+        return classLoader == null ? defaultClassLoader : classLoader;
+    }
+
+    /**
+     * Copy of the criteria loading all found classes with another classloader, without initializing them.
+     *
+     * @param classLoader The classloader to load the found classes with.
+     * @return The copied criteria.
+     */
+    ClassCriteria copyWithClassLoader(ClassLoader classLoader) {
+        ClassCriteria classCriteria = new ClassCriteria(this);
+        classCriteria.classLoader = classLoader;
+        classCriteria.skipInitialization = Boolean.TRUE;
+        classCriteria.shareScan = Boolean.FALSE;
+        return classCriteria;
+    }
+
     /**
      * Creates a class criteria builder with the following preset properties:
      * <ul>
@@ -124,6 +297,52 @@ public class ClassCriteria {
             return this;
         }
 
+        /**
+         * Search directories in parallel using a fork/join pool, where each sub directory is a separate task.
+         * Classes are then returned in no particular order.
+         *
+         * @return the criteria builder.
+         */
+        public Builder doParallelSearch() {
+            classCriteria.parallelSearch = Boolean.TRUE;
+            return this;
+        }
+
+        /**
+         * Search the named modules of the boot layer holding the packages, like modules on the module path or in a custom runtime image,
+         * by listing the modules directly. Such classes are not found by looking up package resources through the classloader.
+         * Only has an effect when running on Java 9 or later.
+         *
+         * @return the criteria builder.
+         */
+        public Builder doSearchModules() {
+            classCriteria.searchModules = Boolean.TRUE;
+            return this;
+        }
+
+        /**
+         * Load the found classes without initializing them, so their static initializers are not run by the search.
+         * A class is then initialized when it is first used, like when a bean is created from it.
+         *
+         * @return the criteria builder.
+         */
+        public Builder doSkipInitialization() {
+            classCriteria.skipInitialization = Boolean.TRUE;
+            return this;
+        }
+
+        /**
+         * Share the result of the search with all other searches in the JVM for the same packages with equal criteria, like test classes
+         * in the same test fork testing overlapping packages. The packages are then only searched once, also when searched from several
+         * threads at the same time. Results are shared per classloader, so classes found are not shared with isolated classloaders.
+         *
+         * @return the criteria builder.
+         */
+        public Builder doShareScan() {
+            classCriteria.shareScan = Boolean.TRUE;
+            return this;
+        }
+
         public Builder doExcludeInterfaces() {
             classCriteria.excludeInterfaces = Boolean.TRUE;
             return this;
@@ -154,11 +373,234 @@ public class ClassCriteria {
             return this;
         }
 
+        /**
+         * Only include classes with names matching any of the globs. A glob containing a package separator is matched
+         * against the fully qualified class name, otherwise against the simple class name.
+         * The wildcard <b>*</b> matches within a package, and <b>**</b> matches across packages.
+         *
+         * @param globs Class name globs, like <b>*Dto</b> or <b>com.example.**.model.*</b>.
+         * @return the criteria builder.
+         */
+        public Builder doIncludeNames(String... globs) {
+            if (classCriteria.includeNames == null) {
+                classCriteria.includeNames = new HashSet<>();
+            }
+            if (globs != null) {
+                classCriteria.includeNames.addAll(Arrays.asList(globs));
+            }
+            return this;
+        }
+
+        /**
+         * Exclude classes with names matching any of the globs.
+         *
+         * @param globs Class name globs.
+         * @return the criteria builder.
+         * @see #doIncludeNames(String...)
+         */
+        public Builder doExcludeNames(String... globs) {
+            if (classCriteria.excludeNames == null) {
+                classCriteria.excludeNames = new HashSet<>();
+            }
+            if (globs != null) {
+                classCriteria.excludeNames.addAll(Arrays.asList(globs));
+            }
+            return this;
+        }
+
+        /**
+         * Only include classes that extend or implement the super type.
+         *
+         * @param superType Required super class or interface.
+         * @return the criteria builder.
+         */
+        public Builder withSuperType(Class<?> superType) {
+            if (superType == null) {
+                throw new IllegalArgumentException("Super type is null");
+            }
+            classCriteria.getRequiredSuperTypes().add(superType);
+            return this;
+        }
+
+        /**
+         * Only include classes annotated with the annotation.
+         *
+         * @param annotation Required annotation.
+         * @return the criteria builder.
+         */
+        public Builder withAnnotation(Class<? extends Annotation> annotation) {
+            if (annotation == null) {
+                throw new IllegalArgumentException("Annotation is null");
+            }
+            classCriteria.getRequiredAnnotations().add(annotation);
+            return this;
+        }
+
+        /**
+         * Exclude classes annotated with the annotation.
+         *
+         * @param annotation Forbidden annotation.
+         * @return the criteria builder.
+         */
+        public Builder withoutAnnotation(Class<? extends Annotation> annotation) {
+            if (annotation == null) {
+                throw new IllegalArgumentException("Annotation is null");
+            }
+            classCriteria.getForbiddenAnnotations().add(annotation);
+            return this;
+        }
+
+        /**
+         * Only include classes having all the modifiers.
+         *
+         * @param modifiers Required modifiers, as defined by <b>java.lang.reflect.Modifier</b>.
+         * @return the criteria builder.
+         */
+        public Builder withModifiers(int modifiers) {
+            classCriteria.requiredModifiers |= modifiers;
+            return this;
+        }
+
+        /**
+         * Exclude classes having any of the modifiers.
+         *
+         * @param modifiers Forbidden modifiers, as defined by <b>java.lang.reflect.Modifier</b>.
+         * @return the criteria builder.
+         */
+        public Builder withoutModifiers(int modifiers) {
+            classCriteria.forbiddenModifiers |= modifiers;
+            return this;
+        }
+
+        /**
+         * Only find the classes of one shard, when splitting the classes between several test forks or build nodes.
+         * Classes are assigned to shards by a hash of their name, so every shard gets a disjoint share of the classes,
+         * and a class stays in the same shard between runs and machines. The shard is decided from the class name alone,
+         * so classes of other shards are never loaded. The max class limit applies to each shard.
+         *
+         * @param shardIndex Shard of the classes to find, from <b>0</b> to the shard count.
+         * @param shardCount Number of shards to split the classes between.
+         * @return the criteria builder.
+         */
+        public Builder withShard(int shardIndex, int shardCount) {
+            if (shardCount < 1) {
+                throw new IllegalArgumentException("Shard count is less than 1");
+            }
+            if (shardIndex < 0 || shardIndex >= shardCount) {
+                throw new IllegalArgumentException("Shard index " + shardIndex + " is not between 0 and shard count " + shardCount);
+            }
+            classCriteria.shardIndex = shardIndex;
+            classCriteria.shardCount = shardCount;
+            return this;
+        }
+
+        /**
+         * Only find the classes of the shard given by the system properties <b>acntech.test.shardIndex</b> and <b>acntech.test.shardCount</b>,
+         * like <b>-Dacntech.test.shardIndex=${surefire.forkNumber}</b> counting from zero. All classes are found if the properties are not set.
+         *
+         * @return the criteria builder.
+         * @see #withShard(int, int)
+         */
+        public Builder doShardFromSystemProperties() {
+            String shardIndex = System.getProperty(SHARD_INDEX_PROPERTY);
+            String shardCount = System.getProperty(SHARD_COUNT_PROPERTY);
+            if (shardIndex == null && shardCount == null) {
+                return this;
+            } else if (shardIndex == null || shardCount == null) {
+                throw new IllegalArgumentException("Both " + SHARD_INDEX_PROPERTY + " and " + SHARD_COUNT_PROPERTY + " must be set to shard classes");
+            }
+
+            try {
+                return withShard(Integer.parseInt(shardIndex.trim()), Integer.parseInt(shardCount.trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Shard index " + shardIndex + " or shard count " + shardCount + " is not a number", e);
+            }
+        }
+
+        /**
+         * Exclude paths matching any of the globs. The globs are matched against the whole absolute path,
+         * using <b>/</b> as separator. Directories matching a glob are not searched at all.
+         *
+         * @param pathGlobs Path globs, like <b>**&#47;generated&#47;**</b>.
+         * @return the criteria builder.
+         */
+        public Builder doExcludePathGlobs(String... pathGlobs) {
+            if (classCriteria.excludePathGlobs == null) {
+                classCriteria.excludePathGlobs = new HashSet<>();
+            }
+            if (pathGlobs != null) {
+                classCriteria.excludePathGlobs.addAll(Arrays.asList(pathGlobs));
+            }
+            return this;
+        }
+
+        /**
+         * Cache the scan of package directories in the file <b>target/acntech-test-tools/scan-cache.bin</b>.
+         *
+         * @return the criteria builder.
+         * @see #withScanCache(File)
+         */
+        public Builder doCacheScan() {
+            return withScanCache(new File(ScanCache.DEFAULT_CACHE_FILE));
+        }
+
+        /**
+         * Cache the scan of package directories in a file, so later test runs only have to check which directories
+         * and class files have changed, instead of listing every directory and reading every class file again.
+         * Directories are then searched sequentially, as a warm search only checks file timestamps.
+         * Jar files are not cached, as their central directory is already an index.
+         *
+         * @param scanCache Cache file, created if it does not exist.
+         * @return the criteria builder.
+         */
+        public Builder withScanCache(File scanCache) {
+            if (scanCache == null) {
+                throw new IllegalArgumentException("Scan cache file is null");
+            }
+            classCriteria.scanCache = scanCache;
+            return this;
+        }
+
+        /**
+         * Answer the search from the class index given by the system property <b>acntech.test.classIndex</b>,
+         * or else from <b>target/acntech-test-tools/class-index.bin</b>, as written by the <b>acntech-test-tools-maven-plugin</b>.
+         *
+         * @return the criteria builder.
+         * @see #withClassIndex(File)
+         */
+        public Builder doUseClassIndex() {
+            return withClassIndex(new File(System.getProperty(ClassIndex.INDEX_FILE_PROPERTY, ClassIndex.DEFAULT_INDEX_FILE)));
+        }
+
+        /**
+         * Answer the search from a class index written by <b>ClassIndex.create</b>, instead of searching the directories it covers.
+         * The index is memory mapped, so all test JVMs share one copy of it. Directories not covered by the index,
+         * and jar files, are searched as usual. The index is not checked against the class files, so it must be written
+         * after the classes are compiled. If no class index is set, the class index given by the system property
+         * <b>acntech.test.classIndex</b> is used, if set.
+         *
+         * @param classIndex Class index file, ignored if it does not exist.
+         * @return the criteria builder.
+         * @see no.acntech.common.test.ClassIndex#create(java.nio.file.Path, java.nio.file.Path...)
+         */
+        public Builder withClassIndex(File classIndex) {
+            if (classIndex == null) {
+                throw new IllegalArgumentException("Class index file is null");
+            }
+            classCriteria.classIndex = classIndex;
+            return this;
+        }
+
         public Builder doNonRecursiveSearch() {
             classCriteria.recursiveSearch = Boolean.FALSE;
             return this;
         }
 
+        public Builder doSequentialSearch() {
+            classCriteria.parallelSearch = Boolean.FALSE;
+            return this;
+        }
+
         public Builder doIncludeInterfaces() {
             classCriteria.excludeInterfaces = Boolean.FALSE;
             return this;
@@ -196,6 +638,7 @@ public class ClassCriteria {
         }
 
         public ClassCriteria build() {
+            classCriteria.classFilter = new ClassFilter(classCriteria);
             return classCriteria;
         }
     }
@@ -0,0 +1,93 @@
+package no.acntech.common.test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Matches class file entries, named by their path below a root with <b>/</b> between the package names, against the packages
+ * to search and the path exclusions of the search criteria. Used for the entries of zip archives and modules, which are
+ * listed as a flat sequence of names instead of as a directory tree. Entries of the same directory are usually grouped,
+ * so the directory of an entry is only matched when it changes.
+ */
+final class ClassEntryMatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClassEntryMatcher.class);
+    private static final char PKG_SEPARATOR = '.';
+    private static final char DIR_SEPARATOR = '/';
+    private static final String CLASS_FILE_SUFFIX = ".class";
+    private static final String META_INF_DIRECTORY = "META-INF/";
+    private static final String MODULE_INFO_FILE_NAME = "module-info.class";
+    private final PackageTrie packages;
+    private final int rootPrefixLength;
+    private final String location;
+    private final ClassFilter classFilter;
+    private final StringBuilder entryLocation;
+    private String directory;
+    private boolean directoryExcluded;
+
+    /**
+     * @param packages      Packages to search.
+     * @param rootPrefix    Prefix of the entry names in front of the root package, or an empty string.
+     * @param location      Location of the root, put in front of the entry paths checked against the path exclusions.
+     * @param classCriteria Package search criteria for classes.
+     */
+    ClassEntryMatcher(PackageTrie packages, String rootPrefix, String location, ClassCriteria classCriteria) {
+        this.packages = packages;
+        this.rootPrefixLength = rootPrefix.length();
+        this.location = location;
+        this.classFilter = classCriteria.getClassFilter();
+        this.entryLocation = new StringBuilder(location);
+    }
+
+    /**
+     * @param entryName Name of the entry, starting with the root prefix.
+     * @return Name of the class in the entry, or null if the entry is not a class file to search.
+     */
+    String match(String entryName) {
+        if (!entryName.endsWith(CLASS_FILE_SUFFIX)) {
+            return null;
+        }
+
+        int directoryEnd = entryName.lastIndexOf(DIR_SEPARATOR);
+        // Multi-release versions of classes and module descriptors are not classes of the root package
+        if (entryName.startsWith(META_INF_DIRECTORY, rootPrefixLength)
+                || entryName.endsWith(MODULE_INFO_FILE_NAME) && entryName.length() - MODULE_INFO_FILE_NAME.length() == directoryEnd + 1) {
+            return null;
+        }
+        if (directory == null || directoryEnd != directory.length() || !entryName.startsWith(directory)) {
+            directory = entryName.substring(0, Math.max(directoryEnd, 0));
+            directoryExcluded = isDirectoryExcluded(entryName, directoryEnd);
+        }
+        if (directoryExcluded) {
+            return null;
+        }
+
+        String entryPath = entryName.substring(rootPrefixLength);
+        entryLocation.setLength(location.length());
+        if (classFilter.isPathExcluded(entryLocation.append(entryPath))) {
+            return null;
+        }
+
+        return entryPath.substring(0, entryPath.length() - CLASS_FILE_SUFFIX.length()).replace(DIR_SEPARATOR, PKG_SEPARATOR);
+    }
+
+    private boolean isDirectoryExcluded(String entryName, int directoryEnd) {
+        int packageEnd = packages.findSearchedPackage(entryName, rootPrefixLength, Math.max(directoryEnd, rootPrefixLength), DIR_SEPARATOR);
+        if (packageEnd < 0) {
+            return Boolean.TRUE;
+        } else if (directoryEnd > packageEnd && entryName.substring(packageEnd, directoryEnd).indexOf(PKG_SEPARATOR) >= 0) {
+            LOGGER.debug("Directory {} contains character {}, so skipping directory", directory, PKG_SEPARATOR);
+            return Boolean.TRUE;
+        }
+
+        // The directory, and all its parent directories below the searched package, are checked against the directory exclusions
+        for (int end = directoryEnd; end > packageEnd; end = entryName.lastIndexOf(DIR_SEPARATOR, end - 1)) {
+            entryLocation.setLength(location.length());
+            entryLocation.append(entryName, rootPrefixLength, end);
+            if (classFilter.isDirectoryExcluded(entryLocation)) {
+                return Boolean.TRUE;
+            }
+        }
+        return Boolean.FALSE;
+    }
+}
@@ -0,0 +1,364 @@
+package no.acntech.common.test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class metadata read directly from the bytes of a class file, without loading the class.
+ * Only the constant pool, the access flags, the class hierarchy and the class attributes are read.
+ * Fields and methods are skipped.
+ *
+ * @see <a href="https://docs.oracle.com/javase/specs/jvms/se8/html/jvms-4.html">The class file format</a>
+ */
+final class ClassFileInfo {
+
+    static final int ACC_INTERFACE = 0x0200;
+    static final int ACC_ABSTRACT = 0x0400;
+    static final int ACC_ANNOTATION = 0x2000;
+    static final int ACC_ENUM = 0x4000;
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final String ENUM_CLASS_NAME = "java.lang.Enum";
+    private static final String INNER_CLASSES_ATTRIBUTE = "InnerClasses";
+    private static final String RUNTIME_VISIBLE_ANNOTATIONS_ATTRIBUTE = "RuntimeVisibleAnnotations";
+    private static final String RUNTIME_INVISIBLE_ANNOTATIONS_ATTRIBUTE = "RuntimeInvisibleAnnotations";
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_FLOAT = 4;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELD_REF = 9;
+    private static final int CONSTANT_METHOD_REF = 10;
+    private static final int CONSTANT_INTERFACE_METHOD_REF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+    private static final int CONSTANT_METHOD_TYPE = 16;
+    private static final int CONSTANT_DYNAMIC = 17;
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+    private static final int CONSTANT_MODULE = 19;
+    private static final int CONSTANT_PACKAGE = 20;
+    private final String className;
+    private final String superClassName;
+    private final String[] interfaceNames;
+    private final String[] annotationNames;
+    private final int accessFlags;
+    private final boolean memberClass;
+
+    ClassFileInfo(String className, String superClassName, String[] interfaceNames, String[] annotationNames, int accessFlags, boolean memberClass) {
+        this.className = className;
+        this.superClassName = superClassName;
+        this.interfaceNames = interfaceNames;
+        this.annotationNames = annotationNames;
+        this.accessFlags = accessFlags;
+        this.memberClass = memberClass;
+    }
+
+    /**
+     * Read class metadata from the bytes of a class file.
+     *
+     * @param buffer Buffer holding the class file.
+     * @return The class metadata.
+     * @throws IOException If the buffer does not hold a valid class file.
+     */
+    static ClassFileInfo read(ByteBuffer buffer) throws IOException {
+        if (buffer == null) {
+            throw new IllegalArgumentException("Buffer is null");
+        }
+
+        ByteBuffer in = buffer.duplicate();
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not a class file, invalid magic number");
+            }
+            in.getShort(); // Minor version
+            in.getShort(); // Major version
+
+            int constantPoolCount = getUnsignedShort(in);
+            int[] constantOffsets = new int[constantPoolCount];
+            for (int i = 1; i < constantPoolCount; i++) {
+                constantOffsets[i] = in.position();
+                int tag = in.get();
+                switch (tag) {
+                    case CONSTANT_UTF8:
+                        int length = getUnsignedShort(in);
+                        in.position(in.position() + length);
+                        break;
+                    case CONSTANT_CLASS:
+                    case CONSTANT_STRING:
+                    case CONSTANT_METHOD_TYPE:
+                    case CONSTANT_MODULE:
+                    case CONSTANT_PACKAGE:
+                        in.position(in.position() + 2);
+                        break;
+                    case CONSTANT_METHOD_HANDLE:
+                        in.position(in.position() + 3);
+                        break;
+                    case CONSTANT_INTEGER:
+                    case CONSTANT_FLOAT:
+                    case CONSTANT_FIELD_REF:
+                    case CONSTANT_METHOD_REF:
+                    case CONSTANT_INTERFACE_METHOD_REF:
+                    case CONSTANT_NAME_AND_TYPE:
+                    case CONSTANT_DYNAMIC:
+                    case CONSTANT_INVOKE_DYNAMIC:
+                        in.position(in.position() + 4);
+                        break;
+                    case CONSTANT_LONG:
+                    case CONSTANT_DOUBLE:
+                        in.position(in.position() + 8);
+                        i++;
+                        break;
+                    default:
+                        throw new IOException("Invalid constant pool tag " + tag);
+                }
+            }
+
+            ConstantPool constantPool = new ConstantPool(in, constantOffsets);
+
+            int accessFlags = getUnsignedShort(in);
+            int thisClass = getUnsignedShort(in);
+            int superClass = getUnsignedShort(in);
+
+            String[] interfaceNames = new String[getUnsignedShort(in)];
+            for (int i = 0; i < interfaceNames.length; i++) {
+                interfaceNames[i] = constantPool.getClassName(getUnsignedShort(in));
+            }
+
+            skipMembers(in); // Fields
+            skipMembers(in); // Methods
+
+            boolean memberClass = Boolean.FALSE;
+            List<String> annotationNames = new ArrayList<>();
+            int attributeCount = getUnsignedShort(in);
+            for (int i = 0; i < attributeCount; i++) {
+                String attributeName = constantPool.getUtf8(getUnsignedShort(in));
+                int attributeLength = in.getInt();
+                int attributeEnd = in.position() + attributeLength;
+
+                if (INNER_CLASSES_ATTRIBUTE.equals(attributeName)) {
+                    int classCount = getUnsignedShort(in);
+                    for (int j = 0; j < classCount; j++) {
+                        int innerClass = getUnsignedShort(in);
+                        int outerClass = getUnsignedShort(in);
+                        getUnsignedShort(in); // Inner name
+                        int innerAccessFlags = getUnsignedShort(in);
+                        if (innerClass == thisClass) {
+                            // Member classes get their modifiers from the inner class entry, as with Class.getModifiers()
+                            memberClass = outerClass != 0;
+                            accessFlags = innerAccessFlags;
+                        }
+                    }
+                } else if (RUNTIME_VISIBLE_ANNOTATIONS_ATTRIBUTE.equals(attributeName) || RUNTIME_INVISIBLE_ANNOTATIONS_ATTRIBUTE.equals(attributeName)) {
+                    int annotationCount = getUnsignedShort(in);
+                    for (int j = 0; j < annotationCount; j++) {
+                        annotationNames.add(readAnnotation(in, constantPool));
+                    }
+                }
+
+                in.position(attributeEnd);
+            }
+
+            return new ClassFileInfo(constantPool.getClassName(thisClass), superClass == 0 ? null : constantPool.getClassName(superClass),
+                    interfaceNames, annotationNames.toArray(new String[annotationNames.size()]), accessFlags, memberClass);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Not a class file, unexpected end of class file", e);
+        }
+    }
+
+    /**
+     * Read class metadata previously written by {@link #writeTo(DataOutput)}.
+     *
+     * @param in Input to read from.
+     * @return The class metadata.
+     * @throws IOException If reading fails.
+     */
+    static ClassFileInfo readFrom(DataInput in) throws IOException {
+        String className = in.readUTF();
+        String superClassName = in.readBoolean() ? in.readUTF() : null;
+        String[] interfaceNames = readStrings(in);
+        String[] annotationNames = readStrings(in);
+        int accessFlags = in.readUnsignedShort();
+        boolean memberClass = in.readBoolean();
+        return new ClassFileInfo(className, superClassName, interfaceNames, annotationNames, accessFlags, memberClass);
+    }
+
+    /**
+     * Write the class metadata, so it can be read back without reading the class file again.
+     *
+     * @param out Output to write to.
+     * @throws IOException If writing fails.
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeUTF(className);
+        out.writeBoolean(superClassName != null);
+        if (superClassName != null) {
+            out.writeUTF(superClassName);
+        }
+        writeStrings(out, interfaceNames);
+        writeStrings(out, annotationNames);
+        out.writeShort(accessFlags);
+        out.writeBoolean(memberClass);
+    }
+
+    String getClassName() {
+        return className;
+    }
+
+    String getSuperClassName() {
+        return superClassName;
+    }
+
+    String[] getInterfaceNames() {
+        return interfaceNames;
+    }
+
+    /**
+     * @return Names of the annotations declared directly on the class, both runtime visible and invisible.
+     */
+    String[] getAnnotationNames() {
+        return annotationNames;
+    }
+
+    int getAccessFlags() {
+        return accessFlags;
+    }
+
+    boolean isInterface() {
+        return (accessFlags & ACC_INTERFACE) != 0;
+    }
+
+    boolean isAnnotation() {
+        return (accessFlags & ACC_ANNOTATION) != 0;
+    }
+
+    /**
+     * Same as {@link Class#isEnum()}, the bodies of enum constants are flagged as enums but are not enums themselves.
+     *
+     * @return If the class is an enum.
+     */
+    boolean isEnum() {
+        return (accessFlags & ACC_ENUM) != 0 && ENUM_CLASS_NAME.equals(superClassName);
+    }
+
+    boolean isMemberClass() {
+        return memberClass;
+    }
+
+    private static String readAnnotation(ByteBuffer in, ConstantPool constantPool) throws IOException {
+        String descriptor = constantPool.getUtf8(getUnsignedShort(in));
+        int elementValuePairCount = getUnsignedShort(in);
+        for (int i = 0; i < elementValuePairCount; i++) {
+            getUnsignedShort(in); // Element name
+            skipElementValue(in, constantPool);
+        }
+        // Annotation types are given as field descriptors, like Lcom/example/MyAnnotation;
+        return descriptor.substring(1, descriptor.length() - 1).replace('/', '.');
+    }
+
+    private static void skipElementValue(ByteBuffer in, ConstantPool constantPool) throws IOException {
+        int tag = in.get();
+        switch (tag) {
+            case 'e':
+                in.position(in.position() + 4);
+                break;
+            case '@':
+                readAnnotation(in, constantPool);
+                break;
+            case '[':
+                int valueCount = getUnsignedShort(in);
+                for (int i = 0; i < valueCount; i++) {
+                    skipElementValue(in, constantPool);
+                }
+                break;
+            default:
+                in.position(in.position() + 2);
+                break;
+        }
+    }
+
+    private static void skipMembers(ByteBuffer in) {
+        int memberCount = getUnsignedShort(in);
+        for (int i = 0; i < memberCount; i++) {
+            in.position(in.position() + 6); // Access flags, name and descriptor
+            int attributeCount = getUnsignedShort(in);
+            for (int j = 0; j < attributeCount; j++) {
+                in.position(in.position() + 2);
+                int attributeLength = in.getInt();
+                in.position(in.position() + attributeLength);
+            }
+        }
+    }
+
+    private static String[] readStrings(DataInput in) throws IOException {
+        String[] strings = new String[in.readUnsignedShort()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readUTF();
+        }
+        return strings;
+    }
+
+    private static void writeStrings(DataOutput out, String[] strings) throws IOException {
+        out.writeShort(strings.length);
+        for (String string : strings) {
+            out.writeUTF(string);
+        }
+    }
+
+    private static int getUnsignedShort(ByteBuffer in) {
+        return in.getShort() & 0xFFFF;
+    }
+
+    private static final class ConstantPool {
+
+        private final ByteBuffer buffer;
+        private final int[] offsets;
+
+        private ConstantPool(ByteBuffer buffer, int[] offsets) {
+            this.buffer = buffer;
+            this.offsets = offsets;
+        }
+
+        private String getClassName(int index) throws IOException {
+            int offset = getOffset(index, CONSTANT_CLASS);
+            return getUtf8(buffer.getShort(offset + 1) & 0xFFFF).replace('/', '.');
+        }
+
+        private String getUtf8(int index) throws IOException {
+            int offset = getOffset(index, CONSTANT_UTF8);
+            int length = buffer.getShort(offset + 1) & 0xFFFF;
+            return decodeModifiedUtf8(offset + 3, length);
+        }
+
+        private int getOffset(int index, int tag) throws IOException {
+            if (index <= 0 || index >= offsets.length || buffer.get(offsets[index]) != tag) {
+                throw new IOException("Invalid constant pool reference " + index);
+            }
+            return offsets[index];
+        }
+
+        private String decodeModifiedUtf8(int offset, int length) throws IOException {
+            char[] chars = new char[length];
+            int count = 0;
+            int end = offset + length;
+            while (offset < end) {
+                int b = buffer.get(offset++) & 0xFF;
+                if (b < 0x80) {
+                    chars[count++] = (char) b;
+                } else if ((b & 0xE0) == 0xC0 && offset < end) {
+                    chars[count++] = (char) (((b & 0x1F) << 6) | (buffer.get(offset++) & 0x3F));
+                } else if ((b & 0xF0) == 0xE0 && offset + 1 < end) {
+                    chars[count++] = (char) (((b & 0x0F) << 12) | ((buffer.get(offset++) & 0x3F) << 6) | (buffer.get(offset++) & 0x3F));
+                } else {
+                    throw new IOException("Invalid modified UTF-8 in constant pool");
+                }
+            }
+            return new String(chars, 0, count);
+        }
+    }
+}
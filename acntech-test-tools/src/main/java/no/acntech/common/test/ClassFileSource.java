@@ -0,0 +1,21 @@
+package no.acntech.common.test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Source of the bytes of a class file, which is only read if the class file needs to be inspected.
+ */
+@FunctionalInterface
+interface ClassFileSource {
+
+    ByteBuffer read() throws IOException;
+
+    /**
+     * @return Metadata read from the class file.
+     * @throws IOException If reading the class file fails, or it is not a valid class file.
+     */
+    default ClassFileInfo readInfo() throws IOException {
+        return ClassFileInfo.read(read());
+    }
+}
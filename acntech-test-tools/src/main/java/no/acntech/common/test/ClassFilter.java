@@ -0,0 +1,255 @@
+package no.acntech.common.test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.Inherited;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The predicates of a <b>ClassCriteria</b> compiled into a pipeline of stages ordered by cost.
+ * Paths are checked against the path exclusions while searching, before anything else.
+ * Classes are then checked in these stages:
+ * <ol>
+ * <li>The class name, checked before anything is read.</li>
+ * <li>The class file, checked before the class is loaded.</li>
+ * <li>The loaded class, only for predicates that can not be decided from the class file alone.</li>
+ * </ol>
+ * Every stage rejects as many classes as possible, so the more expensive stages only see likely matches.
+ */
+final class ClassFilter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClassFilter.class);
+    private static final char PKG_SEPARATOR = '.';
+    private final ClassCriteria classCriteria;
+    private final List<NamePattern> includeNamePatterns = new ArrayList<>();
+    private final List<NamePattern> excludeNamePatterns = new ArrayList<>();
+    private final PathExclusions pathExclusions;
+    private final boolean excludeKinds;
+    private final boolean classFileRequired;
+    private final boolean classRequired;
+
+    ClassFilter(ClassCriteria classCriteria) {
+        if (classCriteria == null) {
+            throw new IllegalArgumentException("Class criteria is null");
+        }
+
+        this.classCriteria = classCriteria;
+        this.pathExclusions = new PathExclusions(classCriteria.getExcludePathRegex(), classCriteria.getExcludePathGlobs());
+
+        for (String glob : classCriteria.getIncludeNames()) {
+            includeNamePatterns.add(new NamePattern(glob));
+        }
+        for (String glob : classCriteria.getExcludeNames()) {
+            excludeNamePatterns.add(new NamePattern(glob));
+        }
+
+        this.excludeKinds = classCriteria.isExcludeInterfaces() || classCriteria.isExcludeEnums()
+                || classCriteria.isExcludeAnnotations() || classCriteria.isExcludeMemberClasses();
+        this.classFileRequired = excludeKinds || classCriteria.getRequiredModifiers() != 0 || classCriteria.getForbiddenModifiers() != 0
+                || !classCriteria.getRequiredSuperTypes().isEmpty() || !classCriteria.getRequiredAnnotations().isEmpty()
+                || !classCriteria.getForbiddenAnnotations().isEmpty();
+        this.classRequired = !classCriteria.getRequiredSuperTypes().isEmpty()
+                || classCriteria.getRequiredAnnotations().stream().anyMatch(ClassFilter::isInherited)
+                || classCriteria.getForbiddenAnnotations().stream().anyMatch(ClassFilter::isInherited);
+    }
+
+    /**
+     * @param path Absolute path of a file.
+     * @return If the file is excluded by the path exclusions.
+     */
+    boolean isPathExcluded(CharSequence path) {
+        if (pathExclusions.isExcluded(path)) {
+            LOGGER.trace("Search criteria specifies to exclude path {}, so skipping path", path);
+            return Boolean.TRUE;
+        }
+        return Boolean.FALSE;
+    }
+
+    /**
+     * @param path Absolute path of a directory.
+     * @return If the directory, and everything in it, is excluded by the path exclusions.
+     */
+    boolean isDirectoryExcluded(CharSequence path) {
+        if (pathExclusions.isDirectoryExcluded(path)) {
+            LOGGER.trace("Search criteria specifies to exclude path {}, so skipping directory", path);
+            return Boolean.TRUE;
+        }
+        return Boolean.FALSE;
+    }
+
+    /**
+     * First stage, check the name of the class.
+     *
+     * @param className Fully qualified name of the class.
+     * @return If the class name is accepted.
+     */
+    boolean acceptName(String className) {
+        if (classCriteria.getShardCount() > 1 && getShard(className, classCriteria.getShardCount()) != classCriteria.getShardIndex()) {
+            LOGGER.trace("Class search criteria specifies shard {} of {}, so skipping class {}", classCriteria.getShardIndex(), classCriteria.getShardCount(), className);
+            return Boolean.FALSE;
+        }
+        if (!includeNamePatterns.isEmpty() && includeNamePatterns.stream().noneMatch(pattern -> pattern.matches(className))) {
+            LOGGER.trace("Class search criteria specifies to include other class names, so skipping class {}", className);
+            return Boolean.FALSE;
+        }
+        for (NamePattern pattern : excludeNamePatterns) {
+            if (pattern.matches(className)) {
+                LOGGER.trace("Class search criteria specifies to exclude class names matching {}, so skipping class {}", pattern.glob, className);
+                return Boolean.FALSE;
+            }
+        }
+        return Boolean.TRUE;
+    }
+
+    /**
+     * The hash code of a string is defined by the language specification, so the shard of a class is the same on every JVM.
+     * The bits of the hash code are mixed first, as names differing in the last characters only differ in the low bits.
+     *
+     * @param className  Fully qualified name of the class.
+     * @param shardCount Number of shards.
+     * @return Shard of the class, from 0 to the shard count.
+     */
+    static int getShard(String className, int shardCount) {
+        int hash = className.hashCode();
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, shardCount);
+    }
+
+    /**
+     * @return If the second stage needs the class file.
+     */
+    boolean isClassFileRequired() {
+        return classFileRequired;
+    }
+
+    /**
+     * Second stage, check the class file of the class. Rejects the class only if a predicate can be decided from the class file.
+     *
+     * @param classFileInfo Metadata from the class file.
+     * @return If the class file is accepted.
+     */
+    boolean acceptClassFile(ClassFileInfo classFileInfo) {
+        String className = classFileInfo.getClassName();
+
+        if (excludeKinds) {
+            if (classFileInfo.isInterface() && classCriteria.isExcludeInterfaces()) {
+                LOGGER.trace("Class search criteria specifies to exclude interfaces, so skipping class {}", className);
+                return Boolean.FALSE;
+            } else if (classFileInfo.isEnum() && classCriteria.isExcludeEnums()) {
+                LOGGER.trace("Class search criteria specifies to exclude enums, so skipping class {}", className);
+                return Boolean.FALSE;
+            } else if (classFileInfo.isAnnotation() && classCriteria.isExcludeAnnotations()) {
+                LOGGER.trace("Class search criteria specifies to exclude annotations, so skipping class {}", className);
+                return Boolean.FALSE;
+            } else if (classFileInfo.isMemberClass() && classCriteria.isExcludeMemberClasses()) {
+                LOGGER.trace("Class search criteria specifies to exclude member classes, so skipping class {}", className);
+                return Boolean.FALSE;
+            }
+        }
+
+        int accessFlags = classFileInfo.getAccessFlags();
+        if ((accessFlags & classCriteria.getRequiredModifiers()) != classCriteria.getRequiredModifiers()) {
+            LOGGER.trace("Class search criteria specifies required modifiers, so skipping class {}", className);
+            return Boolean.FALSE;
+        }
+        if ((accessFlags & classCriteria.getForbiddenModifiers()) != 0) {
+            LOGGER.trace("Class search criteria specifies forbidden modifiers, so skipping class {}", className);
+            return Boolean.FALSE;
+        }
+
+        List<String> annotationNames = Arrays.asList(classFileInfo.getAnnotationNames());
+        for (Class<? extends Annotation> annotation : classCriteria.getRequiredAnnotations()) {
+            // Inherited annotations may be declared on a super class, so those are left for the loaded class
+            if (!annotationNames.contains(annotation.getName()) && !isInherited(annotation)) {
+                LOGGER.trace("Class search criteria specifies required annotation {}, so skipping class {}", annotation.getName(), className);
+                return Boolean.FALSE;
+            }
+        }
+        for (Class<? extends Annotation> annotation : classCriteria.getForbiddenAnnotations()) {
+            if (annotationNames.contains(annotation.getName())) {
+                LOGGER.trace("Class search criteria specifies forbidden annotation {}, so skipping class {}", annotation.getName(), className);
+                return Boolean.FALSE;
+            }
+        }
+
+        for (Class<?> superType : classCriteria.getRequiredSuperTypes()) {
+            // Only classes extending Object directly and without interfaces can be rejected without knowing the whole hierarchy
+            if (Object.class.getName().equals(classFileInfo.getSuperClassName()) && classFileInfo.getInterfaceNames().length == 0
+                    && superType != Object.class && !superType.getName().equals(className)) {
+                LOGGER.trace("Class search criteria specifies required super type {}, so skipping class {}", superType.getName(), className);
+                return Boolean.FALSE;
+            }
+        }
+
+        return Boolean.TRUE;
+    }
+
+    /**
+     * @return If the third stage needs the loaded class.
+     */
+    boolean isClassRequired() {
+        return classRequired;
+    }
+
+    /**
+     * Third stage, check the loaded class for predicates that depend on the whole class hierarchy.
+     *
+     * @param clazz The loaded class.
+     * @return If the class is accepted.
+     */
+    boolean acceptClass(Class<?> clazz) {
+        for (Class<?> superType : classCriteria.getRequiredSuperTypes()) {
+            if (!superType.isAssignableFrom(clazz)) {
+                LOGGER.trace("Class search criteria specifies required super type {}, so skipping class {}", superType.getName(), clazz.getName());
+                return Boolean.FALSE;
+            }
+        }
+        for (Class<? extends Annotation> annotation : classCriteria.getRequiredAnnotations()) {
+            if (isInherited(annotation) && !clazz.isAnnotationPresent(annotation)) {
+                LOGGER.trace("Class search criteria specifies required annotation {}, so skipping class {}", annotation.getName(), clazz.getName());
+                return Boolean.FALSE;
+            }
+        }
+        for (Class<? extends Annotation> annotation : classCriteria.getForbiddenAnnotations()) {
+            if (isInherited(annotation) && clazz.isAnnotationPresent(annotation)) {
+                LOGGER.trace("Class search criteria specifies forbidden annotation {}, so skipping class {}", annotation.getName(), clazz.getName());
+                return Boolean.FALSE;
+            }
+        }
+        return Boolean.TRUE;
+    }
+
+    private static boolean isInherited(Class<? extends Annotation> annotation) {
+        return annotation.isAnnotationPresent(Inherited.class);
+    }
+
+    /**
+     * Globs containing a package separator are matched against the fully qualified class name, others against the simple name.
+     */
+    private static final class NamePattern {
+
+        private final String glob;
+        private final Pattern pattern;
+        private final boolean qualified;
+
+        private NamePattern(String glob) {
+            this.glob = glob;
+            this.pattern = GlobPattern.compile(glob, PKG_SEPARATOR);
+            this.qualified = glob.indexOf(PKG_SEPARATOR) >= 0;
+        }
+
+        private boolean matches(String className) {
+            String name = qualified ? className : className.substring(className.lastIndexOf(PKG_SEPARATOR) + 1);
+            return pattern.matcher(name).matches();
+        }
+    }
+}
@@ -0,0 +1,735 @@
+package no.acntech.common.test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Read only binary index of the classes in one or more class directories, written once by the build and then
+ * memory mapped by every test JVM. Queries read the mapped bytes directly, so opening the index does not deserialize anything,
+ * and all forked test JVMs share the same copy of the index in the page cache.
+ * <p>
+ * All names are interned in a string table sorted by their UTF-8 bytes, and referenced by their position in the table,
+ * so comparing string references is the same as comparing the strings. Class records have a fixed size and are sorted by package,
+ * so all classes of a package, and all classes of its child packages, are found by a binary search followed by a sequential read.
+ * Relations from the super classes, interfaces and annotations back to the classes declaring them are sorted by the referenced name,
+ * so the classes extending, implementing or annotated with a type are found the same way, without reading any other class.
+ * </p>
+ * <pre>
+ * header      magic, version, root count, root table, string count, string table, class count, class table, reference table,
+ *             relation count, relation table
+ * roots       string reference of the absolute path of every indexed class directory
+ * strings     offset of every string, followed by the strings as an unsigned short length and UTF-8 bytes
+ * classes     name, package, root, path, super class, flags, interface start and count, annotation start and count
+ * references  string references of the interfaces and annotations of the classes
+ * relations   string reference of a super class, interface or annotation, kind of relation, and handle of the declaring class
+ * </pre>
+ */
+public final class ClassIndex {
+
+    /**
+     * System property with the path of the class index file, used by searches when no class index is set in the search criteria.
+     */
+    public static final String INDEX_FILE_PROPERTY = "acntech.test.classIndex";
+    /**
+     * Default location of the class index file, relative to the working directory of the test run.
+     */
+    public static final String DEFAULT_INDEX_FILE = "target/acntech-test-tools/class-index.bin";
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClassIndex.class);
+    private static final int MAGIC = 0x41544349;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 44;
+    private static final int CLASS_RECORD_SIZE = 40;
+    private static final int RELATION_RECORD_SIZE = 12;
+    private static final int NAME = 0;
+    private static final int PACKAGE = 4;
+    private static final int ROOT = 8;
+    private static final int PATH = 12;
+    private static final int SUPER_CLASS = 16;
+    private static final int FLAGS = 20;
+    private static final int INTERFACES = 24;
+    private static final int INTERFACE_COUNT = 28;
+    private static final int ANNOTATIONS = 32;
+    private static final int ANNOTATION_COUNT = 36;
+    private static final int SUPER_CLASS_RELATION = 0;
+    private static final int INTERFACE_RELATION = 1;
+    private static final int ANNOTATION_RELATION = 2;
+    private static final int MEMBER_CLASS_FLAG = 0x10000;
+    private static final int ACCESS_FLAGS_MASK = 0xFFFF;
+    private static final int MAX_STRING_LENGTH = 0xFFFF;
+    private static final char PKG_SEPARATOR = '.';
+    private static final String CLASS_FILE_SUFFIX = ".class";
+    static final int NONE = -1;
+    private final ByteBuffer buffer;
+    private final int rootCount;
+    private final int rootTable;
+    private final int stringCount;
+    private final int stringTable;
+    private final int classCount;
+    private final int classTable;
+    private final int referenceTable;
+    private final int relationCount;
+    private final int relationTable;
+
+    private ClassIndex(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a class index, invalid magic number");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported class index version " + buffer.getInt(4));
+        }
+
+        this.rootCount = buffer.getInt(8);
+        this.rootTable = buffer.getInt(12);
+        this.stringCount = buffer.getInt(16);
+        this.stringTable = buffer.getInt(20);
+        this.classCount = buffer.getInt(24);
+        this.classTable = buffer.getInt(28);
+        this.referenceTable = buffer.getInt(32);
+        this.relationCount = buffer.getInt(36);
+        this.relationTable = buffer.getInt(40);
+
+        if (rootTable + 4L * rootCount > buffer.limit() || stringTable + 4L * stringCount > buffer.limit()
+                || classTable + (long) CLASS_RECORD_SIZE * classCount > buffer.limit() || referenceTable > buffer.limit()
+                || relationTable + (long) RELATION_RECORD_SIZE * relationCount > buffer.limit()) {
+            throw new IOException("Not a class index, tables exceed the size of the index");
+        }
+    }
+
+    /**
+     * Memory map a class index file.
+     *
+     * @param file Class index file.
+     * @return The class index.
+     * @throws IOException If reading the file fails or it is not a valid class index.
+     */
+    public static ClassIndex open(Path file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("Class index file is null");
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Class index " + file + " is too large to be mapped");
+            }
+            ClassIndex classIndex = new ClassIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            LOGGER.debug("Opened class index {} with {} classes", file, classIndex.classCount);
+            return classIndex;
+        }
+    }
+
+    /**
+     * Check if a class index file was written with the format of this version of the class index, without mapping it.
+     *
+     * @param file Class index file.
+     * @return If the file is a class index that can be opened.
+     * @throws IOException If reading the file fails.
+     */
+    public static boolean isCurrentVersion(Path file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("Class index file is null");
+        }
+
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            return in.readInt() == MAGIC && in.readInt() == VERSION;
+        } catch (EOFException e) {
+            return Boolean.FALSE;
+        }
+    }
+
+    /**
+     * Index all classes in the class directories, and write the index to a file. The file is replaced atomically,
+     * so test JVMs never map a partially written index.
+     *
+     * @param file             Class index file, created if it does not exist.
+     * @param classDirectories Class directories to index, like <b>target/classes</b> and <b>target/test-classes</b>.
+     * @throws IOException If reading the class directories or writing the index fails.
+     */
+    public static void create(Path file, Path... classDirectories) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("Class index file is null");
+        }
+
+        byte[] bytes = write(classDirectories);
+
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporaryFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporaryFile, bytes);
+            try {
+                Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+
+        ClassIndex classIndex = new ClassIndex(ByteBuffer.wrap(bytes));
+        LOGGER.info("Wrote class index {} with {} classes from {} class directories", file, classIndex.classCount, classIndex.rootCount);
+    }
+
+    /**
+     * Index all classes in the class directories, keeping the index in memory.
+     *
+     * @param classDirectories Class directories to index.
+     * @return The class index.
+     * @throws IOException If reading the class directories fails.
+     */
+    static ClassIndex build(Path... classDirectories) throws IOException {
+        ClassIndex classIndex = new ClassIndex(ByteBuffer.wrap(write(classDirectories)));
+        LOGGER.debug("Built class index with {} classes from {} class directories", classIndex.classCount, classIndex.rootCount);
+        return classIndex;
+    }
+
+    private static byte[] write(Path... classDirectories) throws IOException {
+        if (classDirectories == null) {
+            throw new IllegalArgumentException("Class directories is null");
+        }
+
+        List<IndexedClass> classes = new ArrayList<>();
+        List<String> roots = new ArrayList<>();
+        for (Path classDirectory : classDirectories) {
+            Path root = classDirectory.toAbsolutePath().normalize();
+            if (!Files.isDirectory(root)) {
+                LOGGER.debug("Class directory {} does not exist, so skipping directory", root);
+                continue;
+            }
+            roots.add(root.toString());
+            indexClasses(root, roots.size() - 1, classes);
+        }
+
+        TreeSet<String> sortedStrings = new TreeSet<>(Comparator.comparing(ClassIndex::toBytes, ClassIndex::compareBytes));
+        sortedStrings.addAll(roots);
+        for (IndexedClass indexedClass : classes) {
+            indexedClass.addStrings(sortedStrings);
+        }
+        Map<String, Integer> stringReferences = new HashMap<>();
+        for (String string : sortedStrings) {
+            stringReferences.put(string, stringReferences.size());
+        }
+
+        classes.sort(Comparator.<IndexedClass>comparingInt(indexedClass -> stringReferences.get(indexedClass.packageName))
+                .thenComparingInt(indexedClass -> stringReferences.get(indexedClass.className))
+                .thenComparingInt(indexedClass -> indexedClass.root));
+
+        int rootTable = HEADER_SIZE;
+        int stringTable = rootTable + 4 * roots.size();
+        int stringData = stringTable + 4 * sortedStrings.size();
+        int stringDataSize = 0;
+        for (String string : sortedStrings) {
+            stringDataSize += 2 + toBytes(string).length;
+        }
+        int classTable = stringData + stringDataSize;
+        int referenceTable = classTable + CLASS_RECORD_SIZE * classes.size();
+        List<int[]> relations = new ArrayList<>();
+        int referenceCount = 0;
+        for (int clazz = 0; clazz < classes.size(); clazz++) {
+            ClassFileInfo classFileInfo = classes.get(clazz).classFileInfo;
+            if (classFileInfo.getSuperClassName() != null) {
+                relations.add(new int[]{stringReferences.get(classFileInfo.getSuperClassName()), SUPER_CLASS_RELATION, clazz});
+            }
+            for (String interfaceName : classFileInfo.getInterfaceNames()) {
+                relations.add(new int[]{stringReferences.get(interfaceName), INTERFACE_RELATION, clazz});
+            }
+            for (String annotationName : classFileInfo.getAnnotationNames()) {
+                relations.add(new int[]{stringReferences.get(annotationName), ANNOTATION_RELATION, clazz});
+            }
+            referenceCount += classFileInfo.getInterfaceNames().length + classFileInfo.getAnnotationNames().length;
+        }
+        relations.sort(Comparator.<int[]>comparingInt(relation -> relation[0]).thenComparingInt(relation -> relation[1]).thenComparingInt(relation -> relation[2]));
+        int relationTable = referenceTable + 4 * referenceCount;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(roots.size());
+            out.writeInt(rootTable);
+            out.writeInt(sortedStrings.size());
+            out.writeInt(stringTable);
+            out.writeInt(classes.size());
+            out.writeInt(classTable);
+            out.writeInt(referenceTable);
+            out.writeInt(relations.size());
+            out.writeInt(relationTable);
+
+            for (String root : roots) {
+                out.writeInt(stringReferences.get(root));
+            }
+
+            int stringOffset = stringData;
+            for (String string : sortedStrings) {
+                out.writeInt(stringOffset);
+                stringOffset += 2 + toBytes(string).length;
+            }
+            for (String string : sortedStrings) {
+                byte[] stringBytes = toBytes(string);
+                if (stringBytes.length > MAX_STRING_LENGTH) {
+                    throw new IOException("String is too long to be indexed: " + string);
+                }
+                out.writeShort(stringBytes.length);
+                out.write(stringBytes);
+            }
+
+            int reference = 0;
+            for (IndexedClass indexedClass : classes) {
+                ClassFileInfo classFileInfo = indexedClass.classFileInfo;
+                out.writeInt(stringReferences.get(indexedClass.className));
+                out.writeInt(stringReferences.get(indexedClass.packageName));
+                out.writeInt(indexedClass.root);
+                out.writeInt(stringReferences.get(indexedClass.path));
+                out.writeInt(classFileInfo.getSuperClassName() == null ? NONE : stringReferences.get(classFileInfo.getSuperClassName()));
+                out.writeInt(classFileInfo.getAccessFlags() | (classFileInfo.isMemberClass() ? MEMBER_CLASS_FLAG : 0));
+                out.writeInt(reference);
+                out.writeInt(classFileInfo.getInterfaceNames().length);
+                reference += classFileInfo.getInterfaceNames().length;
+                out.writeInt(reference);
+                out.writeInt(classFileInfo.getAnnotationNames().length);
+                reference += classFileInfo.getAnnotationNames().length;
+            }
+
+            for (IndexedClass indexedClass : classes) {
+                for (String interfaceName : indexedClass.classFileInfo.getInterfaceNames()) {
+                    out.writeInt(stringReferences.get(interfaceName));
+                }
+                for (String annotationName : indexedClass.classFileInfo.getAnnotationNames()) {
+                    out.writeInt(stringReferences.get(annotationName));
+                }
+            }
+
+            for (int[] relation : relations) {
+                out.writeInt(relation[0]);
+                out.writeInt(relation[1]);
+                out.writeInt(relation[2]);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+
+    int getClassCount() {
+        return classCount;
+    }
+
+    /**
+     * @param directory A directory.
+     * @return Reference of the indexed class directory containing the directory, or <b>NONE</b> if it is not indexed.
+     */
+    int findRoot(Path directory) {
+        String path = directory.toAbsolutePath().normalize().toString();
+        int found = NONE;
+        int foundLength = -1;
+        for (int root = 0; root < rootCount; root++) {
+            String rootPath = getString(buffer.getInt(rootTable + 4 * root));
+            if (rootPath.length() > foundLength && (path.equals(rootPath)
+                    || path.startsWith(rootPath) && path.charAt(rootPath.length()) == File.separatorChar)) {
+                found = root;
+                foundLength = rootPath.length();
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @param packageName Name of a package.
+     * @return Handle of the first class of the package or of any package sorted after it.
+     */
+    int findFirstClass(String packageName) {
+        int packageReference = findFirstString(toBytes(packageName));
+        int low = 0;
+        int high = classCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getClassInt(middle, PACKAGE) < packageReference) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Classes of a package and all its child packages follow each other, and are followed by classes of packages
+     * not starting with the package name, so a search stops at the first class where this is false.
+     *
+     * @param clazz       Handle of a class.
+     * @param packageName UTF-8 bytes of a package name.
+     * @return If the package name of the class starts with the package name.
+     */
+    boolean isPackagePrefix(int clazz, byte[] packageName) {
+        int offset = getStringOffset(getClassInt(clazz, PACKAGE));
+        int length = buffer.getShort(offset) & 0xFFFF;
+        if (length < packageName.length) {
+            return Boolean.FALSE;
+        }
+        for (int i = 0; i < packageName.length; i++) {
+            if (buffer.get(offset + 2 + i) != packageName[i]) {
+                return Boolean.FALSE;
+            }
+        }
+        return Boolean.TRUE;
+    }
+
+    /**
+     * @param clazz       Handle of a class with a package name starting with the package name.
+     * @param packageName UTF-8 bytes of a package name.
+     * @return If the class is in the package itself, and not in a child package.
+     */
+    boolean isInPackage(int clazz, byte[] packageName) {
+        return (buffer.getShort(getStringOffset(getClassInt(clazz, PACKAGE))) & 0xFFFF) == packageName.length;
+    }
+
+    /**
+     * @param clazz       Handle of a class with a package name starting with the package name.
+     * @param packageName UTF-8 bytes of a package name.
+     * @return If the class is in a child package of the package, and not just in a package with a similar name.
+     */
+    boolean isInChildPackage(int clazz, byte[] packageName) {
+        int offset = getStringOffset(getClassInt(clazz, PACKAGE));
+        int length = buffer.getShort(offset) & 0xFFFF;
+        return length > packageName.length && buffer.get(offset + 2 + packageName.length) == PKG_SEPARATOR;
+    }
+
+    int getRoot(int clazz) {
+        return getClassInt(clazz, ROOT);
+    }
+
+    String getClassName(int clazz) {
+        return getString(getClassInt(clazz, NAME));
+    }
+
+    /**
+     * @param clazz Handle of a class.
+     * @return Absolute path of the class file, when the index was written.
+     */
+    String getPath(int clazz) {
+        return getString(getClassInt(clazz, PATH));
+    }
+
+    /**
+     * @param clazz Handle of a class.
+     * @return The class file metadata of the class, as it was when the index was written.
+     */
+    ClassFileInfo getClassFileInfo(int clazz) {
+        int superClass = getClassInt(clazz, SUPER_CLASS);
+        int flags = getClassInt(clazz, FLAGS);
+        return new ClassFileInfo(getClassName(clazz), superClass == NONE ? null : getString(superClass),
+                getStrings(getClassInt(clazz, INTERFACES), getClassInt(clazz, INTERFACE_COUNT)),
+                getStrings(getClassInt(clazz, ANNOTATIONS), getClassInt(clazz, ANNOTATION_COUNT)),
+                flags & ACCESS_FLAGS_MASK, (flags & MEMBER_CLASS_FLAG) != 0);
+    }
+
+    /**
+     * @param clazz Handle of a class.
+     * @return Source reading the class file from disk, and the class file metadata from the index.
+     */
+    ClassFileSource getClassFileSource(int clazz) {
+        return new ClassFileSource() {
+
+            @Override
+            public ByteBuffer read() throws IOException {
+                return ByteBuffer.wrap(Files.readAllBytes(Paths.get(getPath(clazz))));
+            }
+
+            @Override
+            public ClassFileInfo readInfo() {
+                return getClassFileInfo(clazz);
+            }
+        };
+    }
+
+    /**
+     * @param root Reference of an indexed class directory.
+     * @return Absolute path of the class directory.
+     */
+    String getRootPath(int root) {
+        return getString(buffer.getInt(rootTable + 4 * root));
+    }
+
+    /**
+     * @param clazz Handle of a class.
+     * @return Access flags of the class.
+     */
+    int getAccessFlags(int clazz) {
+        return getClassInt(clazz, FLAGS) & ACCESS_FLAGS_MASK;
+    }
+
+    /**
+     * Find all indexed classes and interfaces extending or implementing a type, either directly or through other indexed types.
+     * Only the types declaring each found type are read, so the time taken follows the number of subtypes, not the size of the index.
+     *
+     * @param typeName Name of a class or interface.
+     * @return Handles of the subtypes.
+     */
+    Set<Integer> findSubtypes(String typeName) {
+        Set<Integer> found = new LinkedHashSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        pending.add(typeName);
+        collectSubtypes(pending, found, Boolean.TRUE);
+        return found;
+    }
+
+    /**
+     * Find all indexed classes and interfaces annotated with an annotation. An inherited annotation is also found on
+     * the subclasses of annotated classes, but not on the implementations of annotated interfaces, the same as for reflection.
+     *
+     * @param annotationName Name of an annotation.
+     * @param inherited      If the annotation is inherited by subclasses.
+     * @return Handles of the annotated types.
+     */
+    Set<Integer> findAnnotatedWith(String annotationName, boolean inherited) {
+        Set<Integer> found = new LinkedHashSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        addRelated(annotationName, ANNOTATION_RELATION, pending, found);
+        if (!inherited) {
+            return found;
+        }
+
+        // The names of the directly annotated types are pending, but only classes pass the annotation on
+        pending.clear();
+        for (int clazz : found) {
+            if ((getAccessFlags(clazz) & ClassFileInfo.ACC_INTERFACE) == 0) {
+                pending.add(getClassName(clazz));
+            }
+        }
+        collectSubtypes(pending, found, Boolean.FALSE);
+        return found;
+    }
+
+    private void collectSubtypes(Deque<String> pending, Set<Integer> found, boolean interfaces) {
+        Set<String> visited = new HashSet<>();
+        while (!pending.isEmpty()) {
+            String typeName = pending.poll();
+            if (!visited.add(typeName)) {
+                continue;
+            }
+            addRelated(typeName, SUPER_CLASS_RELATION, pending, found);
+            if (interfaces) {
+                addRelated(typeName, INTERFACE_RELATION, pending, found);
+            }
+        }
+    }
+
+    private void addRelated(String name, int kind, Deque<String> pending, Set<Integer> found) {
+        int string = findString(name);
+        if (string == NONE) {
+            return;
+        }
+
+        for (int relation = findFirstRelation(string, kind); relation < relationCount
+                && getRelationInt(relation, 0) == string && getRelationInt(relation, 4) == kind; relation++) {
+            int clazz = getRelationInt(relation, 8);
+            if (found.add(clazz)) {
+                pending.add(getClassName(clazz));
+            }
+        }
+    }
+
+    /**
+     * @return Index of the first relation not sorted before the string reference and kind of relation.
+     */
+    private int findFirstRelation(int string, int kind) {
+        int low = 0;
+        int high = relationCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int target = getRelationInt(middle, 0);
+            if (target < string || target == string && getRelationInt(middle, 4) < kind) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int getRelationInt(int relation, int field) {
+        return buffer.getInt(relationTable + relation * RELATION_RECORD_SIZE + field);
+    }
+
+    private int getClassInt(int clazz, int field) {
+        return buffer.getInt(classTable + clazz * CLASS_RECORD_SIZE + field);
+    }
+
+    private String[] getStrings(int start, int count) {
+        String[] strings = new String[count];
+        for (int i = 0; i < count; i++) {
+            strings[i] = getString(buffer.getInt(referenceTable + 4 * (start + i)));
+        }
+        return strings;
+    }
+
+    private int getStringOffset(int string) {
+        return buffer.getInt(stringTable + 4 * string);
+    }
+
+    private String getString(int string) {
+        int offset = getStringOffset(string);
+        byte[] bytes = new byte[buffer.getShort(offset) & 0xFFFF];
+        ByteBuffer data = buffer.duplicate();
+        data.position(offset + 2);
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return Reference of the string in the string table, or <b>NONE</b> if it is not in the table.
+     */
+    private int findString(String string) {
+        byte[] key = toBytes(string);
+        int reference = findFirstString(key);
+        return reference < stringCount && compareString(reference, key) == 0 ? reference : NONE;
+    }
+
+    /**
+     * @return Reference of the first string in the string table that is not less than the key.
+     */
+    private int findFirstString(byte[] key) {
+        int low = 0;
+        int high = stringCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareString(middle, key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int compareString(int string, byte[] key) {
+        int offset = getStringOffset(string);
+        int length = buffer.getShort(offset) & 0xFFFF;
+        for (int i = 0; i < length && i < key.length; i++) {
+            int difference = (buffer.get(offset + 2 + i) & 0xFF) - (key[i] & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length - key.length;
+    }
+
+    private static byte[] toBytes(String string) {
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int compareBytes(byte[] a, byte[] b) {
+        for (int i = 0; i < a.length && i < b.length; i++) {
+            int difference = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    /**
+     * Index the class files of a class directory. Class names are given by the path of the class files,
+     * and directories with a package separator in their name are skipped, the same as when searching the directory.
+     */
+    private static void indexClasses(Path root, int rootReference, List<IndexedClass> classes) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) {
+                if (!directory.equals(root) && directory.getFileName().toString().indexOf(PKG_SEPARATOR) >= 0) {
+                    LOGGER.debug("Directory {} contains character {}, so skipping directory", directory, PKG_SEPARATOR);
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                String fileName = file.getFileName().toString();
+                if (!attributes.isRegularFile() || !fileName.endsWith(CLASS_FILE_SUFFIX)) {
+                    return FileVisitResult.CONTINUE;
+                }
+
+                Path parent = root.relativize(file.getParent());
+                StringBuilder packageName = new StringBuilder();
+                for (Path name : parent) {
+                    if (packageName.length() > 0) {
+                        packageName.append(PKG_SEPARATOR);
+                    }
+                    packageName.append(name.toString());
+                }
+                String simpleName = fileName.substring(0, fileName.length() - CLASS_FILE_SUFFIX.length());
+                String className = packageName.length() == 0 ? simpleName : packageName + String.valueOf(PKG_SEPARATOR) + simpleName;
+
+                try {
+                    ClassFileInfo classFileInfo = ClassFileInfo.read(ByteBuffer.wrap(Files.readAllBytes(file)));
+                    classes.add(new IndexedClass(className, packageName.toString(), rootReference, file.toString(), classFileInfo));
+                } catch (IOException e) {
+                    LOGGER.warn("Unable to read class file {}, so skipping class", file, e);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static final class IndexedClass {
+
+        private final String className;
+        private final String packageName;
+        private final int root;
+        private final String path;
+        private final ClassFileInfo classFileInfo;
+
+        private IndexedClass(String className, String packageName, int root, String path, ClassFileInfo classFileInfo) {
+            this.className = className;
+            this.packageName = packageName;
+            this.root = root;
+            this.path = path;
+            this.classFileInfo = classFileInfo;
+        }
+
+        private void addStrings(TreeSet<String> strings) {
+            strings.add(className);
+            strings.add(packageName);
+            strings.add(path);
+            if (classFileInfo.getSuperClassName() != null) {
+                strings.add(classFileInfo.getSuperClassName());
+            }
+            strings.addAll(Arrays.asList(classFileInfo.getInterfaceNames()));
+            strings.addAll(Arrays.asList(classFileInfo.getAnnotationNames()));
+        }
+    }
+}
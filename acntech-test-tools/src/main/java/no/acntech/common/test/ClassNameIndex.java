@@ -0,0 +1,69 @@
+package no.acntech.common.test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of the class names known to a classloader, telling if a class exists without loading it. A name is probed once by looking up
+ * its class file as a resource, which unlike loading the class does not throw an exception when the class is missing, and the answer is
+ * then kept, so repeated probes are a single hash lookup. Classes defined without a class file resource, like generated classes, are only
+ * found by loading them, so a name without a class file is loaded once, without being initialized, before it is kept as missing.
+ * There is one index per classloader, and an index is dropped together with its classloader.
+ */
+final class ClassNameIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClassNameIndex.class);
+    private static final Map<ClassLoader, ClassNameIndex> INDEXES = Collections.synchronizedMap(new WeakHashMap<>());
+    private static final char PKG_SEPARATOR = '.';
+    private static final char DIR_SEPARATOR = '/';
+    private static final String CLASS_FILE_SUFFIX = ".class";
+    private final Map<String, Boolean> classNames = new ConcurrentHashMap<>();
+
+    private ClassNameIndex() {
+    }
+
+    /**
+     * @param classLoader A classloader.
+     * @return The index of the classloader, created on first use.
+     */
+    static ClassNameIndex get(ClassLoader classLoader) {
+        if (classLoader == null) {
+            throw new IllegalArgumentException("ClassLoader is null");
+        }
+
+        return INDEXES.computeIfAbsent(classLoader, key -> new ClassNameIndex());
+    }
+
+    /**
+     * The index does not hold on to its classloader, so it is given again for every probe.
+     *
+     * @param className   Fully qualified name of a class.
+     * @param classLoader The classloader of the index.
+     * @return If the classloader can load the class.
+     */
+    boolean contains(String className, ClassLoader classLoader) {
+        Boolean exists = classNames.get(className);
+        if (exists == null) {
+            String resourceName = className.replace(PKG_SEPARATOR, DIR_SEPARATOR) + CLASS_FILE_SUFFIX;
+            exists = classLoader.getResource(resourceName) != null || isLoadable(className, classLoader);
+            classNames.put(className, exists);
+
+            LOGGER.trace("Class {} {}", className, exists ? "exists" : "does not exist");
+        }
+        return exists;
+    }
+
+    private static boolean isLoadable(String className, ClassLoader classLoader) {
+        try {
+            Class.forName(className, Boolean.FALSE, classLoader);
+            return Boolean.TRUE;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return Boolean.FALSE;
+        }
+    }
+}
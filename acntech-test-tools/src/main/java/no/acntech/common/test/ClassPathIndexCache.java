@@ -0,0 +1,134 @@
+package no.acntech.common.test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Indexes of the class directories on the class path, used by searches when no class index is given. An index is kept per
+ * classloader searched, and is dropped together with its classloader. Before an index is used, the directories below the class
+ * directories are checked by their last modified time, which changes whenever a class file is added, removed or renamed, and the
+ * index is built again if any of them has changed. Checking only reads the attributes of the directories, not of the class files,
+ * and is done without holding the lock of the cache, so parallel searches do not wait for each other. Anything modified within
+ * the timestamp granularity of the indexing is not trusted, as a later modification could have kept the same timestamp.
+ */
+final class ClassPathIndexCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClassPathIndexCache.class);
+    private static final long UNKNOWN = -1L;
+    private static final long TIMESTAMP_GRANULARITY = 2000L;
+    private static final Map<ClassLoader, IndexedClassPath> INDEXES = new WeakHashMap<>();
+
+    private ClassPathIndexCache() {
+    }
+
+    /**
+     * Get the index of the class directories of a classloader, indexing the directories if they are not indexed or have changed.
+     *
+     * @param classLoader      Classloader the class directories were found through.
+     * @param classDirectories Class directories on the class path of the classloader.
+     * @return The class index.
+     * @throws IOException If reading the class directories fails.
+     */
+    static ClassIndex get(ClassLoader classLoader, List<Path> classDirectories) throws IOException {
+        if (classLoader == null) {
+            throw new IllegalArgumentException("Classloader is null");
+        }
+
+        IndexedClassPath indexedClassPath;
+        synchronized (INDEXES) {
+            indexedClassPath = INDEXES.get(classLoader);
+        }
+        if (indexedClassPath != null && indexedClassPath.classDirectories.equals(classDirectories) && indexedClassPath.isUnchanged()) {
+            return indexedClassPath.classIndex;
+        }
+
+        LOGGER.debug(indexedClassPath == null ? "Indexing class directories {}" : "Class directories {} have changed, so indexing them again", classDirectories);
+
+        // The directories are listed before they are indexed, so a change made while indexing is found by the next check
+        List<Path> directories = new ArrayList<>();
+        List<Long> lastModifiedTimes = new ArrayList<>();
+        listDirectories(classDirectories, directories, lastModifiedTimes);
+        ClassIndex classIndex = ClassIndex.build(classDirectories.toArray(new Path[classDirectories.size()]));
+        synchronized (INDEXES) {
+            INDEXES.put(classLoader, new IndexedClassPath(Collections.unmodifiableList(new ArrayList<>(classDirectories)), directories, lastModifiedTimes, classIndex));
+        }
+        return classIndex;
+    }
+
+    private static void listDirectories(List<Path> classDirectories, List<Path> directories, List<Long> lastModifiedTimes) throws IOException {
+        long now = System.currentTimeMillis();
+        for (Path classDirectory : classDirectories) {
+            if (!Files.isDirectory(classDirectory)) {
+                // A class directory created later is found by its last modified time no longer being unknown
+                directories.add(classDirectory);
+                lastModifiedTimes.add(UNKNOWN);
+                continue;
+            }
+            Files.walkFileTree(classDirectory, new SimpleFileVisitor<Path>() {
+
+                @Override
+                public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) {
+                    long lastModified = attributes.lastModifiedTime().toMillis();
+                    directories.add(directory);
+                    lastModifiedTimes.add(now - lastModified < TIMESTAMP_GRANULARITY ? null : lastModified);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+    }
+
+    private static final class IndexedClassPath {
+
+        private final List<Path> classDirectories;
+        private final List<Path> directories;
+        private final List<Long> lastModifiedTimes;
+        private final ClassIndex classIndex;
+
+        private IndexedClassPath(List<Path> classDirectories, List<Path> directories, List<Long> lastModifiedTimes, ClassIndex classIndex) {
+            this.classDirectories = classDirectories;
+            this.directories = directories;
+            this.lastModifiedTimes = lastModifiedTimes;
+            this.classIndex = classIndex;
+        }
+
+        /**
+         * @return True if no directory has been added, removed or modified since the class directories were indexed.
+         */
+        private boolean isUnchanged() {
+            for (int i = 0; i < directories.size(); i++) {
+                Long lastModified = lastModifiedTimes.get(i);
+                if (lastModified == null) {
+                    return Boolean.FALSE;
+                }
+                Path directory = directories.get(i);
+                if (lastModified == UNKNOWN) {
+                    if (Files.isDirectory(directory)) {
+                        return Boolean.FALSE;
+                    }
+                    continue;
+                }
+                try {
+                    if (Files.getLastModifiedTime(directory).toMillis() != lastModified) {
+                        return Boolean.FALSE;
+                    }
+                } catch (IOException e) {
+                    LOGGER.trace("Unable to read last modified time of directory {}, so it has changed", directory, e);
+                    return Boolean.FALSE;
+                }
+            }
+            return Boolean.TRUE;
+        }
+    }
+}
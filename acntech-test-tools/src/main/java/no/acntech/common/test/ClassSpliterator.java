@@ -0,0 +1,311 @@
+package no.acntech.common.test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator searching for classes on demand. Pending work is kept as a stack of tasks: package directories, jar files,
+ * modules and class files not yet looked at. Every advance pops tasks, expanding directories and jar files into new tasks,
+ * until a class matching the search criteria is loaded. Splitting hands over half of the pending tasks, so a parallel
+ * stream spreads the package directories across the workers without any of them searching ahead.
+ * A class found through several class path entries is only returned once, also when the spliterator has been split.
+ * For a parallel search the classes are loaded without being initialized, so static initializers do not run on the workers
+ * while they search.
+ */
+final class ClassSpliterator implements Spliterator<Class<?>> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClassSpliterator.class);
+    private static final char PKG_SEPARATOR = '.';
+    private static final String CLASS_FILE_SUFFIX = ".class";
+    private static final String JAR_ENTRY_SEPARATOR = "!/";
+    private final ClassCriteria classCriteria;
+    private final Deque<Task> tasks;
+    private final Set<Class<?>> foundClasses;
+
+    ClassSpliterator(ClassCriteria classCriteria) {
+        this(classCriteria, new ArrayDeque<>(), ConcurrentHashMap.newKeySet());
+    }
+
+    private ClassSpliterator(ClassCriteria classCriteria, Deque<Task> tasks, Set<Class<?>> foundClasses) {
+        if (classCriteria == null) {
+            throw new IllegalArgumentException("Class search criteria is null");
+        }
+        this.classCriteria = classCriteria;
+        this.tasks = tasks;
+        this.foundClasses = foundClasses;
+    }
+
+    void addDirectory(Path directory, String packageName) {
+        tasks.addLast(new DirectoryTask(directory, packageName));
+    }
+
+    void addIndexedDirectory(ClassIndex classIndex, int root, File directory, String packageName) {
+        tasks.addLast(new IndexedDirectoryTask(classIndex, root, directory, packageName));
+    }
+
+    void addJarFile(File jarFile, PackageTrie packages) {
+        tasks.addLast(new JarFileTask(jarFile, packages));
+    }
+
+    void addModule(String moduleName, PackageTrie packages) {
+        tasks.addLast(new ModuleTask(moduleName, packages));
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Class<?>> action) {
+        if (action == null) {
+            throw new NullPointerException("Action is null");
+        }
+
+        Task task;
+        while ((task = tasks.pollFirst()) != null) {
+            try {
+                if (task instanceof ClassTask) {
+                    Class<?> clazz = ((ClassTask) task).load();
+                    // The same class is found twice when its directory or jar file is on the class path under several names
+                    if (clazz != null && foundClasses.add(clazz)) {
+                        action.accept(clazz);
+                        return Boolean.TRUE;
+                    }
+                } else {
+                    expand((SearchTask) task);
+                }
+            } catch (IOException | ClassNotFoundException e) {
+                throw new TestException("Failed to search for classes in " + task, e);
+            }
+        }
+        return Boolean.FALSE;
+    }
+
+    @Override
+    public Spliterator<Class<?>> trySplit() {
+        // A single directory or jar file is expanded first, which only lists it, so there is something to hand over
+        while (tasks.size() == 1 && tasks.peekFirst() instanceof SearchTask) {
+            SearchTask task = (SearchTask) tasks.pollFirst();
+            try {
+                expand(task);
+            } catch (IOException | ClassNotFoundException e) {
+                throw new TestException("Failed to search for classes in " + task, e);
+            }
+        }
+
+        if (tasks.size() < 2) {
+            return null;
+        }
+
+        // Tasks at the bottom of the stack were added first, which are the directories highest up in the tree
+        Deque<Task> splitTasks = new ArrayDeque<>();
+        for (int i = tasks.size() / 2; i > 0; i--) {
+            splitTasks.addFirst(tasks.pollLast());
+        }
+        return new ClassSpliterator(classCriteria, splitTasks, foundClasses);
+    }
+
+    @Override
+    public long estimateSize() {
+        return tasks.isEmpty() ? 0 : Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return NONNULL;
+    }
+
+    private void expand(SearchTask task) throws IOException, ClassNotFoundException {
+        List<Task> expandedTasks = new ArrayList<>();
+        task.expand(expandedTasks);
+        for (int i = expandedTasks.size() - 1; i >= 0; i--) {
+            tasks.addFirst(expandedTasks.get(i));
+        }
+    }
+
+    /**
+     * Pending work, either a search task to expand or a class to load.
+     */
+    private abstract static class Task {
+    }
+
+    /**
+     * A place to search, expanded into the classes and the places below it.
+     */
+    private abstract static class SearchTask extends Task {
+
+        abstract void expand(List<Task> expandedTasks) throws IOException, ClassNotFoundException;
+    }
+
+    private final class DirectoryTask extends SearchTask {
+
+        private final Path directory;
+        private final String packageName;
+
+        private DirectoryTask(Path directory, String packageName) {
+            this.directory = directory;
+            this.packageName = packageName;
+        }
+
+        @Override
+        void expand(List<Task> expandedTasks) throws IOException {
+            if (!Files.isDirectory(directory)) {
+                LOGGER.debug("Directory {} does not exist, so skipping directory", directory);
+                return;
+            }
+
+            LOGGER.debug("Searching for classes in package {} in directory {}", packageName, directory);
+
+            ClassFilter classFilter = classCriteria.getClassFilter();
+            List<Task> subDirectoryTasks = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                for (Path path : stream) {
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    String fileName = path.getFileName().toString();
+
+                    if (attributes.isDirectory()) {
+                        if (classFilter.isDirectoryExcluded(path.toString())) {
+                            continue;
+                        } else if (!classCriteria.isRecursiveSearch()) {
+                            LOGGER.trace("Non recursive search criteria specified, so skipping directory");
+                        } else if (fileName.indexOf(PKG_SEPARATOR) >= 0) {
+                            LOGGER.debug("Directory {} contains character {}, so skipping directory", path, PKG_SEPARATOR);
+                        } else {
+                            subDirectoryTasks.add(new DirectoryTask(path, packageName + PKG_SEPARATOR + fileName));
+                        }
+                    } else if (attributes.isRegularFile() && fileName.endsWith(CLASS_FILE_SUFFIX)) {
+                        if (!classFilter.isPathExcluded(path.toString())) {
+                            String className = packageName + PKG_SEPARATOR + fileName.substring(0, fileName.length() - CLASS_FILE_SUFFIX.length());
+                            expandedTasks.add(new ClassTask(className, () -> ByteBuffer.wrap(Files.readAllBytes(path)), classCriteria.getClassLoader(TestReflectionUtils.class.getClassLoader())));
+                        }
+                    } else {
+                        LOGGER.debug("File {} is not a directory nor a class file, so skipping", fileName);
+                    }
+                }
+            }
+            // Classes of the directory come before its sub directories, so the stack stays shallow
+            expandedTasks.addAll(subDirectoryTasks);
+        }
+
+        @Override
+        public String toString() {
+            return directory.toString();
+        }
+    }
+
+    private final class IndexedDirectoryTask extends SearchTask {
+
+        private final ClassIndex classIndex;
+        private final int root;
+        private final File directory;
+        private final String packageName;
+
+        private IndexedDirectoryTask(ClassIndex classIndex, int root, File directory, String packageName) {
+            this.classIndex = classIndex;
+            this.root = root;
+            this.directory = directory;
+            this.packageName = packageName;
+        }
+
+        @Override
+        void expand(List<Task> expandedTasks) throws IOException, ClassNotFoundException {
+            LOGGER.debug("Searching for classes in package {} in class index of directory {}", packageName, directory.getAbsolutePath());
+
+            TestReflectionUtils.visitClassesInIndex(classIndex, root, directory, packageName, classCriteria, (className, classFileSource) ->
+                    expandedTasks.add(new ClassTask(className, classFileSource, classCriteria.getClassLoader(TestReflectionUtils.class.getClassLoader()))));
+        }
+
+        @Override
+        public String toString() {
+            return directory.getAbsolutePath();
+        }
+    }
+
+    private final class JarFileTask extends SearchTask {
+
+        private final File jarFile;
+        private final PackageTrie packages;
+
+        private JarFileTask(File jarFile, PackageTrie packages) {
+            this.jarFile = jarFile;
+            this.packages = packages;
+        }
+
+        @Override
+        void expand(List<Task> expandedTasks) throws IOException, ClassNotFoundException {
+            if (!jarFile.isFile()) {
+                LOGGER.debug("Jar file {} does not exist, so skipping jar file", jarFile.getAbsolutePath());
+                return;
+            }
+
+            LOGGER.debug("Searching for classes in packages {} in {}", packages, jarFile.getAbsolutePath());
+
+            ZipCentralDirectory centralDirectory = ZipCentralDirectory.map(jarFile.toPath());
+            String location = jarFile.getAbsolutePath() + JAR_ENTRY_SEPARATOR;
+            TestReflectionUtils.visitClassesInZip(centralDirectory, "", packages, location, classCriteria, (className, classFileSource) ->
+                    expandedTasks.add(new ClassTask(className, classFileSource, classCriteria.getClassLoader(TestReflectionUtils.class.getClassLoader()))));
+        }
+
+        @Override
+        public String toString() {
+            return jarFile.getAbsolutePath();
+        }
+    }
+
+    private final class ModuleTask extends SearchTask {
+
+        private final String moduleName;
+        private final PackageTrie packages;
+
+        private ModuleTask(String moduleName, PackageTrie packages) {
+            this.moduleName = moduleName;
+            this.packages = packages;
+        }
+
+        @Override
+        void expand(List<Task> expandedTasks) throws IOException, ClassNotFoundException {
+            ClassLoader classLoader = classCriteria.getClassLoader(ModuleScanner.getClassLoader(moduleName));
+            ModuleScanner.visitClasses(moduleName, packages, classCriteria, (className, classFileSource) ->
+                    expandedTasks.add(new ClassTask(className, classFileSource, classLoader)));
+        }
+
+        @Override
+        public String toString() {
+            return moduleName;
+        }
+    }
+
+    private final class ClassTask extends Task {
+
+        private final String className;
+        private final ClassFileSource classFileSource;
+        private final ClassLoader classLoader;
+
+        private ClassTask(String className, ClassFileSource classFileSource, ClassLoader classLoader) {
+            this.className = className;
+            this.classFileSource = classFileSource;
+            this.classLoader = classLoader;
+        }
+
+        private Class<?> load() throws IOException, ClassNotFoundException {
+            return TestReflectionUtils.loadClass(className, classFileSource, classLoader, classCriteria, !classCriteria.isSkipInitialization() && !classCriteria.isParallelSearch());
+        }
+
+        @Override
+        public String toString() {
+            return className;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package no.acntech.common.test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the result of a package search live by watching the package directories for class files being written or deleted,
+ * so a continuous test run only has to test the classes changed since the last run. Changed classes are loaded from the new
+ * class files in a classloader of their own, as the application classloader keeps the classes it has already loaded,
+ * and as they are new classes their properties are introspected again when tested. Only directories are watched,
+ * as classes in jar files and modules do not change while running.
+ * <p>
+ * Watch events are only processed when the watcher is polled for changed classes, so no thread is started. Writing a class file
+ * may give several events, so the last modified time and size of every class file loaded are kept, and a class file is only
+ * loaded again when these have changed.
+ *
+ * @see no.acntech.common.test.TestReflectionUtils#watchClasses(ClassCriteria, String...)
+ */
+public final class ClassWatcher implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClassWatcher.class);
+    private static final char PKG_SEPARATOR = '.';
+    private static final String CLASS_FILE_SUFFIX = ".class";
+    private final ClassCriteria classCriteria;
+    private final PackageTrie packages;
+    private final WatchService watchService;
+    private final Map<WatchKey, String> packageNames = new HashMap<>();
+    private final Map<String, Class<?>> classes = new LinkedHashMap<>();
+    private final Map<String, Path> changedClassFiles = new LinkedHashMap<>();
+    private final Map<String, Class<?>> changedClasses = new LinkedHashMap<>();
+    private final Map<String, List<Object>> loadedClassFiles = new HashMap<>();
+
+    ClassWatcher(ClassCriteria classCriteria, PackageTrie packages, Map<String, List<File>> directories, Class<?>[] foundClasses) throws IOException {
+        this.classCriteria = classCriteria;
+        this.packages = packages;
+        this.watchService = FileSystems.getDefault().newWatchService();
+
+        for (Class<?> clazz : foundClasses) {
+            classes.put(clazz.getName(), clazz);
+        }
+        // Nothing has been tested yet, so all classes found count as changed
+        changedClasses.putAll(classes);
+
+        try {
+            for (Map.Entry<String, List<File>> entry : directories.entrySet()) {
+                for (File directory : entry.getValue()) {
+                    register(directory.toPath(), entry.getKey(), Boolean.FALSE);
+                }
+            }
+        } catch (IOException e) {
+            watchService.close();
+            throw e;
+        }
+
+        LOGGER.info("Watching {} directories for changed classes in packages {}", packageNames.size(), packages);
+    }
+
+    /**
+     * Get all classes found, with the changed classes replaced by the version returned when last polled for changed classes.
+     * Changes not yet polled for are not looked at, so the classes returned are the classes tested so far.
+     *
+     * @return All classes found.
+     * @throws IOException            Not thrown, as no class file is read.
+     * @throws ClassNotFoundException Not thrown, as no class is loaded.
+     */
+    public synchronized Class<?>[] getClasses() throws IOException, ClassNotFoundException {
+        return classes.values().toArray(new Class[classes.size()]);
+    }
+
+    /**
+     * Get the classes changed or added since last asked for, without waiting for changes. When first asked, all classes found are returned.
+     *
+     * @return The changed classes, or an empty array if no classes changed.
+     * @throws IOException            If reading a changed class file fails.
+     * @throws ClassNotFoundException If creating class for a class name fails.
+     */
+    public Class<?>[] pollChangedClasses() throws IOException, ClassNotFoundException {
+        return pollChangedClasses(0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Get the classes changed or added since last asked for, waiting for a change if no classes changed yet. When first asked,
+     * all classes found are returned.
+     *
+     * @param timeout How long to wait for a change.
+     * @param unit    Unit of the timeout.
+     * @return The changed classes, or an empty array if no classes changed before the timeout.
+     * @throws IOException            If reading a changed class file fails.
+     * @throws ClassNotFoundException If creating class for a class name fails.
+     */
+    public synchronized Class<?>[] pollChangedClasses(long timeout, TimeUnit unit) throws IOException, ClassNotFoundException {
+        if (unit == null) {
+            throw new IllegalArgumentException("Time unit is null");
+        }
+
+        processEvents(changedClasses.isEmpty() ? timeout : 0, unit);
+
+        Class<?>[] changed = changedClasses.values().toArray(new Class[changedClasses.size()]);
+        changedClasses.clear();
+        return changed;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        watchService.close();
+        packageNames.clear();
+    }
+
+    private void processEvents(long timeout, TimeUnit unit) throws IOException, ClassNotFoundException {
+        try {
+            WatchKey key = timeout > 0 ? watchService.poll(timeout, unit) : watchService.poll();
+            for (; key != null; key = watchService.poll()) {
+                processEvents(key);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.debug("Interrupted while waiting for changed classes");
+        } catch (ClosedWatchServiceException e) {
+            throw new IllegalStateException("Class watcher is closed", e);
+        }
+
+        if (!changedClassFiles.isEmpty()) {
+            loadChangedClasses();
+        }
+    }
+
+    private void processEvents(WatchKey key) throws IOException {
+        Path directory = (Path) key.watchable();
+        String packageName = packageNames.get(key);
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Events were lost, so every class file of the directory is treated as changed
+                LOGGER.debug("Lost events for directory {}, so checking all class files of directory", directory);
+                register(directory, packageName, Boolean.TRUE);
+                continue;
+            }
+
+            Path path = directory.resolve((Path) event.context());
+            String fileName = path.getFileName().toString();
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                if (classCriteria.isRecursiveSearch() && fileName.indexOf(PKG_SEPARATOR) < 0) {
+                    register(path, qualify(packageName, fileName), Boolean.TRUE);
+                }
+            } else if (fileName.endsWith(CLASS_FILE_SUFFIX)) {
+                String className = qualify(packageName, fileName.substring(0, fileName.length() - CLASS_FILE_SUFFIX.length()));
+                if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                    LOGGER.debug("Class file of class {} was deleted", className);
+                    changedClassFiles.remove(className);
+                    changedClasses.remove(className);
+                    loadedClassFiles.remove(className);
+                    classes.remove(className);
+                } else {
+                    changedClassFiles.put(className, path);
+                }
+            }
+        }
+
+        if (!key.reset()) {
+            LOGGER.debug("Directory {} is no longer watched", directory);
+            packageNames.remove(key);
+        }
+    }
+
+    private void register(Path root, String rootPackageName, boolean changed) throws IOException {
+        ClassFilter classFilter = classCriteria.getClassFilter();
+        Map<Path, String> directoryPackageNames = new HashMap<>();
+
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+                String packageName = rootPackageName;
+                if (!directory.equals(root)) {
+                    String fileName = directory.getFileName().toString();
+                    if (!classCriteria.isRecursiveSearch() || fileName.indexOf(PKG_SEPARATOR) >= 0 || classFilter.isDirectoryExcluded(directory.toString())) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    packageName = qualify(rootPackageName, root.relativize(directory).toString().replace(File.separatorChar, PKG_SEPARATOR));
+                }
+
+                WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                        StandardWatchEventKinds.ENTRY_DELETE);
+                packageNames.put(key, packageName);
+                directoryPackageNames.put(directory, packageName);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                String fileName = file.getFileName().toString();
+                if (changed && attributes.isRegularFile() && fileName.endsWith(CLASS_FILE_SUFFIX)) {
+                    String packageName = directoryPackageNames.get(file.getParent());
+                    changedClassFiles.put(qualify(packageName, fileName.substring(0, fileName.length() - CLASS_FILE_SUFFIX.length())), file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void loadChangedClasses() throws IOException, ClassNotFoundException {
+        Map<String, Path> classFiles = new LinkedHashMap<>();
+        Map<String, List<Object>> classFileStamps = new HashMap<>();
+        for (Map.Entry<String, Path> entry : changedClassFiles.entrySet()) {
+            String className = entry.getKey();
+            try {
+                // The stamp is read before the class file, so a write after reading it gives a new stamp and is loaded again
+                BasicFileAttributes attributes = Files.readAttributes(entry.getValue(), BasicFileAttributes.class);
+                List<Object> stamp = Arrays.asList(attributes.lastModifiedTime(), attributes.size());
+                if (stamp.equals(loadedClassFiles.get(className))) {
+                    LOGGER.trace("Class file of class {} has not changed since loaded", className);
+                } else {
+                    classFiles.put(className, entry.getValue());
+                    classFileStamps.put(className, stamp);
+                }
+            } catch (NoSuchFileException e) {
+                LOGGER.debug("Class file of class {} was deleted before loaded", className);
+            }
+        }
+        changedClassFiles.clear();
+
+        if (classFiles.isEmpty()) {
+            return;
+        }
+
+        // The whole package is loaded again, so the changed classes see the latest version of the classes they use
+        DisposableClassLoader classLoader = new DisposableClassLoader(TestReflectionUtils.class.getClassLoader(), packages, classCriteria);
+        ClassCriteria reloadCriteria = classCriteria.copyWithClassLoader(classLoader);
+        ClassFilter classFilter = classCriteria.getClassFilter();
+
+        List<String> rejectedClassNames = new ArrayList<>();
+        for (Map.Entry<String, Path> entry : classFiles.entrySet()) {
+            String className = entry.getKey();
+            Path classFile = entry.getValue();
+            loadedClassFiles.put(className, classFileStamps.get(className));
+
+            Class<?> clazz = null;
+            if (packages.findSearchedPackage(className, 0, Math.max(className.lastIndexOf(PKG_SEPARATOR), 0), PKG_SEPARATOR) >= 0
+                    && !classFilter.isPathExcluded(classFile.toString())) {
+                clazz = TestReflectionUtils.loadClass(className, () -> ByteBuffer.wrap(Files.readAllBytes(classFile)), classLoader, reloadCriteria);
+            }
+
+            if (clazz == null) {
+                rejectedClassNames.add(className);
+                classes.remove(className);
+                changedClasses.remove(className);
+            } else {
+                classes.put(className, clazz);
+                changedClasses.put(className, clazz);
+            }
+        }
+
+        LOGGER.info("Loaded {} changed classes in packages {}", classFiles.size() - rejectedClassNames.size(), packages);
+        if (!rejectedClassNames.isEmpty()) {
+            LOGGER.debug("Changed classes {} do not match the class search criteria", rejectedClassNames);
+        }
+    }
+
+    private static String qualify(String packageName, String name) {
+        return packageName.isEmpty() ? name : packageName + PKG_SEPARATOR + name;
+    }
+}
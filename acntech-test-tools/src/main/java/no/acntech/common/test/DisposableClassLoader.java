@@ -0,0 +1,129 @@
+package no.acntech.common.test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Classloader defining the classes of the searched packages itself, instead of leaving them to its parent, so the classes
+ * and the metaspace they take are released together with the classloader. Classes outside the searched packages, and the
+ * super types and annotations of the search criteria, are loaded by the parent, so the criteria match the classes as usual.
+ * Used when only the names of the classes are wanted, so nothing loaded by the search is kept by the application classloader.
+ */
+final class DisposableClassLoader extends ClassLoader {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DisposableClassLoader.class);
+    private static final String METASPACE_POOL_NAME = "Metaspace";
+    private static final String JAVA_PACKAGE_PREFIX = "java.";
+    private static final char PKG_SEPARATOR = '.';
+    private static final char DIR_SEPARATOR = '/';
+    private static final String CLASS_FILE_SUFFIX = ".class";
+    private static final int BUFFER_SIZE = 8192;
+    private final PackageTrie packages;
+    private final Set<String> parentClassNames = new HashSet<>();
+    private final AtomicInteger definedClassCount = new AtomicInteger();
+
+    static {
+        registerAsParallelCapable();
+    }
+
+    /**
+     * @param parent        Classloader of the searched packages.
+     * @param packages      Packages to search.
+     * @param classCriteria Package search criteria for classes.
+     */
+    DisposableClassLoader(ClassLoader parent, PackageTrie packages, ClassCriteria classCriteria) {
+        super(parent);
+        this.packages = packages;
+
+        for (Class<?> superType : classCriteria.getRequiredSuperTypes()) {
+            parentClassNames.add(superType.getName());
+        }
+        for (Class<? extends Annotation> annotation : classCriteria.getRequiredAnnotations()) {
+            parentClassNames.add(annotation.getName());
+        }
+        for (Class<? extends Annotation> annotation : classCriteria.getForbiddenAnnotations()) {
+            parentClassNames.add(annotation.getName());
+        }
+    }
+
+    /**
+     * @return Number of classes defined by this classloader.
+     */
+    int getDefinedClassCount() {
+        return definedClassCount.get();
+    }
+
+    /**
+     * @return Bytes of metaspace in use, or -1 if the running JVM has no metaspace memory pool.
+     */
+    static long getMetaspaceUsed() {
+        for (MemoryPoolMXBean memoryPool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (METASPACE_POOL_NAME.equals(memoryPool.getName())) {
+                return memoryPool.getUsage().getUsed();
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (!isDisposable(name)) {
+            return super.loadClass(name, resolve);
+        }
+
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> clazz = findLoadedClass(name);
+            if (clazz == null) {
+                clazz = defineDisposableClass(name);
+            }
+            if (clazz == null) {
+                return super.loadClass(name, resolve);
+            }
+            if (resolve) {
+                resolveClass(clazz);
+            }
+            return clazz;
+        }
+    }
+
+    private boolean isDisposable(String name) {
+        if (name.startsWith(JAVA_PACKAGE_PREFIX) || parentClassNames.contains(name)) {
+            return Boolean.FALSE;
+        }
+        int packageEnd = Math.max(name.lastIndexOf(PKG_SEPARATOR), 0);
+        return packages.findSearchedPackage(name, 0, packageEnd, PKG_SEPARATOR) >= 0;
+    }
+
+    private Class<?> defineDisposableClass(String name) {
+        String resourceName = name.replace(PKG_SEPARATOR, DIR_SEPARATOR) + CLASS_FILE_SUFFIX;
+        try (InputStream in = getParent().getResourceAsStream(resourceName)) {
+            if (in == null) {
+                return null;
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                out.write(buffer, 0, read);
+            }
+            byte[] bytes = out.toByteArray();
+
+            Class<?> clazz = defineClass(name, bytes, 0, bytes.length);
+            definedClassCount.incrementAndGet();
+            return clazz;
+        } catch (IOException | LinkageError | SecurityException e) {
+            LOGGER.debug("Unable to define class {} in disposable classloader, so loading class with parent classloader", name, e);
+            return null;
+        }
+    }
+}
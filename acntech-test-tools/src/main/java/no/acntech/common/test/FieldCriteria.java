@@ -13,6 +13,7 @@ public class FieldCriteria {
 
     public static final String INTERNAL_CLASS_FIELD = "class";
     private Set<String> excludeFields;
+    private boolean generateTesters;
 
     private FieldCriteria() {
     }
@@ -25,6 +26,10 @@ public class FieldCriteria {
         return excludeFields;
     }
 
+    public boolean isGenerateTesters() {
+        return generateTesters;
+    }
+
     /**
      * Creates a field criteria builder.
      *
@@ -68,6 +73,18 @@ public class FieldCriteria {
             return this;
         }
 
+        /**
+         * Test the getters and setters of a bean through a tester class generated for the bean, calling the accessors
+         * directly instead of through reflection. Beans that can not be called directly, like beans that are not public,
+         * are tested as usual. A failing field is tested again as usual, so it fails with the usual message.
+         *
+         * @return the criteria builder.
+         */
+        public Builder doGenerateTesters() {
+            fieldCriteria.generateTesters = Boolean.TRUE;
+            return this;
+        }
+
         public FieldCriteria build() {
             return fieldCriteria;
         }
@@ -0,0 +1,24 @@
+package no.acntech.common.test;
+
+/**
+ * Classloader of a single generated class, seeing the classes of its parent, so the generated class is released
+ * together with the classloader.
+ */
+final class GeneratedClassLoader extends ClassLoader {
+
+    /**
+     * @param parent Classloader of the classes used by the generated class.
+     */
+    GeneratedClassLoader(ClassLoader parent) {
+        super(parent);
+    }
+
+    /**
+     * @param className Name of the generated class.
+     * @param bytes     Class file of the generated class.
+     * @return The generated class.
+     */
+    Class<?> define(String className, byte[] bytes) {
+        return defineClass(className, bytes, 0, bytes.length);
+    }
+}
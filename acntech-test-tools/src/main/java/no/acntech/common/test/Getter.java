@@ -1,23 +1,62 @@
 package no.acntech.common.test;
 
-import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
 class Getter {
 
-    private PropertyDescriptor descriptor;
+    private String name;
     private Method getter;
+    private MethodHandle getterHandle;
 
-    Getter(PropertyDescriptor descriptor, Method getter) {
-        this.descriptor = descriptor;
+    Getter(String name, Method getter, MethodHandle getterHandle) {
+        this.name = name;
         this.getter = getter;
+        this.getterHandle = getterHandle;
     }
 
-    PropertyDescriptor getDescriptor() {
-        return descriptor;
+    String getName() {
+        return name;
     }
 
     Method getGetter() {
         return getter;
     }
+
+    /**
+     * Call the getter, through its method handle if the getter has one, else through reflection.
+     *
+     * @param bean The bean to get the field of.
+     * @return The field value.
+     * @throws IllegalArgumentException  If the bean is not an instance of the class of the getter.
+     * @throws IllegalAccessException    If the getter is not accessible.
+     * @throws InvocationTargetException If the getter throws an exception.
+     */
+    Object get(Object bean) throws IllegalAccessException, InvocationTargetException {
+        if (getterHandle == null) {
+            return getter.invoke(bean);
+        }
+
+        checkBean(bean);
+        try {
+            return (Object) getterHandle.invokeExact(bean);
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    /**
+     * Check the bean before calling a method handle, so anything thrown by the method handle is thrown by the getter or setter.
+     *
+     * @param bean The bean to call the getter or setter of.
+     * @throws IllegalArgumentException If the bean is not an instance of the class of the getter.
+     */
+    void checkBean(Object bean) {
+        if (bean == null) {
+            throw new IllegalArgumentException("Bean is null");
+        } else if (!getter.getDeclaringClass().isInstance(bean)) {
+            throw new IllegalArgumentException("Bean is not an instance of the class of getter " + name);
+        }
+    }
 }
@@ -1,18 +1,49 @@
 package no.acntech.common.test;
 
-import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
 class GetterSetter extends Getter {
 
     private Method setter;
+    private MethodHandle setterHandle;
+    private Class<?> valueType;
 
-    GetterSetter(PropertyDescriptor descriptor, Method getter, Method setter) {
-        super(descriptor, getter);
+    GetterSetter(String name, Method getter, MethodHandle getterHandle, Method setter, MethodHandle setterHandle) {
+        super(name, getter, getterHandle);
         this.setter = setter;
+        this.setterHandle = setterHandle;
+        this.valueType = setter.getParameterTypes()[0];
     }
 
     Method getSetter() {
         return setter;
     }
+
+    /**
+     * Call the setter, through its method handle if the setter has one, else through reflection.
+     *
+     * @param bean  The bean to set the field of.
+     * @param value The field value.
+     * @throws IllegalArgumentException  If the bean or the value does not match the types of the setter.
+     * @throws IllegalAccessException    If the setter is not accessible.
+     * @throws InvocationTargetException If the setter throws an exception.
+     */
+    void set(Object bean, Object value) throws IllegalAccessException, InvocationTargetException {
+        if (setterHandle == null) {
+            setter.invoke(bean, value);
+            return;
+        }
+
+        checkBean(bean);
+        if (!ParameterTypes.isAssignable(valueType, value)) {
+            throw new IllegalArgumentException("Value does not match the type of setter " + getName());
+        }
+        try {
+            setterHandle.invokeExact(bean, value);
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e);
+        }
+    }
 }
@@ -0,0 +1,58 @@
+package no.acntech.common.test;
+
+import java.util.regex.Pattern;
+
+/**
+ * Converts glob expressions to regular expressions.
+ * <ul>
+ * <li><b>**</b> matches any characters, including separators</li>
+ * <li><b>*</b> matches any characters, except separators</li>
+ * <li><b>?</b> matches a single character, except separators</li>
+ * </ul>
+ * All other characters match themselves.
+ */
+final class GlobPattern {
+
+    private GlobPattern() {
+    }
+
+    static Pattern compile(String glob, char separator) {
+        return Pattern.compile(toRegex(glob, separator));
+    }
+
+    static String toRegex(String glob, char separator) {
+        if (glob == null) {
+            throw new IllegalArgumentException("Glob is null");
+        }
+
+        String notSeparator = "[^\\" + separator + "]";
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*' || c == '?') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                if (c == '?') {
+                    regex.append(notSeparator);
+                } else if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                    regex.append(".*");
+                    i++;
+                } else {
+                    regex.append(notSeparator).append('*');
+                }
+            } else {
+                literal.append(c);
+            }
+        }
+
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+
+        return regex.toString();
+    }
+}
@@ -4,11 +4,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.beans.IntrospectionException;
-import java.beans.PropertyDescriptor;
+import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
@@ -125,8 +128,10 @@ public final class JavaBeanTester {
 
         List<GetterSetter> gettersAndSetters = TestReflectionUtils.findGettersAndSetters(clazz, fieldCriteria);
 
-        for (GetterSetter getterSetter : gettersAndSetters) {
-            testSetterAndGetter(clazz, getterSetter);
+        if (!fieldCriteria.isGenerateTesters() || !testGeneratedSettersAndGetters(clazz, gettersAndSetters)) {
+            for (GetterSetter getterSetter : gettersAndSetters) {
+                testSetterAndGetter(clazz, getterSetter);
+            }
         }
 
         List<Getter> getters = TestReflectionUtils.findGetters(clazz, fieldCriteria);
@@ -160,14 +165,130 @@ public final class JavaBeanTester {
      * @throws IllegalArgumentException If passed package is null.
      */
     public static void testClasses(final Package pkg, ClassCriteria classCriteria) throws IOException, ClassNotFoundException, IntrospectionException {
-        Class<?>[] classes = TestReflectionUtils.findClasses(pkg, classCriteria);
+        if (classCriteria == null) {
+            throw new IllegalArgumentException("Class search criteria is null");
+        }
+
+        if (classCriteria.isShareScan() || classCriteria.getScanCache() != null) {
+            // A shared search result or a scan cache is only written once the search is complete, so these searches are not streamed
+            testClasses(TestReflectionUtils.findClasses(pkg, classCriteria));
+            return;
+        }
+
+        // Classes are tested as they are found, so testing starts before the whole package is searched
+        try (Stream<Class<?>> classes = TestReflectionUtils.streamClasses(pkg, classCriteria).limit(classCriteria.getMaxClassLimit())) {
+            Iterator<Class<?>> iterator = classes.iterator();
+            while (iterator.hasNext()) {
+                testClass(iterator.next());
+            }
+        } catch (TestException e) {
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof ClassNotFoundException) {
+                    throw (ClassNotFoundException) cause;
+                } else if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Test getters and setters for all classes found in several packages depending on search criteria.
+     * The packages are searched in a single pass, and a class is tested once even if it is found in several places.
+     *
+     * @param classCriteria Search criteria for the classes to be tested.
+     * @param packages      Packages to search for classes from.
+     * @throws IOException              If reading using classloader fails.
+     * @throws ClassNotFoundException   If creating class for a class name fails.
+     * @throws IntrospectionException   If an exception occurs during introspection.
+     * @throws IllegalArgumentException If passed packages or any package is null.
+     */
+    public static void testClasses(ClassCriteria classCriteria, final Package... packages) throws IOException, ClassNotFoundException, IntrospectionException {
+        if (packages == null) {
+            throw new IllegalArgumentException("Packages is null");
+        }
+
+        String[] packageNames = new String[packages.length];
+        for (int i = 0; i < packages.length; i++) {
+            if (packages[i] == null) {
+                throw new IllegalArgumentException("Package is null");
+            }
+            packageNames[i] = packages[i].getName();
+        }
+
+        Class<?>[] classes = TestReflectionUtils.findClasses(classCriteria, packageNames);
         testClasses(classes);
     }
 
+    /**
+     * Test getters and setters for the classes changed since the last test of the watcher, or all classes on the first test.
+     *
+     * @param classWatcher Watcher of the classes to be tested.
+     * @throws IOException              If reading a changed class file fails.
+     * @throws ClassNotFoundException   If creating class for a class name fails.
+     * @throws IntrospectionException   If an exception occurs during introspection.
+     * @throws IllegalArgumentException If passed class watcher is null.
+     */
+    public static void testChangedClasses(final ClassWatcher classWatcher) throws IOException, ClassNotFoundException, IntrospectionException {
+        if (classWatcher == null) {
+            throw new IllegalArgumentException("Class watcher is null");
+        }
+
+        testClasses(classWatcher.pollChangedClasses());
+    }
+
+    /**
+     * Test getters and setters for all classes found in package inside an archive depending on search criteria.
+     * The archive can be a plain jar file or an executable Spring Boot jar or war with nested jar files.
+     *
+     * @param archive       Archive to search for classes in.
+     * @param packageName   Name of package to search for classes from.
+     * @param classCriteria Search criteria for the classes to be tested.
+     * @throws IOException              If reading the archive fails.
+     * @throws ClassNotFoundException   If creating class for a class name fails.
+     * @throws IntrospectionException   If an exception occurs during introspection.
+     * @throws IllegalArgumentException If passed archive or package name is null.
+     */
+    public static void testClasses(final File archive, final String packageName, ClassCriteria classCriteria) throws IOException, ClassNotFoundException, IntrospectionException {
+        Class<?>[] classes = TestReflectionUtils.findClasses(archive, packageName, classCriteria);
+        testClasses(classes);
+    }
+
+    /**
+     * @return True if the generated tester of the class passed all fields, false if the fields must be tested as usual.
+     */
+    private static boolean testGeneratedSettersAndGetters(final Class<?> clazz, List<GetterSetter> gettersAndSetters) {
+        ToIntFunction<Object[]> tester = BeanTesterGenerator.getTester(clazz, gettersAndSetters);
+        if (tester == null) {
+            return Boolean.FALSE;
+        }
+
+        try {
+            Object[] values = new Object[gettersAndSetters.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = TestTypeFactory.createType(gettersAndSetters.get(i).getGetter().getReturnType());
+            }
+
+            int failedIndex = tester.applyAsInt(values);
+            if (failedIndex < 0) {
+                return Boolean.TRUE;
+            }
+            LOGGER.debug("Generated tester of class {} failed for field {}, so testing fields as usual", clazz.getName(), gettersAndSetters.get(failedIndex).getName());
+        } catch (Exception e) {
+            LOGGER.debug("Generated tester of class {} failed, so testing fields as usual", clazz.getName(), e);
+        }
+        return Boolean.FALSE;
+    }
+
     private static void testSetterAndGetter(final Class<?> clazz, GetterSetter getterSetter) {
-        final PropertyDescriptor descriptor = getterSetter.getDescriptor();
+        if (getterSetter instanceof PrimitiveGetterSetter) {
+            testPrimitiveSetterAndGetter(clazz, (PrimitiveGetterSetter) getterSetter);
+            return;
+        }
+
+        final String fieldName = getterSetter.getName();
         final Method getterMethod = getterSetter.getGetter();
-        final Method setterMethod = getterSetter.getSetter();
         final Class<?> returnType = getterMethod.getReturnType();
 
         try {
@@ -175,25 +296,43 @@ public final class JavaBeanTester {
 
             final Object bean = TestReflectionUtils.createBean(clazz);
 
-            setterMethod.invoke(bean, expectedType);
+            getterSetter.set(bean, expectedType);
 
-            final Object actualType = getterMethod.invoke(bean);
+            final Object actualType = getterSetter.get(bean);
 
-            assertThat("Failed when testing field " + descriptor.getName(), expectedType, is(actualType));
+            assertThat("Failed when testing field " + fieldName, expectedType, is(actualType));
 
         } catch (ObjectInstantiationException e) {
-            String error = String.format(OBJECT_INSTANTIATION_EXCEPTION_MESSAGE_FORMAT, descriptor.getName(), returnType.getName(), clazz.getName());
+            String error = String.format(OBJECT_INSTANTIATION_EXCEPTION_MESSAGE_FORMAT, fieldName, returnType.getName(), clazz.getName());
             LOGGER.error(error, e);
             fail(error);
         } catch (Exception e) {
-            String error = String.format(GENERAL_EXCEPTION_MESSAGE_FORMAT, descriptor.getName(), clazz.getName());
+            String error = String.format(GENERAL_EXCEPTION_MESSAGE_FORMAT, fieldName, clazz.getName());
+            LOGGER.error(error, e);
+            fail(String.format("%s: %s", error, e.toString()));
+        }
+    }
+
+    private static void testPrimitiveSetterAndGetter(final Class<?> clazz, PrimitiveGetterSetter getterSetter) {
+        final String fieldName = getterSetter.getName();
+
+        try {
+            final Object bean = TestReflectionUtils.createBean(clazz);
+
+            if (!getterSetter.testPrimitive(bean)) {
+                // Only a failing field pays for boxing the values for the message
+                final Object expectedType = TestTypeFactory.createType(getterSetter.getGetter().getReturnType());
+                assertThat("Failed when testing field " + fieldName, expectedType, is(getterSetter.get(bean)));
+            }
+        } catch (Exception e) {
+            String error = String.format(GENERAL_EXCEPTION_MESSAGE_FORMAT, fieldName, clazz.getName());
             LOGGER.error(error, e);
             fail(String.format("%s: %s", error, e.toString()));
         }
     }
 
     private static void testConstructorAndGetter(final Class<?> clazz, Getter getter) {
-        final PropertyDescriptor descriptor = getter.getDescriptor();
+        final String fieldName = getter.getName();
         final Method getterMethod = getter.getGetter();
         final Class<?> returnType = getterMethod.getReturnType();
 
@@ -206,16 +345,16 @@ public final class JavaBeanTester {
                 testConstructorAndGetter(constructor, getter, expectedType);
             }
         } catch (ObjectInstantiationException e) {
-            String error = String.format(OBJECT_INSTANTIATION_EXCEPTION_MESSAGE_FORMAT, descriptor.getName(), returnType.getName(), clazz.getName());
+            String error = String.format(OBJECT_INSTANTIATION_EXCEPTION_MESSAGE_FORMAT, fieldName, returnType.getName(), clazz.getName());
             LOGGER.error(error, e);
             fail(error);
         } catch (Exception e) {
-            LOGGER.trace(String.format(GENERAL_EXCEPTION_MESSAGE_FORMAT, descriptor.getName(), clazz.getName()), e);
+            LOGGER.trace(String.format(GENERAL_EXCEPTION_MESSAGE_FORMAT, fieldName, clazz.getName()), e);
         }
     }
 
     private static void testConstructorAndGetter(final Constructor<?> constructor, Getter getter, final Object expectedType) {
-        final PropertyDescriptor descriptor = getter.getDescriptor();
+        final String fieldName = getter.getName();
         final Method getterMethod = getter.getGetter();
 
         Class<?>[] params = constructor.getParameterTypes();
@@ -232,13 +371,13 @@ public final class JavaBeanTester {
         try {
             final Object bean = TestReflectionUtils.createBean(constructor, args);
 
-            final Object actualType = getterMethod.invoke(bean);
+            final Object actualType = getter.get(bean);
 
             if (actualType != expectedType) {
                 LOGGER.warn("Constructor did not set same class field as used for getter");
             }
         } catch (Exception e) {
-            LOGGER.trace(String.format(GENERAL_EXCEPTION_MESSAGE_FORMAT, descriptor.getName(), constructor.getDeclaringClass().getName()), e);
+            LOGGER.trace(String.format(GENERAL_EXCEPTION_MESSAGE_FORMAT, fieldName, constructor.getDeclaringClass().getName()), e);
         }
     }
 }
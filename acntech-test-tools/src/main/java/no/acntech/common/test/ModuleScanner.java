@@ -0,0 +1,61 @@
+package no.acntech.common.test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Searches named modules for classes. There are no modules before Java 9, so this version finds nothing.
+ * The version used on Java 9 and later is in the <b>src/main/java9</b> source folder, and is packaged in the
+ * multi-release section of the jar when building with Java 9 or later.
+ */
+final class ModuleScanner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ModuleScanner.class);
+
+    private ModuleScanner() {
+    }
+
+    /**
+     * @return If the running Java version has modules.
+     */
+    static boolean isSupported() {
+        return Boolean.FALSE;
+    }
+
+    /**
+     * Find the named modules of the boot layer holding any of the packages.
+     *
+     * @param packages Packages to search.
+     * @return Locations of the modules by module name.
+     */
+    static Map<String, URI> findModules(PackageTrie packages) {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * @param moduleName Name of the module.
+     * @return The classloader defining the classes of the module.
+     */
+    static ClassLoader getClassLoader(String moduleName) {
+        return TestReflectionUtils.class.getClassLoader();
+    }
+
+    /**
+     * Visit the classes of the packages in a module that are not excluded by their path.
+     *
+     * @param moduleName    Name of the module.
+     * @param packages      Packages to search.
+     * @param classCriteria Package search criteria for classes.
+     * @param visitor       Visitor of the classes found.
+     * @throws IOException            If reading the module fails.
+     * @throws ClassNotFoundException If creating class for a class name fails.
+     */
+    static void visitClasses(String moduleName, PackageTrie packages, ClassCriteria classCriteria, TestReflectionUtils.ClassVisitor visitor) throws IOException, ClassNotFoundException {
+        LOGGER.debug("Modules are not supported before Java 9, so skipping module {}", moduleName);
+    }
+}
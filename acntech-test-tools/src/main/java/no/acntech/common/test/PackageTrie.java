@@ -0,0 +1,128 @@
+package no.acntech.common.test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prefix trie of the packages to search. Packages below a package that is already searched recursively are merged into it,
+ * so every directory and jar entry is matched against the packages in a single pass, and no package is searched twice.
+ */
+final class PackageTrie {
+
+    private static final char PKG_SEPARATOR = '.';
+    private final boolean recursive;
+    private final Node root = new Node();
+
+    /**
+     * @param recursive    If child packages of the packages are searched too.
+     * @param packageNames Names of the packages to search.
+     */
+    PackageTrie(boolean recursive, String... packageNames) {
+        if (packageNames == null) {
+            throw new IllegalArgumentException("Package names is null");
+        }
+
+        this.recursive = recursive;
+        for (String packageName : packageNames) {
+            add(packageName);
+        }
+    }
+
+    private void add(String packageName) {
+        if (packageName == null) {
+            throw new IllegalArgumentException("Package name is null");
+        }
+
+        Node node = root;
+        for (int start = 0; start < packageName.length(); ) {
+            int end = packageName.indexOf(PKG_SEPARATOR, start);
+            if (end < 0) {
+                end = packageName.length();
+            }
+            node = node.children.computeIfAbsent(packageName.substring(start, end), segment -> new Node());
+            start = end + 1;
+        }
+        node.packageName = packageName;
+    }
+
+    /**
+     * @return Names of the packages to search, without the packages covered by a recursively searched parent package.
+     */
+    List<String> getPackageNames() {
+        List<String> packageNames = new ArrayList<>();
+        collectPackageNames(root, packageNames);
+        return packageNames;
+    }
+
+    /**
+     * @return Name of the deepest package that is a parent of, or equal to, all the packages to search.
+     */
+    String getCommonPackageName() {
+        Node node = root;
+        String commonPackageName = "";
+        while (node.packageName == null && node.children.size() == 1) {
+            Map.Entry<String, Node> child = node.children.entrySet().iterator().next();
+            commonPackageName = commonPackageName.isEmpty() ? child.getKey() : commonPackageName + PKG_SEPARATOR + child.getKey();
+            node = child.getValue();
+        }
+        return commonPackageName;
+    }
+
+    /**
+     * Find the package to search that a package belongs to, being the package itself or, for a recursive search, a parent package.
+     *
+     * @param path      Path holding the package, with the given separator between the package names.
+     * @param start     Start of the package within the path.
+     * @param end       End of the package within the path.
+     * @param separator Separator between the package names in the path.
+     * @return End of the package to search within the path, or -1 if the package is not searched.
+     */
+    int findSearchedPackage(CharSequence path, int start, int end, char separator) {
+        Node node = root;
+        int position = start;
+        int nodeEnd = start;
+        while (true) {
+            if (node.packageName != null && (recursive || position >= end)) {
+                return nodeEnd;
+            } else if (position >= end) {
+                return -1;
+            }
+
+            int segmentEnd = position;
+            while (segmentEnd < end && path.charAt(segmentEnd) != separator) {
+                segmentEnd++;
+            }
+            node = node.children.get(path.subSequence(position, segmentEnd).toString());
+            if (node == null) {
+                return -1;
+            }
+            nodeEnd = segmentEnd;
+            position = segmentEnd + 1;
+        }
+    }
+
+    private void collectPackageNames(Node node, List<String> packageNames) {
+        if (node.packageName != null) {
+            packageNames.add(node.packageName);
+            if (recursive) {
+                return;
+            }
+        }
+        for (Node child : node.children.values()) {
+            collectPackageNames(child, packageNames);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getPackageNames().toString();
+    }
+
+    private static final class Node {
+
+        private final Map<String, Node> children = new LinkedHashMap<>();
+        private String packageName;
+    }
+}
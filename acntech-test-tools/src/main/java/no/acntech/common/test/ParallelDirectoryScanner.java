@@ -0,0 +1,178 @@
+package no.acntech.common.test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Searches package directories for classes using a fork/join pool. Every sub directory is scanned by a separate task,
+ * so idle workers can steal sub trees from busy ones. Each task keeps its classes and sub tasks in directory order, and the
+ * results are joined in that order, so the classes found, and the classes kept when the max class limit is reached, are
+ * the same as for the sequential search. A task stops reading its directory once it alone has found enough classes for the
+ * limit. The workers load the classes without initializing them, so static initializers never run on several threads at
+ * once, and the classes are initialized afterwards on the calling thread unless the search criteria skips initialization.
+ */
+final class ParallelDirectoryScanner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelDirectoryScanner.class);
+    private final ClassCriteria classCriteria;
+    private final List<Class<?>> classes = new ArrayList<>();
+    private final int classCount;
+
+    ParallelDirectoryScanner(ClassCriteria classCriteria) {
+        this(classCriteria, 0);
+    }
+
+    /**
+     * @param classCriteria Class search criteria.
+     * @param classCount    Number of classes already found, counted against the max class limit.
+     */
+    ParallelDirectoryScanner(ClassCriteria classCriteria, int classCount) {
+        if (classCriteria == null) {
+            throw new IllegalArgumentException("Class search criteria is null");
+        }
+        this.classCriteria = classCriteria;
+        this.classCount = classCount;
+    }
+
+    /**
+     * Scan a package directory, and all child package directories if the search is recursive.
+     *
+     * @param directory   Directory to scan.
+     * @param packageName Name of the package the directory represents.
+     * @throws IOException            If reading a directory fails.
+     * @throws ClassNotFoundException If creating class for a class name fails.
+     */
+    void scan(Path directory, String packageName) throws IOException, ClassNotFoundException {
+        if (!Files.isDirectory(directory)) {
+            LOGGER.debug("Directory {} does not exist, so skipping directory", directory);
+            return;
+        }
+
+        ScanTask task = new ScanTask(directory.toAbsolutePath(), packageName, getRemainingLimit());
+        try {
+            ForkJoinPool.commonPool().invoke(task);
+        } catch (TestException e) {
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof ClassNotFoundException) {
+                    throw (ClassNotFoundException) cause;
+                } else if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+            }
+            throw e;
+        }
+
+        List<Class<?>> foundClasses = new ArrayList<>();
+        task.collect(foundClasses, getRemainingLimit());
+        if (!classCriteria.isSkipInitialization()) {
+            for (Class<?> clazz : foundClasses) {
+                Class.forName(clazz.getName(), Boolean.TRUE, clazz.getClassLoader());
+            }
+        }
+        classes.addAll(foundClasses);
+    }
+
+    boolean isLimitReached() {
+        return getRemainingLimit() <= 0;
+    }
+
+    List<Class<?>> getClasses() {
+        return new ArrayList<>(classes);
+    }
+
+    private int getRemainingLimit() {
+        return classCriteria.getMaxClassLimit() - classCount - classes.size();
+    }
+
+    private final class ScanTask extends RecursiveAction {
+
+        private final Path directory;
+        private final String packageName;
+        private final int limit;
+        // Classes and sub tasks in directory order
+        private final List<Object> results = new ArrayList<>();
+
+        private ScanTask(Path directory, String packageName, int limit) {
+            this.directory = directory;
+            this.packageName = packageName;
+            this.limit = limit;
+        }
+
+        /**
+         * Add the classes found by the task and its sub tasks to a list, in directory order, until the limit is reached.
+         */
+        private void collect(List<Class<?>> foundClasses, int collectLimit) {
+            for (Object result : results) {
+                if (foundClasses.size() >= collectLimit) {
+                    return;
+                } else if (result instanceof ScanTask) {
+                    ((ScanTask) result).collect(foundClasses, collectLimit);
+                } else {
+                    foundClasses.add((Class<?>) result);
+                }
+            }
+        }
+
+        @Override
+        protected void compute() {
+            LOGGER.debug("Searching for classes in package {} in directory {}", packageName, directory);
+
+            List<ScanTask> subTasks = new ArrayList<>();
+            ClassFilter classFilter = classCriteria.getClassFilter();
+            int taskClassCount = 0;
+
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                for (Path path : stream) {
+                    if (taskClassCount >= limit) {
+                        break;
+                    }
+
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    String fileName = path.getFileName().toString();
+
+                    if (attributes.isDirectory()) {
+                        if (classFilter.isDirectoryExcluded(path.toString())) {
+                            continue;
+                        } else if (!classCriteria.isRecursiveSearch()) {
+                            LOGGER.trace("Non recursive search criteria specified, so skipping directory");
+                        } else if (fileName.indexOf('.') >= 0) {
+                            LOGGER.debug("Directory {} contains character ., so skipping directory", path);
+                        } else {
+                            ScanTask subTask = new ScanTask(path, packageName + '.' + fileName, limit);
+                            subTask.fork();
+                            subTasks.add(subTask);
+                            results.add(subTask);
+                        }
+                    } else if (attributes.isRegularFile()) {
+                        if (classFilter.isPathExcluded(path.toString())) {
+                            continue;
+                        }
+                        Class<?> clazz = TestReflectionUtils.loadClassFile(path, packageName, classCriteria, Boolean.FALSE);
+                        if (clazz != null) {
+                            results.add(clazz);
+                            taskClassCount++;
+                        }
+                    } else {
+                        LOGGER.debug("File {} is not a directory nor a file, so skipping", fileName);
+                    }
+                }
+            } catch (IOException | ClassNotFoundException e) {
+                throw new TestException("Failed to search for classes in directory " + directory, e);
+            }
+
+            for (ScanTask subTask : subTasks) {
+                subTask.join();
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package no.acntech.common.test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Checks of arguments against parameter types, done before calling a method handle, so a call with arguments of the wrong type
+ * fails with an <b>IllegalArgumentException</b> like a reflective call, instead of failing inside the method handle.
+ */
+final class ParameterTypes {
+
+    private static final Map<Class<?>, Class<?>> WRAPPERS = new HashMap<>();
+
+    static {
+        WRAPPERS.put(boolean.class, Boolean.class);
+        WRAPPERS.put(byte.class, Byte.class);
+        WRAPPERS.put(short.class, Short.class);
+        WRAPPERS.put(char.class, Character.class);
+        WRAPPERS.put(int.class, Integer.class);
+        WRAPPERS.put(long.class, Long.class);
+        WRAPPERS.put(float.class, Float.class);
+        WRAPPERS.put(double.class, Double.class);
+    }
+
+    private ParameterTypes() {
+    }
+
+    /**
+     * @param type A type.
+     * @return The wrapper of the type if it is a primitive, else the type itself.
+     */
+    static Class<?> wrap(Class<?> type) {
+        return type.isPrimitive() ? WRAPPERS.get(type) : type;
+    }
+
+    /**
+     * A primitive parameter only takes a value of its own wrapper, as a method handle unboxes without widening.
+     *
+     * @param type  Type of a parameter.
+     * @param value Argument given for the parameter.
+     * @return True if the argument can be given for the parameter.
+     */
+    static boolean isAssignable(Class<?> type, Object value) {
+        return value == null ? !type.isPrimitive() : wrap(type).isInstance(value);
+    }
+
+    /**
+     * @param types  Types of the parameters.
+     * @param values Arguments given for the parameters.
+     * @return True if every argument can be given for its parameter.
+     */
+    static boolean isAssignable(Class<?>[] types, Object[] values) {
+        if (types.length != values.length) {
+            return Boolean.FALSE;
+        }
+        for (int i = 0; i < types.length; i++) {
+            if (!isAssignable(types[i], values[i])) {
+                return Boolean.FALSE;
+            }
+        }
+        return Boolean.TRUE;
+    }
+}
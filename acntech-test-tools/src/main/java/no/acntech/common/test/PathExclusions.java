@@ -0,0 +1,115 @@
+package no.acntech.common.test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The path exclusions of a <b>ClassCriteria</b> compiled once into a single matcher.
+ * All regular expressions are combined into one pattern, searched for anywhere in the path,
+ * and all globs are combined into one pattern, matched against the whole path using <b>/</b> as separator.
+ * Matchers and buffers are reused per thread, so matching a path does not allocate. The matchers of a thread do not refer
+ * back to the exclusions, so they are dropped from the thread once the exclusions are no longer used.
+ */
+final class PathExclusions {
+
+    private static final char GLOB_SEPARATOR = '/';
+    private static final Pattern BACK_REFERENCE = Pattern.compile("\\\\([1-9]|k<)");
+    private final Pattern regexPattern;
+    private final Pattern[] backReferenceRegexPatterns;
+    private final Pattern globPattern;
+    private final ThreadLocal<Matchers> matchers;
+
+    PathExclusions(Collection<String> pathRegexes, Collection<String> pathGlobs) {
+        List<String> regexes = new ArrayList<>();
+        List<Pattern> backReferenceRegexes = new ArrayList<>();
+        for (String pathRegex : pathRegexes) {
+            // Combining shifts the group numbers, so regular expressions with back references are kept separate
+            if (BACK_REFERENCE.matcher(pathRegex).find()) {
+                backReferenceRegexes.add(Pattern.compile(pathRegex));
+            } else {
+                regexes.add("(?:" + pathRegex + ")");
+            }
+        }
+
+        List<String> globs = new ArrayList<>();
+        for (String pathGlob : pathGlobs) {
+            globs.add("(?:" + GlobPattern.toRegex(pathGlob, GLOB_SEPARATOR) + ")");
+        }
+
+        Pattern regex = regexes.isEmpty() ? null : Pattern.compile(String.join("|", regexes));
+        Pattern[] backReferenceRegex = backReferenceRegexes.toArray(new Pattern[backReferenceRegexes.size()]);
+        Pattern glob = globs.isEmpty() ? null : Pattern.compile(String.join("|", globs));
+        this.regexPattern = regex;
+        this.backReferenceRegexPatterns = backReferenceRegex;
+        this.globPattern = glob;
+        // Only the patterns are captured, as a value referring to the exclusions would keep its thread local key reachable
+        this.matchers = ThreadLocal.withInitial(() -> new Matchers(regex, backReferenceRegex, glob));
+    }
+
+    boolean isEmpty() {
+        return regexPattern == null && backReferenceRegexPatterns.length == 0 && globPattern == null;
+    }
+
+    /**
+     * @param path Path of a file.
+     * @return If the file is excluded.
+     */
+    boolean isExcluded(CharSequence path) {
+        return !isEmpty() && matchers.get().isExcluded(path, Boolean.FALSE);
+    }
+
+    /**
+     * Globs are matched against the directory path with a trailing separator,
+     * so a glob like <b>**&#47;generated&#47;**</b> excludes the whole directory before it is searched.
+     *
+     * @param path Path of a directory.
+     * @return If the directory, and everything in it, is excluded.
+     */
+    boolean isDirectoryExcluded(CharSequence path) {
+        return !isEmpty() && matchers.get().isExcluded(path, Boolean.TRUE);
+    }
+
+    private static final class Matchers {
+
+        private final Matcher regexMatcher;
+        private final Matcher[] backReferenceRegexMatchers;
+        private final Matcher globMatcher;
+        private final StringBuilder globPath = new StringBuilder();
+
+        private Matchers(Pattern regexPattern, Pattern[] backReferenceRegexPatterns, Pattern globPattern) {
+            this.regexMatcher = regexPattern == null ? null : regexPattern.matcher("");
+            this.backReferenceRegexMatchers = new Matcher[backReferenceRegexPatterns.length];
+            this.globMatcher = globPattern == null ? null : globPattern.matcher("");
+            for (int i = 0; i < backReferenceRegexMatchers.length; i++) {
+                backReferenceRegexMatchers[i] = backReferenceRegexPatterns[i].matcher("");
+            }
+        }
+
+        private boolean isExcluded(CharSequence path, boolean directory) {
+            if (regexMatcher != null && regexMatcher.reset(path).find()) {
+                return Boolean.TRUE;
+            }
+            for (Matcher matcher : backReferenceRegexMatchers) {
+                if (matcher.reset(path).find()) {
+                    return Boolean.TRUE;
+                }
+            }
+            if (globMatcher != null) {
+                globPath.setLength(0);
+                for (int i = 0; i < path.length(); i++) {
+                    char c = path.charAt(i);
+                    globPath.append(c == File.separatorChar ? GLOB_SEPARATOR : c);
+                }
+                if (directory) {
+                    globPath.append(GLOB_SEPARATOR);
+                }
+                return globMatcher.reset(globPath).matches();
+            }
+            return Boolean.FALSE;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package no.acntech.common.test;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Getter and setter of a primitive field, with method handles typed to the primitive itself, so a field is set and read back
+ * without boxing the value. The value set is the same as the value given for the primitive by <b>TestTypeFactory</b>.
+ */
+class PrimitiveGetterSetter extends GetterSetter {
+
+    private Class<?> type;
+    private MethodHandle primitiveGetterHandle;
+    private MethodHandle primitiveSetterHandle;
+
+    PrimitiveGetterSetter(String name, Method getter, MethodHandle getterHandle, Method setter, MethodHandle setterHandle) {
+        super(name, getter, getterHandle.asType(BeanProperties.GETTER_TYPE), setter, setterHandle.asType(BeanProperties.SETTER_TYPE));
+        this.type = getter.getReturnType();
+        // Only the bean is adapted, so the primitive is never boxed
+        this.primitiveGetterHandle = getterHandle.asType(MethodType.methodType(type, Object.class));
+        this.primitiveSetterHandle = setterHandle.asType(MethodType.methodType(void.class, Object.class, type));
+    }
+
+    /**
+     * @param type A type.
+     * @return True if the type is a primitive with a test value.
+     */
+    static boolean isPrimitive(Class<?> type) {
+        return type == boolean.class || type == int.class || type == long.class || type == double.class
+                || type == float.class || type == char.class || type == byte.class || type == short.class;
+    }
+
+    /**
+     * Set the field to the test value of the primitive, and read the field back.
+     *
+     * @param bean The bean to set and get the field of.
+     * @return True if the getter gives the value set.
+     * @throws IllegalArgumentException  If the bean is not an instance of the class of the getter and setter.
+     * @throws InvocationTargetException If the getter or setter throws an exception.
+     */
+    boolean testPrimitive(Object bean) throws InvocationTargetException {
+        checkBean(bean);
+        try {
+            if (type == boolean.class) {
+                primitiveSetterHandle.invokeExact(bean, TestTypeFactory.BOOLEAN_VALUE);
+                return (boolean) primitiveGetterHandle.invokeExact(bean) == TestTypeFactory.BOOLEAN_VALUE;
+            } else if (type == int.class) {
+                primitiveSetterHandle.invokeExact(bean, TestTypeFactory.INT_VALUE);
+                return (int) primitiveGetterHandle.invokeExact(bean) == TestTypeFactory.INT_VALUE;
+            } else if (type == long.class) {
+                primitiveSetterHandle.invokeExact(bean, TestTypeFactory.LONG_VALUE);
+                return (long) primitiveGetterHandle.invokeExact(bean) == TestTypeFactory.LONG_VALUE;
+            } else if (type == double.class) {
+                primitiveSetterHandle.invokeExact(bean, TestTypeFactory.DOUBLE_VALUE);
+                // Compared like Double.equals, as the boxed values are
+                return Double.doubleToLongBits((double) primitiveGetterHandle.invokeExact(bean)) == Double.doubleToLongBits(TestTypeFactory.DOUBLE_VALUE);
+            } else if (type == float.class) {
+                primitiveSetterHandle.invokeExact(bean, TestTypeFactory.FLOAT_VALUE);
+                return Float.floatToIntBits((float) primitiveGetterHandle.invokeExact(bean)) == Float.floatToIntBits(TestTypeFactory.FLOAT_VALUE);
+            } else if (type == char.class) {
+                primitiveSetterHandle.invokeExact(bean, TestTypeFactory.CHAR_VALUE);
+                return (char) primitiveGetterHandle.invokeExact(bean) == TestTypeFactory.CHAR_VALUE;
+            } else if (type == byte.class) {
+                primitiveSetterHandle.invokeExact(bean, TestTypeFactory.BYTE_VALUE);
+                return (byte) primitiveGetterHandle.invokeExact(bean) == TestTypeFactory.BYTE_VALUE;
+            } else {
+                primitiveSetterHandle.invokeExact(bean, TestTypeFactory.SHORT_VALUE);
+                return (short) primitiveGetterHandle.invokeExact(bean) == TestTypeFactory.SHORT_VALUE;
+            }
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e);
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package no.acntech.common.test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Persistent cache of package directory scans, so later test runs do not have to list directories and read class files again.
+ * Directories are validated by their last modified time, which changes whenever an entry is added or removed,
+ * and class files are validated by their size and last modified time. A warm scan of an unchanged tree is then a stat
+ * of every directory and class file. Anything modified within the timestamp granularity of the scan is not trusted on the next run,
+ * as a later modification could have kept the same timestamp.
+ */
+final class ScanCache {
+
+    /**
+     * Default location of the cache file, relative to the working directory of the test run.
+     */
+    static final String DEFAULT_CACHE_FILE = "target/acntech-test-tools/scan-cache.bin";
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScanCache.class);
+    private static final int MAGIC = 0x41545343;
+    private static final int VERSION = 1;
+    private static final long UNKNOWN = -1L;
+    private static final long TIMESTAMP_GRANULARITY = 2000L;
+    private static final String CLASS_FILE_SUFFIX = ".class";
+    private final Path file;
+    private final Map<String, Directory> directories;
+    private final Set<String> visitedDirectories = new HashSet<>();
+    private boolean modified;
+
+    private ScanCache(Path file, Map<String, Directory> directories) {
+        this.file = file;
+        this.directories = directories;
+    }
+
+    /**
+     * Load the cache from a file. A missing, unreadable or outdated cache file gives an empty cache.
+     *
+     * @param file Cache file.
+     * @return The cache.
+     */
+    static ScanCache load(Path file) {
+        if (file == null) {
+            throw new IllegalArgumentException("Cache file is null");
+        }
+
+        ScanCache scanCache = new ScanCache(file, new HashMap<>());
+        if (!Files.isRegularFile(file)) {
+            LOGGER.debug("Scan cache {} does not exist, so starting with an empty cache", file);
+            return scanCache;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                LOGGER.debug("Scan cache {} has an unknown format, so starting with an empty cache", file);
+                return scanCache;
+            }
+
+            int directoryCount = in.readInt();
+            for (int i = 0; i < directoryCount; i++) {
+                Directory directory = scanCache.readDirectory(in);
+                scanCache.directories.put(directory.path.toString(), directory);
+            }
+            LOGGER.debug("Loaded scan cache {} with {} directories", file, scanCache.directories.size());
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Unable to read scan cache {}, so starting with an empty cache", file, e);
+            scanCache.directories.clear();
+        }
+        return scanCache;
+    }
+
+    /**
+     * Get the entries of a directory, listing the directory only if it has changed since it was cached.
+     *
+     * @param path Absolute path of the directory.
+     * @return The directory entries.
+     * @throws IOException If reading the directory fails.
+     */
+    Directory getDirectory(Path path) throws IOException {
+        String key = path.toString();
+        visitedDirectories.add(key);
+
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+        long now = System.currentTimeMillis();
+        Directory cached = directories.get(key);
+        if (cached != null && cached.lastModified == lastModified && isValid(cached)) {
+            LOGGER.trace("Directory {} is unchanged since it was cached", path);
+            return cached;
+        }
+
+        LOGGER.trace("Directory {} has changed since it was cached, so listing directory", path);
+        Directory directory = new Directory(path, trusted(lastModified, now));
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+            for (Path child : stream) {
+                BasicFileAttributes attributes = Files.readAttributes(child, BasicFileAttributes.class);
+                String name = child.getFileName().toString();
+                if (attributes.isDirectory()) {
+                    directory.subDirectories.add(name);
+                } else if (attributes.isRegularFile() && name.endsWith(CLASS_FILE_SUFFIX)) {
+                    ClassFile classFile = cached == null ? null : cached.classFiles.get(name);
+                    if (classFile == null || !classFile.isValid(attributes)) {
+                        classFile = new ClassFile(child, attributes.size(), trusted(attributes.lastModifiedTime().toMillis(), now), null);
+                    }
+                    directory.classFiles.put(name, classFile);
+                }
+            }
+        }
+
+        directories.put(key, directory);
+        modified = Boolean.TRUE;
+        return directory;
+    }
+
+    /**
+     * Write the cache back to its file if anything changed. The file is replaced atomically,
+     * so concurrent test runs sharing the cache never see a partially written file.
+     *
+     * @throws IOException If writing the cache file fails.
+     */
+    void save() throws IOException {
+        // Directories not visited by this scan may belong to other packages, so only those that are gone are dropped
+        boolean pruned = directories.keySet().removeIf(key -> !visitedDirectories.contains(key) && !Files.isDirectory(directories.get(key).path));
+        if (!modified && !pruned) {
+            LOGGER.trace("Scan cache {} is unchanged, so not writing cache", file);
+            return;
+        }
+
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporaryFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(directories.size());
+                for (Directory cachedDirectory : directories.values()) {
+                    cachedDirectory.writeTo(out);
+                }
+            }
+            try {
+                Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+
+        modified = Boolean.FALSE;
+        LOGGER.debug("Wrote scan cache {} with {} directories", file, directories.size());
+    }
+
+    /**
+     * An unchanged directory still has the same class files, but they may have been rewritten in place.
+     */
+    private static boolean isValid(Directory directory) throws IOException {
+        for (ClassFile classFile : directory.classFiles.values()) {
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(classFile.path, BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                return Boolean.FALSE;
+            }
+            if (!classFile.isValid(attributes)) {
+                return Boolean.FALSE;
+            }
+        }
+        return Boolean.TRUE;
+    }
+
+    private Directory readDirectory(DataInputStream in) throws IOException {
+        Path path = Paths.get(in.readUTF());
+        Directory directory = new Directory(path, in.readLong());
+        int subDirectoryCount = in.readInt();
+        for (int i = 0; i < subDirectoryCount; i++) {
+            directory.subDirectories.add(in.readUTF());
+        }
+        int classFileCount = in.readInt();
+        for (int i = 0; i < classFileCount; i++) {
+            String name = in.readUTF();
+            long size = in.readLong();
+            long lastModified = in.readLong();
+            ClassFileInfo classFileInfo = in.readBoolean() ? ClassFileInfo.readFrom(in) : null;
+            directory.classFiles.put(name, new ClassFile(path.resolve(name), size, lastModified, classFileInfo));
+        }
+        return directory;
+    }
+
+    private static long trusted(long lastModified, long now) {
+        return now - lastModified < TIMESTAMP_GRANULARITY ? UNKNOWN : lastModified;
+    }
+
+    /**
+     * The cached entries of a package directory.
+     */
+    final class Directory {
+
+        private final Path path;
+        private final long lastModified;
+        private final List<String> subDirectories = new ArrayList<>();
+        private final Map<String, ClassFile> classFiles = new LinkedHashMap<>();
+
+        private Directory(Path path, long lastModified) {
+            this.path = path;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * @return Names of the sub directories.
+         */
+        List<String> getSubDirectories() {
+            return subDirectories;
+        }
+
+        Iterable<ClassFile> getClassFiles() {
+            return classFiles.values();
+        }
+
+        private void writeTo(DataOutputStream out) throws IOException {
+            out.writeUTF(path.toString());
+            out.writeLong(lastModified);
+            out.writeInt(subDirectories.size());
+            for (String subDirectory : subDirectories) {
+                out.writeUTF(subDirectory);
+            }
+            out.writeInt(classFiles.size());
+            for (Map.Entry<String, ClassFile> entry : classFiles.entrySet()) {
+                ClassFile classFile = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeLong(classFile.size);
+                out.writeLong(classFile.lastModified);
+                // Metadata of an untrusted class file is read again anyway, so it is not worth writing
+                ClassFileInfo classFileInfo = classFile.lastModified == UNKNOWN ? null : classFile.classFileInfo;
+                out.writeBoolean(classFileInfo != null);
+                if (classFileInfo != null) {
+                    classFileInfo.writeTo(out);
+                }
+            }
+        }
+    }
+
+    /**
+     * A cached class file. The class file metadata is read at most once, and then kept in the cache.
+     */
+    final class ClassFile implements ClassFileSource {
+
+        private final Path path;
+        private final long size;
+        private final long lastModified;
+        private ClassFileInfo classFileInfo;
+
+        private ClassFile(Path path, long size, long lastModified, ClassFileInfo classFileInfo) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.classFileInfo = classFileInfo;
+        }
+
+        Path getPath() {
+            return path;
+        }
+
+        /**
+         * @return Name of the class file without the class file ending.
+         */
+        String getSimpleName() {
+            String fileName = path.getFileName().toString();
+            return fileName.substring(0, fileName.length() - CLASS_FILE_SUFFIX.length());
+        }
+
+        @Override
+        public ByteBuffer read() throws IOException {
+            return ByteBuffer.wrap(Files.readAllBytes(path));
+        }
+
+        @Override
+        public ClassFileInfo readInfo() throws IOException {
+            if (classFileInfo == null) {
+                classFileInfo = ClassFileInfo.read(read());
+                modified = Boolean.TRUE;
+            }
+            return classFileInfo;
+        }
+
+        private boolean isValid(BasicFileAttributes attributes) {
+            return lastModified != UNKNOWN && lastModified == attributes.lastModifiedTime().toMillis() && size == attributes.size();
+        }
+    }
+}
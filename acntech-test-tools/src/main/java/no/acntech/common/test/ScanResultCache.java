@@ -0,0 +1,125 @@
+package no.acntech.common.test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of package search results shared by all searches in the JVM, so test classes searching the same packages with
+ * the same criteria only search once. Results are cached per classloader searched, and are dropped together with their
+ * classloader. Only the names of the classes are kept, as holding on to the classes would keep their classloader too.
+ * A search running in one thread is waited for by other threads asking for the same result, instead of being repeated.
+ */
+final class ScanResultCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScanResultCache.class);
+    private static final Map<ClassLoader, Map<List<Object>, CompletableFuture<String[]>>> RESULTS = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private ScanResultCache() {
+    }
+
+    /**
+     * A search giving the names of the classes found.
+     */
+    @FunctionalInterface
+    interface Search {
+
+        String[] run() throws IOException, ClassNotFoundException;
+    }
+
+    /**
+     * Get the result of a search, running the search if no other search in the JVM has given the result yet.
+     *
+     * @param classLoader   Classloader searched for packages.
+     * @param packages      Packages to search.
+     * @param classCriteria Package search criteria for classes.
+     * @param search        Search giving the result.
+     * @return Names of the classes found.
+     * @throws IOException            If the search fails reading using classloader.
+     * @throws ClassNotFoundException If the search fails creating class for a class name.
+     */
+    static String[] get(ClassLoader classLoader, PackageTrie packages, ClassCriteria classCriteria, Search search) throws IOException, ClassNotFoundException {
+        Map<List<Object>, CompletableFuture<String[]>> results = RESULTS.computeIfAbsent(classLoader, key -> new ConcurrentHashMap<>());
+        List<Object> key = createKey(packages, classCriteria);
+
+        CompletableFuture<String[]> result = new CompletableFuture<>();
+        CompletableFuture<String[]> sharedResult = results.putIfAbsent(key, result);
+        if (sharedResult != null) {
+            LOGGER.debug("Using shared search result for packages {}", packages);
+            return join(sharedResult);
+        }
+
+        try {
+            result.complete(search.run());
+        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+            // A failed search is not shared, so the next search tries again
+            results.remove(key, result);
+            result.completeExceptionally(e);
+            throw e;
+        }
+        return result.join();
+    }
+
+    private static String[] join(CompletableFuture<String[]> sharedResult) throws IOException, ClassNotFoundException {
+        try {
+            return sharedResult.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof ClassNotFoundException) {
+                throw (ClassNotFoundException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new TestException("Shared search failed", cause);
+        }
+    }
+
+    /**
+     * The key holds every criteria changing which classes are found, with sets sorted and classes given by name, so equal criteria
+     * built in a different order share a result. Criteria only changing how the search is done, like a scan cache, are left out.
+     */
+    private static List<Object> createKey(PackageTrie packages, ClassCriteria classCriteria) {
+        return Arrays.asList(
+                new TreeSet<>(packages.getPackageNames()),
+                classCriteria.getMaxClassLimit(),
+                classCriteria.isRecursiveSearch(),
+                classCriteria.isSearchModules(),
+                classCriteria.isExcludeInterfaces(),
+                classCriteria.isExcludeEnums(),
+                classCriteria.isExcludeAnnotations(),
+                classCriteria.isExcludeMemberClasses(),
+                new TreeSet<>(classCriteria.getExcludePathRegex()),
+                new TreeSet<>(classCriteria.getExcludePathGlobs()),
+                new TreeSet<>(classCriteria.getIncludeNames()),
+                new TreeSet<>(classCriteria.getExcludeNames()),
+                getClassNames(classCriteria.getRequiredSuperTypes()),
+                getClassNames(classCriteria.getRequiredAnnotations()),
+                getClassNames(classCriteria.getForbiddenAnnotations()),
+                classCriteria.getRequiredModifiers(),
+                classCriteria.getForbiddenModifiers(),
+                classCriteria.getShardIndex(),
+                classCriteria.getShardCount());
+    }
+
+    private static Set<String> getClassNames(Collection<? extends Class<?>> classes) {
+        Set<String> classNames = new TreeSet<>();
+        for (Class<?> clazz : classes) {
+            classNames.add(clazz.getName());
+        }
+        return classNames;
+    }
+}
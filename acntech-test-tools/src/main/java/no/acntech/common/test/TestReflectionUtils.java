@@ -4,22 +4,36 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.beans.IntrospectionException;
-import java.beans.Introspector;
-import java.beans.PropertyDescriptor;
 import java.io.File;
 import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.annotation.Inherited;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.net.JarURLConnection;
+import java.net.URI;
 import java.net.URL;
 import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public final class TestReflectionUtils {
 
@@ -27,6 +41,12 @@ public final class TestReflectionUtils {
     private static final char PKG_SEPARATOR = '.';
     private static final char DIR_SEPARATOR = '/';
     private static final String CLASS_FILE_SUFFIX = ".class";
+    private static final byte[] CLASS_FILE_SUFFIX_BYTES = CLASS_FILE_SUFFIX.getBytes(StandardCharsets.US_ASCII);
+    private static final String JAR_PROTOCOL = "jar";
+    private static final String FILE_PROTOCOL = "file";
+    private static final String JAR_ENTRY_SEPARATOR = "!/";
+    private static final String ARRAY_CLASS_PREFIX = "[";
+    private static final Object INITIALIZATION_LOCK = new Object();
 
     private TestReflectionUtils() {
     }
@@ -90,6 +110,14 @@ public final class TestReflectionUtils {
         return isClassExists(clazz.getName(), classLoader);
     }
 
+    /**
+     * Check if a classloader can load a class, without loading it. The answer is looked up in the class name index of the classloader,
+     * so a missing class does not cost a thrown exception, and repeated checks are a hash lookup.
+     *
+     * @param className   Fully qualified name of the class.
+     * @param classLoader Classloader to check.
+     * @return If the class exists.
+     */
     static boolean isClassExists(String className, final ClassLoader classLoader) {
         if (className == null) {
             throw new IllegalArgumentException("Class name is null");
@@ -99,12 +127,17 @@ public final class TestReflectionUtils {
             throw new IllegalArgumentException("ClassLoader is null");
         }
 
-        try {
-            Class.forName(className, Boolean.FALSE, classLoader);
-            return Boolean.TRUE;
-        } catch (ClassNotFoundException e) {
-            return Boolean.FALSE;
+        // Array classes have no class file, so they are resolved by loading them
+        if (className.startsWith(ARRAY_CLASS_PREFIX)) {
+            try {
+                Class.forName(className, Boolean.FALSE, classLoader);
+                return Boolean.TRUE;
+            } catch (ClassNotFoundException e) {
+                return Boolean.FALSE;
+            }
         }
+
+        return ClassNameIndex.get(classLoader).contains(className, classLoader);
     }
 
     static <T> T createBean(final Class<T> clazz, Object... args) throws IllegalAccessException, InvocationTargetException, InstantiationException {
@@ -120,62 +153,31 @@ public final class TestReflectionUtils {
             throw new IllegalArgumentException("Constructor is null");
         }
 
-        if (args == null || args.length == 0) {
-            return constructor.newInstance();
-        } else {
-            return constructor.newInstance(args);
-        }
+        return BeanConstructors.newInstance(constructor, args);
     }
 
     static <T> Constructor<T> findConstructorWithAllParamsMatch(final Class<T> clazz, final Class<?>... wantedParams) {
-        Constructor<T>[] constructors = findAllConstructors(clazz);
-
-        if (constructors != null) {
-            for (Constructor<T> constructor : constructors) {
-                Class<?>[] actualParams = constructor.getParameterTypes();
-                if (isAllParamsMatch(actualParams, wantedParams)) {
-                    return constructor;
-                }
-            }
-        }
-
-        throw new NoSuchConstructorException(clazz);
-    }
-
-    @SuppressWarnings("unchecked")
-    static <T> Constructor<T>[] findConstructorsWithParamMatch(final Class<T> clazz, final Class<?> wantedParam) {
-        Constructor<T>[] constructors = findAllConstructors(clazz);
-
-        List<Constructor<T>> matchedConstructors = new ArrayList<>();
-
-        if (constructors != null) {
-            for (Constructor<T> constructor : constructors) {
-                Class<?>[] actualParams = constructor.getParameterTypes();
-                if (isParamMatch(actualParams, wantedParam)) {
-                    matchedConstructors.add(constructor);
-                }
-            }
+        if (clazz == null) {
+            throw new IllegalArgumentException("Input class is null");
         }
 
-        if (matchedConstructors.isEmpty()) {
+        Constructor<T> constructor = BeanConstructors.findConstructorWithAllParamsMatch(clazz, wantedParams);
+        if (constructor == null) {
             throw new NoSuchConstructorException(clazz);
-        } else {
-            return matchedConstructors.toArray(new Constructor[matchedConstructors.size()]);
         }
+        return constructor;
     }
 
-    @SuppressWarnings("unchecked")
-    private static <T> Constructor<T>[] findAllConstructors(final Class<T> clazz) {
+    static <T> Constructor<T>[] findConstructorsWithParamMatch(final Class<T> clazz, final Class<?> wantedParam) {
         if (clazz == null) {
             throw new IllegalArgumentException("Input class is null");
         }
 
-        Constructor<?>[] constructors = clazz.getConstructors();
-        if (constructors.length > 0) {
-            return (Constructor<T>[]) constructors;
-        } else {
-            return (Constructor<T>[]) clazz.getDeclaredConstructors();
+        Constructor<T>[] constructors = BeanConstructors.findConstructorsWithParamMatch(clazz, wantedParam);
+        if (constructors.length == 0) {
+            throw new NoSuchConstructorException(clazz);
         }
+        return constructors;
     }
 
     /**
@@ -209,47 +211,719 @@ public final class TestReflectionUtils {
             throw new IllegalArgumentException("Package name is null");
         }
 
+        return findClasses(classCriteria, packageName);
+    }
+
+    /**
+     * Find classes within several packages depending on search criteria, in a single pass. The packages are merged first,
+     * so a package below another package that is searched recursively is not searched again, and every jar file holding any
+     * of the packages is read once. Classes found through several class path entries are only returned once.
+     *
+     * @param classCriteria Package search criteria for classes.
+     * @param packageNames  Package names to search for classes from.
+     * @return Classes found.
+     * @throws IOException            If reading using classloader fails.
+     * @throws ClassNotFoundException If creating class for a class name fails.
+     */
+    static Class<?>[] findClasses(ClassCriteria classCriteria, String... packageNames) throws IOException, ClassNotFoundException {
         if (classCriteria == null) {
             throw new IllegalArgumentException("Class search criteria is null");
         }
 
-        LOGGER.info("Searching for classes in package {}{}", packageName, classCriteria.isRecursiveSearch() ? " recursively" : "");
+        PackageTrie packages = new PackageTrie(classCriteria.isRecursiveSearch(), packageNames);
+
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        if (!classCriteria.isShareScan() || contextClassLoader == null) {
+            return findClasses(packages, classCriteria);
+        }
+
+        String[] classNames = ScanResultCache.get(contextClassLoader, packages, classCriteria, () -> {
+            Class<?>[] classes = findClasses(packages, classCriteria);
+            String[] names = new String[classes.length];
+            for (int i = 0; i < classes.length; i++) {
+                names[i] = classes[i].getName();
+            }
+            return names;
+        });
+
+        Class<?>[] classes = new Class[classNames.length];
+        for (int i = 0; i < classNames.length; i++) {
+            classes[i] = Class.forName(classNames[i], !classCriteria.isSkipInitialization(), classCriteria.getClassLoader(TestReflectionUtils.class.getClassLoader()));
+        }
+        return classes;
+    }
+
+    private static Class<?>[] findClasses(PackageTrie packages, ClassCriteria classCriteria) throws IOException, ClassNotFoundException {
+        LOGGER.info("Searching for classes in packages {}{}", packages, classCriteria.isRecursiveSearch() ? " recursively" : "");
+
+        Map<String, List<File>> directories = new LinkedHashMap<>();
+        Set<File> jarFiles = new LinkedHashSet<>();
+        Set<String> moduleNames = new LinkedHashSet<>();
+        findPackageResources(packages, classCriteria.isSearchModules(), directories, jarFiles, moduleNames);
 
+        List<Class<?>> classes = new ArrayList<>();
+        ClassIndex classIndex = openClassIndex(classCriteria);
+        ScanCache scanCache = classCriteria.getScanCache() == null ? null : ScanCache.load(classCriteria.getScanCache().toPath());
+        for (Map.Entry<String, List<File>> entry : directories.entrySet()) {
+            if (classes.size() >= classCriteria.getMaxClassLimit()) {
+                LOGGER.info("Number of classes found during package search has reached the max class limit of {}, so stopping search", classCriteria.getMaxClassLimit());
+                break;
+            }
+
+            classes.addAll(findClassesInDirectories(classIndex, scanCache, entry.getValue(), entry.getKey(), classCriteria, classes.size()));
+        }
+
+        if (scanCache != null) {
+            try {
+                scanCache.save();
+            } catch (IOException e) {
+                LOGGER.warn("Unable to write scan cache {}", classCriteria.getScanCache().getAbsolutePath(), e);
+            }
+        }
+
+        for (File jarFile : jarFiles) {
+            if (classes.size() >= classCriteria.getMaxClassLimit()) {
+                LOGGER.info("Number of classes found during package search has reached the max class limit of {}, so stopping search", classCriteria.getMaxClassLimit());
+                break;
+            }
+
+            classes.addAll(findClassesInJar(jarFile, packages, classCriteria, classes.size()));
+        }
+
+        for (String moduleName : moduleNames) {
+            if (classes.size() >= classCriteria.getMaxClassLimit()) {
+                LOGGER.info("Number of classes found during package search has reached the max class limit of {}, so stopping search", classCriteria.getMaxClassLimit());
+                break;
+            }
+
+            classes.addAll(findClassesInModule(moduleName, packages, classCriteria, classes.size()));
+        }
+
+        // The same class is found twice when its directory or jar file is on the class path under several names
+        Set<Class<?>> uniqueClasses = new LinkedHashSet<>(classes);
+        if (uniqueClasses.size() < classes.size()) {
+            LOGGER.debug("Dropped {} classes found more than once", classes.size() - uniqueClasses.size());
+        }
+
+        LOGGER.info("Found a total of {} classes in packages {}{}", uniqueClasses.size(), packages, classCriteria.isRecursiveSearch() ? " and all child packages" : "");
+
+        return uniqueClasses.toArray(new Class[uniqueClasses.size()]);
+    }
+
+    /**
+     * Find classes within several packages depending on search criteria, and keep watching the package directories for changed classes.
+     * Use this for continuous testing, where only the classes changed since the last run are tested again.
+     *
+     * @param classCriteria Package search criteria for classes.
+     * @param packageNames  Package names to search for classes from.
+     * @return Watcher of the classes found, which must be closed when no longer used.
+     * @throws IOException            If reading using classloader or watching a directory fails.
+     * @throws ClassNotFoundException If creating class for a class name fails.
+     * @see no.acntech.common.test.ClassWatcher
+     */
+    public static ClassWatcher watchClasses(ClassCriteria classCriteria, String... packageNames) throws IOException, ClassNotFoundException {
+        if (classCriteria == null) {
+            throw new IllegalArgumentException("Class search criteria is null");
+        }
+
+        PackageTrie packages = new PackageTrie(classCriteria.isRecursiveSearch(), packageNames);
+
+        Map<String, List<File>> directories = new LinkedHashMap<>();
+        findPackageResources(packages, Boolean.FALSE, directories, new LinkedHashSet<>(), new LinkedHashSet<>());
+
+        return new ClassWatcher(classCriteria, packages, directories, findClasses(classCriteria, packageNames));
+    }
+
+    /**
+     * Find the names of the classes within several packages depending on search criteria, without keeping any of the classes loaded.
+     * Classes the criteria have to load to be matched are loaded without being initialized, in a classloader of their own, which is
+     * released when the search is done. The metaspace used by the disposable classloader during the search is logged, which would
+     * otherwise be kept for the rest of the life of the JVM. Use this when the classes are only to be listed, like when partitioning or reporting on them.
+     *
+     * @param classCriteria Package search criteria for classes.
+     * @param packageNames  Package names to search for classes from.
+     * @return Names of the classes found.
+     * @throws IOException            If reading using classloader fails.
+     * @throws ClassNotFoundException If creating class for a class name fails.
+     */
+    public static String[] findClassNames(ClassCriteria classCriteria, String... packageNames) throws IOException, ClassNotFoundException {
+        if (classCriteria == null) {
+            throw new IllegalArgumentException("Class search criteria is null");
+        }
+
+        PackageTrie packages = new PackageTrie(classCriteria.isRecursiveSearch(), packageNames);
+        long metaspaceUsedBefore = DisposableClassLoader.getMetaspaceUsed();
+        DisposableClassLoader classLoader = new DisposableClassLoader(TestReflectionUtils.class.getClassLoader(), packages, classCriteria);
+
+        Class<?>[] classes = findClasses(classCriteria.copyWithClassLoader(classLoader), packageNames);
+        String[] classNames = new String[classes.length];
+        for (int i = 0; i < classes.length; i++) {
+            classNames[i] = classes[i].getName();
+        }
+
+        long metaspaceUsedAfter = DisposableClassLoader.getMetaspaceUsed();
+        if (metaspaceUsedBefore >= 0 && metaspaceUsedAfter >= 0) {
+            LOGGER.info("Loaded {} classes in a disposable classloader, using {} KB of metaspace until the classloader is collected",
+                    classLoader.getDefinedClassCount(), Math.max(metaspaceUsedAfter - metaspaceUsedBefore, 0) / 1024);
+        } else {
+            LOGGER.info("Loaded {} classes in a disposable classloader", classLoader.getDefinedClassCount());
+        }
+
+        return classNames;
+    }
+
+    private static List<Class<?>> findClassesInDirectories(ClassIndex classIndex, ScanCache scanCache, List<File> directories, String packageName,
+                                                           ClassCriteria classCriteria, int classCount) throws IOException, ClassNotFoundException {
+        List<Class<?>> classes = new ArrayList<>();
+        List<File> files = new ArrayList<>(directories);
+        if (classIndex != null) {
+            for (Iterator<File> iterator = files.iterator(); iterator.hasNext() && classCount + classes.size() < classCriteria.getMaxClassLimit(); ) {
+                File directory = iterator.next();
+                int root = classIndex.findRoot(directory.toPath());
+                if (root != ClassIndex.NONE) {
+                    classes.addAll(findClassesInIndex(classIndex, root, directory, packageName, classCriteria, classCount + classes.size()));
+                    iterator.remove();
+                }
+            }
+        }
+
+        if (files.isEmpty() || classCount + classes.size() >= classCriteria.getMaxClassLimit()) {
+            LOGGER.trace("No directories left to search");
+        } else if (scanCache != null) {
+            classes.addAll(findClassesWithCache(scanCache, files, packageName, classCriteria, classCount + classes.size()));
+        } else if (classCriteria.isParallelSearch()) {
+            classes.addAll(findClassesInParallel(files, packageName, classCriteria, classCount + classes.size()));
+        } else {
+            for (File file : files) {
+                classes.addAll(findClasses(file, packageName, classCriteria, classCount + classes.size()));
+
+                if (classCount + classes.size() >= classCriteria.getMaxClassLimit()) {
+                    LOGGER.info("Number of classes found during package search has reached the max class limit of {}, so stopping search", classCriteria.getMaxClassLimit());
+                    break;
+                }
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * Stream the classes within a package depending on search criteria. Classes are searched for and loaded as the stream is consumed,
+     * so the first classes are available before the whole package is searched, and only the classes not yet consumed are held in memory.
+     * The max class limit of the search criteria is not applied, use <b>Stream.limit</b> instead. The stream is parallel if the search
+     * criteria specifies a parallel search, and then splits the package directories between the workers.
+     * Failures while searching are thrown as <b>TestException</b> when the stream is consumed.
+     *
+     * @param pkg           Package to search for classes from.
+     * @param classCriteria Package search criteria for classes.
+     * @return Stream of the classes found.
+     * @throws IOException If reading using classloader fails.
+     */
+    public static Stream<Class<?>> streamClasses(final Package pkg, ClassCriteria classCriteria) throws IOException {
+        if (pkg == null) {
+            throw new IllegalArgumentException("Package is null");
+        }
+
+        return streamClasses(pkg.getName(), classCriteria);
+    }
+
+    /**
+     * Stream the classes within a package depending on search criteria.
+     *
+     * @param packageName   Package name to search for classes from.
+     * @param classCriteria Package search criteria for classes.
+     * @return Stream of the classes found.
+     * @throws IOException If reading using classloader fails.
+     * @see #streamClasses(Package, ClassCriteria)
+     */
+    public static Stream<Class<?>> streamClasses(String packageName, ClassCriteria classCriteria) throws IOException {
+        if (packageName == null) {
+            throw new IllegalArgumentException("Package name is null");
+        }
+
+        return streamClasses(classCriteria, packageName);
+    }
+
+    /**
+     * Stream the classes within several packages depending on search criteria. The packages are merged as for a search,
+     * so every directory and jar file is read once, and a class found through several class path entries is only streamed once.
+     * The scan cache of the search criteria is not used, as it is only written when a search is complete. A parallel stream
+     * initializes the classes one at a time after they are found, so static initializers never run on several workers at once.
+     *
+     * @param classCriteria Package search criteria for classes.
+     * @param packageNames  Package names to search for classes from.
+     * @return Stream of the classes found.
+     * @throws IOException If reading using classloader fails.
+     * @see #streamClasses(Package, ClassCriteria)
+     */
+    public static Stream<Class<?>> streamClasses(ClassCriteria classCriteria, String... packageNames) throws IOException {
+        if (classCriteria == null) {
+            throw new IllegalArgumentException("Class search criteria is null");
+        }
+
+        PackageTrie packages = new PackageTrie(classCriteria.isRecursiveSearch(), packageNames);
+
+        LOGGER.info("Streaming classes in packages {}{}", packages, classCriteria.isRecursiveSearch() ? " recursively" : "");
+
+        Map<String, List<File>> directories = new LinkedHashMap<>();
+        Set<File> jarFiles = new LinkedHashSet<>();
+        Set<String> moduleNames = new LinkedHashSet<>();
+        findPackageResources(packages, classCriteria.isSearchModules(), directories, jarFiles, moduleNames);
+
+        ClassSpliterator spliterator = new ClassSpliterator(classCriteria);
+        ClassIndex classIndex = openClassIndex(classCriteria);
+        for (Map.Entry<String, List<File>> entry : directories.entrySet()) {
+            for (File directory : entry.getValue()) {
+                int root = classIndex == null ? ClassIndex.NONE : classIndex.findRoot(directory.toPath());
+                if (root != ClassIndex.NONE) {
+                    spliterator.addIndexedDirectory(classIndex, root, directory, entry.getKey());
+                } else {
+                    spliterator.addDirectory(directory.toPath(), entry.getKey());
+                }
+            }
+        }
+        for (File jarFile : jarFiles) {
+            spliterator.addJarFile(jarFile, packages);
+        }
+        for (String moduleName : moduleNames) {
+            spliterator.addModule(moduleName, packages);
+        }
+
+        Stream<Class<?>> classes = StreamSupport.stream(spliterator, classCriteria.isParallelSearch());
+        if (classCriteria.isParallelSearch() && !classCriteria.isSkipInitialization()) {
+            return classes.map(TestReflectionUtils::initializeClass);
+        }
+        return classes;
+    }
+
+    /**
+     * Initialize a class found by a parallel search. Classes are initialized one at a time, so classes whose static initializers
+     * refer to each other in a cycle can not deadlock by being initialized on two workers at once.
+     */
+    private static Class<?> initializeClass(Class<?> clazz) {
+        synchronized (INITIALIZATION_LOCK) {
+            try {
+                return Class.forName(clazz.getName(), Boolean.TRUE, clazz.getClassLoader());
+            } catch (ClassNotFoundException e) {
+                throw new TestException("Failed to initialize class " + clazz.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * Look up the directories and jar files holding the packages. A directory or jar file on the class path under several names,
+     * like through a symbolic link or a relative path, is only returned once. If modules are searched, the named modules holding
+     * the packages are returned as modules, and then the directories and jar files of those modules are skipped. Packages in the
+     * runtime image are only found this way, as the classloader does not return directory resources for them.
+     */
+    private static void findPackageResources(PackageTrie packages, boolean searchModules, Map<String, List<File>> directories,
+                                             Set<File> jarFiles, Set<String> moduleNames) throws IOException {
         Thread thread = Thread.currentThread();
         ClassLoader classLoader = thread.getContextClassLoader();
         if (classLoader == null) {
             throw new ClassloaderNullException(thread);
         }
 
-        String path = packageName.replace(PKG_SEPARATOR, DIR_SEPARATOR);
+        List<File> moduleFiles = new ArrayList<>();
+        if (!searchModules) {
+            LOGGER.trace("Module search not specified, so only searching package resources");
+        } else if (!ModuleScanner.isSupported()) {
+            LOGGER.debug("Modules are not supported before Java 9, so only searching package resources");
+        } else {
+            for (Map.Entry<String, URI> module : ModuleScanner.findModules(packages).entrySet()) {
+                moduleNames.add(module.getKey());
+                if (FILE_PROTOCOL.equals(module.getValue().getScheme())) {
+                    moduleFiles.add(canonicalFile(new File(module.getValue())));
+                }
+            }
+        }
+
+        Set<File> foundDirectories = new HashSet<>();
+        for (String packageName : packages.getPackageNames()) {
+            String path = packageName.replace(PKG_SEPARATOR, DIR_SEPARATOR);
+
+            LOGGER.trace("Converted package {} to path {}", packageName, path);
+
+            Enumeration<URL> resources = classLoader.getResources(path);
+            while (resources.hasMoreElements()) {
+                URL resource = resources.nextElement();
+                if (JAR_PROTOCOL.equals(resource.getProtocol())) {
+                    URL jarFileUrl = ((JarURLConnection) resource.openConnection()).getJarFileURL();
+                    File jarFile = canonicalFile(new File(URLDecoder.decode(jarFileUrl.getFile(), "UTF-8")));
+                    if (!isInModule(jarFile, moduleFiles)) {
+                        jarFiles.add(jarFile);
+                    }
+                } else {
+                    File directory = new File(URLDecoder.decode(resource.getFile(), "UTF-8")).getAbsoluteFile();
+                    File canonicalDirectory = canonicalFile(directory);
+                    if (isInModule(canonicalDirectory, moduleFiles)) {
+                        continue;
+                    } else if (foundDirectories.add(canonicalDirectory)) {
+                        directories.computeIfAbsent(packageName, key -> new ArrayList<>()).add(directory);
+                    } else {
+                        LOGGER.debug("Directory {} is already searched, so skipping directory", directory);
+                    }
+                }
+            }
+        }
+    }
 
-        LOGGER.trace("Converted package {} to path {}", packageName, path);
+    private static boolean isInModule(File file, List<File> moduleFiles) {
+        for (File moduleFile : moduleFiles) {
+            if (file.toPath().startsWith(moduleFile.toPath())) {
+                LOGGER.debug("File {} belongs to module {}, so searching module instead", file, moduleFile);
+                return Boolean.TRUE;
+            }
+        }
+        return Boolean.FALSE;
+    }
 
-        Enumeration<URL> resources = classLoader.getResources(path);
+    private static File canonicalFile(File file) {
+        try {
+            return file.getCanonicalFile();
+        } catch (IOException e) {
+            LOGGER.debug("Unable to resolve canonical path of {}", file, e);
+            return file.getAbsoluteFile();
+        }
+    }
 
-        List<File> files = new ArrayList<>();
-        while (resources.hasMoreElements()) {
-            URL resource = resources.nextElement();
-            String pathName = URLDecoder.decode(resource.getFile(), "UTF-8");
-            files.add(new File(pathName));
+    /**
+     * Find classes within a package of an archive, like an executable Spring Boot jar, depending on search criteria.
+     * Nested jar files are read directly from the archive, without being extracted.
+     *
+     * @param archive       Archive to search for classes in.
+     * @param packageName   Package name to search for classes from.
+     * @param classCriteria Package search criteria for classes.
+     * @return Classes found.
+     * @throws IOException            If reading the archive fails.
+     * @throws ClassNotFoundException If creating class for a class name fails.
+     */
+    static Class<?>[] findClasses(File archive, String packageName, ClassCriteria classCriteria) throws IOException, ClassNotFoundException {
+        if (archive == null) {
+            throw new IllegalArgumentException("Archive is null");
         }
 
-        List<Class<?>> classes = new ArrayList<>();
-        for (File file : files) {
-            classes.addAll(findClasses(file, packageName, classCriteria, classes));
+        if (packageName == null) {
+            throw new IllegalArgumentException("Package name is null");
+        }
 
+        if (classCriteria == null) {
+            throw new IllegalArgumentException("Class search criteria is null");
+        }
+
+        LOGGER.info("Searching for classes in package {}{} in archive {}", packageName, classCriteria.isRecursiveSearch() ? " recursively" : "", archive.getAbsolutePath());
+
+        Thread thread = Thread.currentThread();
+        ClassLoader classLoader = thread.getContextClassLoader();
+        if (classLoader == null) {
+            throw new ClassloaderNullException(thread);
+        }
+
+        ArchiveClassLoader archiveClassLoader = ArchiveClassLoader.open(archive, classLoader);
+        PackageTrie packages = new PackageTrie(classCriteria.isRecursiveSearch(), packageName);
+
+        Map<String, Class<?>> classes = new LinkedHashMap<>();
+        for (ArchiveClassLoader.Root root : archiveClassLoader.getRoots()) {
             if (classes.size() >= classCriteria.getMaxClassLimit()) {
                 LOGGER.info("Number of classes found during package search has reached the max class limit of {}, so stopping search", classCriteria.getMaxClassLimit());
                 break;
             }
+
+            for (Class<?> clazz : findClassesInZip(root.getCentralDirectory(), root.getPrefix(), packages, root.getLocation(), archiveClassLoader, classCriteria, classes.size())) {
+                // Classes earlier on the class path shadow classes with the same name later on the class path
+                classes.putIfAbsent(clazz.getName(), clazz);
+            }
         }
 
-        LOGGER.info("Found a total of {} classes in package {}{}", classes.size(), packageName, classCriteria.isRecursiveSearch() ? " and all child packages" : "");
+        LOGGER.info("Found a total of {} classes in package {}{} in archive {}", classes.size(), packageName, classCriteria.isRecursiveSearch() ? " and all child packages" : "", archive.getAbsolutePath());
+
+        return classes.values().toArray(new Class[classes.size()]);
+    }
+
+    /**
+     * Find all classes and interfaces extending or implementing a type, directly or through other types, without loading any other class.
+     * The classes are looked up in the class index of the search criteria, or, if there is none, in an index of the class directories
+     * on the class path of the context classloader, built on first use and built again when the class directories change.
+     * Classes in jar files are not indexed, and so are not found.
+     *
+     * @param type          Class or interface to find the subtypes of.
+     * @param classCriteria Search criteria the subtypes must match.
+     * @return Subtypes found.
+     * @throws IOException            If reading the class index or the class directories fails.
+     * @throws ClassNotFoundException If creating class for a class name fails.
+     */
+    public static Class<?>[] findSubtypes(Class<?> type, ClassCriteria classCriteria) throws IOException, ClassNotFoundException {
+        if (type == null) {
+            throw new IllegalArgumentException("Type is null");
+        }
+
+        return findClassesInIndex("subtypes of " + type.getName(), classCriteria,
+                (classIndex, clazz) -> Boolean.TRUE, classIndex -> classIndex.findSubtypes(type.getName()));
+    }
+
+    /**
+     * Find all classes implementing a type, being the subtypes that are neither interfaces nor abstract classes.
+     *
+     * @param type          Class or interface to find the implementations of.
+     * @param classCriteria Search criteria the implementations must match.
+     * @return Implementations found.
+     * @throws IOException            If reading the class index or the class directories fails.
+     * @throws ClassNotFoundException If creating class for a class name fails.
+     * @see #findSubtypes(Class, ClassCriteria)
+     */
+    public static Class<?>[] findImplementors(Class<?> type, ClassCriteria classCriteria) throws IOException, ClassNotFoundException {
+        if (type == null) {
+            throw new IllegalArgumentException("Type is null");
+        }
+
+        return findClassesInIndex("implementations of " + type.getName(), classCriteria,
+                (classIndex, clazz) -> (classIndex.getAccessFlags(clazz) & (ClassFileInfo.ACC_INTERFACE | ClassFileInfo.ACC_ABSTRACT)) == 0,
+                classIndex -> classIndex.findSubtypes(type.getName()));
+    }
+
+    /**
+     * Find all classes and interfaces annotated with an annotation. An annotation marked as inherited is also found on the subclasses of annotated classes.
+     *
+     * @param annotationType Annotation to find the annotated types of.
+     * @param classCriteria  Search criteria the annotated types must match.
+     * @return Annotated types found.
+     * @throws IOException            If reading the class index or the class directories fails.
+     * @throws ClassNotFoundException If creating class for a class name fails.
+     * @see #findSubtypes(Class, ClassCriteria)
+     */
+    public static Class<?>[] findAnnotatedWith(Class<? extends Annotation> annotationType, ClassCriteria classCriteria) throws IOException, ClassNotFoundException {
+        if (annotationType == null) {
+            throw new IllegalArgumentException("Annotation type is null");
+        }
+
+        boolean inherited = annotationType.isAnnotationPresent(Inherited.class);
+        return findClassesInIndex("types annotated with " + annotationType.getName(), classCriteria,
+                (classIndex, clazz) -> Boolean.TRUE, classIndex -> classIndex.findAnnotatedWith(annotationType.getName(), inherited));
+    }
+
+    private static Class<?>[] findClassesInIndex(String description, ClassCriteria classCriteria, BiPredicate<ClassIndex, Integer> accepted,
+                                                 Function<ClassIndex, Set<Integer>> query) throws IOException, ClassNotFoundException {
+        if (classCriteria == null) {
+            throw new IllegalArgumentException("Class search criteria is null");
+        }
+
+        LOGGER.info("Searching for {}", description);
+
+        ClassIndex classIndex = openClassIndex(classCriteria);
+        if (classIndex == null) {
+            classIndex = getClassPathIndex();
+        }
+
+        ClassFilter classFilter = classCriteria.getClassFilter();
+        Set<Class<?>> classes = new LinkedHashSet<>();
+        for (int clazz : query.apply(classIndex)) {
+            if (classes.size() >= classCriteria.getMaxClassLimit()) {
+                LOGGER.info("Number of classes found during search has reached the max class limit of {}, so stopping search", classCriteria.getMaxClassLimit());
+                break;
+            }
+
+            String path = classIndex.getPath(clazz);
+            if (!accepted.test(classIndex, clazz) || isIndexDirectoryExcluded(classFilter, path, classIndex.getRootPath(classIndex.getRoot(clazz)).length())
+                    || classFilter.isPathExcluded(path)) {
+                continue;
+            }
+
+            Class<?> loadedClass = loadClass(classIndex.getClassName(clazz), classIndex.getClassFileSource(clazz), classCriteria.getClassLoader(TestReflectionUtils.class.getClassLoader()), classCriteria);
+            if (loadedClass != null) {
+                classes.add(loadedClass);
+            }
+        }
+
+        LOGGER.info("Found a total of {} {}", classes.size(), description);
 
         return classes.toArray(new Class[classes.size()]);
     }
 
-    private static List<Class<?>> findClasses(File directory, String packageName, ClassCriteria classCriteria, final List<Class<?>> allClasses) throws ClassNotFoundException {
+    /**
+     * The class directories on the class path of the context classloader are indexed per classloader, and indexed again when they change.
+     */
+    private static ClassIndex getClassPathIndex() throws IOException {
+        Thread thread = Thread.currentThread();
+        ClassLoader classLoader = thread.getContextClassLoader();
+        if (classLoader == null) {
+            throw new ClassloaderNullException(thread);
+        }
+
+        Map<String, List<File>> directories = new LinkedHashMap<>();
+        findPackageResources(new PackageTrie(Boolean.TRUE, ""), Boolean.FALSE, directories, new LinkedHashSet<>(), new LinkedHashSet<>());
+        List<Path> classDirectories = new ArrayList<>();
+        for (List<File> packageDirectories : directories.values()) {
+            for (File directory : packageDirectories) {
+                classDirectories.add(directory.toPath());
+            }
+        }
+
+        LOGGER.debug("No class index specified, so using index of class directories {}", classDirectories);
+
+        return ClassPathIndexCache.get(classLoader, classDirectories);
+    }
+
+    private static List<Class<?>> findClassesInParallel(List<File> directories, String packageName, ClassCriteria classCriteria, int classCount) throws IOException, ClassNotFoundException {
+        ParallelDirectoryScanner scanner = new ParallelDirectoryScanner(classCriteria, classCount);
+        for (File directory : directories) {
+            scanner.scan(directory.toPath(), packageName);
+
+            if (scanner.isLimitReached()) {
+                LOGGER.info("Number of classes found during package search has reached the max class limit of {}, so stopping search", classCriteria.getMaxClassLimit());
+                break;
+            }
+        }
+        return scanner.getClasses();
+    }
+
+    private static ClassIndex openClassIndex(ClassCriteria classCriteria) {
+        File classIndexFile = classCriteria.getClassIndex();
+        if (classIndexFile == null && System.getProperty(ClassIndex.INDEX_FILE_PROPERTY) != null) {
+            classIndexFile = new File(System.getProperty(ClassIndex.INDEX_FILE_PROPERTY));
+        }
+
+        if (classIndexFile == null) {
+            return null;
+        } else if (!classIndexFile.isFile()) {
+            LOGGER.debug("Class index {} does not exist, so searching directories", classIndexFile.getAbsolutePath());
+            return null;
+        }
+
+        try {
+            return ClassIndex.open(classIndexFile.toPath());
+        } catch (IOException e) {
+            LOGGER.warn("Unable to read class index {}, so searching directories", classIndexFile.getAbsolutePath(), e);
+            return null;
+        }
+    }
+
+    private static List<Class<?>> findClassesInIndex(ClassIndex classIndex, int root, File directory, String packageName, ClassCriteria classCriteria, int classCount) throws IOException, ClassNotFoundException {
+        List<Class<?>> classes = new ArrayList<>();
+
+        LOGGER.debug("Searching for classes in package {} in class index of directory {}", packageName, directory.getAbsolutePath());
+
+        visitClassesInIndex(classIndex, root, directory, packageName, classCriteria, (className, classFileSource) -> {
+            if (classCount + classes.size() >= classCriteria.getMaxClassLimit()) {
+                return Boolean.FALSE;
+            }
+            Class<?> clazz = loadClass(className, classFileSource, classCriteria.getClassLoader(TestReflectionUtils.class.getClassLoader()), classCriteria);
+            if (clazz != null) {
+                classes.add(clazz);
+            }
+            return Boolean.TRUE;
+        });
+
+        LOGGER.debug("Found {} classes in class index of directory {}", classes.size(), directory.getAbsolutePath());
+
+        return classes;
+    }
+
+    /**
+     * Visit the classes of a package in the class index that are not excluded by their path.
+     */
+    static void visitClassesInIndex(ClassIndex classIndex, int root, File directory, String packageName, ClassCriteria classCriteria, ClassVisitor visitor) throws IOException, ClassNotFoundException {
+        byte[] packageBytes = packageName.getBytes(StandardCharsets.UTF_8);
+        ClassFilter classFilter = classCriteria.getClassFilter();
+        int directoryLength = directory.getAbsolutePath().length();
+
+        for (int clazz = classIndex.findFirstClass(packageName); clazz < classIndex.getClassCount() && classIndex.isPackagePrefix(clazz, packageBytes); clazz++) {
+            if (classIndex.getRoot(clazz) != root) {
+                continue;
+            }
+
+            boolean childPackage = !classIndex.isInPackage(clazz, packageBytes);
+            if (childPackage && (!classCriteria.isRecursiveSearch() || !classIndex.isInChildPackage(clazz, packageBytes))) {
+                continue;
+            }
+
+            String path = classIndex.getPath(clazz);
+            if (childPackage && isIndexDirectoryExcluded(classFilter, path, directoryLength)) {
+                continue;
+            }
+            if (classFilter.isPathExcluded(path)) {
+                continue;
+            }
+
+            if (!visitor.visit(classIndex.getClassName(clazz), classIndex.getClassFileSource(clazz))) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Check the directory of an indexed class file, and all its parent directories below the searched package, against the directory exclusions.
+     */
+    private static boolean isIndexDirectoryExcluded(ClassFilter classFilter, String path, int directoryLength) {
+        for (int end = path.lastIndexOf(File.separatorChar); end > directoryLength; end = path.lastIndexOf(File.separatorChar, end - 1)) {
+            if (classFilter.isDirectoryExcluded(path.substring(0, end))) {
+                return Boolean.TRUE;
+            }
+        }
+        return Boolean.FALSE;
+    }
+
+    private static List<Class<?>> findClassesWithCache(ScanCache scanCache, List<File> directories, String packageName, ClassCriteria classCriteria, int classCount) throws IOException, ClassNotFoundException {
+        List<Class<?>> classes = new ArrayList<>();
+        for (File directory : directories) {
+            classes.addAll(findClasses(scanCache, directory.toPath(), packageName, classCriteria, classCount + classes.size()));
+
+            if (classCount + classes.size() >= classCriteria.getMaxClassLimit()) {
+                LOGGER.info("Number of classes found during package search has reached the max class limit of {}, so stopping search", classCriteria.getMaxClassLimit());
+                break;
+            }
+        }
+        return classes;
+    }
+
+    private static List<Class<?>> findClasses(ScanCache scanCache, Path directory, String packageName, ClassCriteria classCriteria, int classCount) throws IOException, ClassNotFoundException {
+        List<Class<?>> classes = new ArrayList<>();
+
+        if (!Files.isDirectory(directory)) {
+            LOGGER.debug("Directory {} does not exist, so skipping directory", directory);
+            return classes;
+        }
+
+        LOGGER.debug("Searching for classes in package {} in directory {}", packageName, directory);
+
+        ClassFilter classFilter = classCriteria.getClassFilter();
+        ScanCache.Directory cachedDirectory = scanCache.getDirectory(directory);
+
+        for (ScanCache.ClassFile classFile : cachedDirectory.getClassFiles()) {
+            if (classCount + classes.size() >= classCriteria.getMaxClassLimit()) {
+                return classes;
+            }
+
+            if (!classFilter.isPathExcluded(classFile.getPath().toString())) {
+                String className = packageName + String.valueOf(PKG_SEPARATOR) + classFile.getSimpleName();
+                Class<?> clazz = loadClass(className, classFile, classCriteria.getClassLoader(TestReflectionUtils.class.getClassLoader()), classCriteria);
+                if (clazz != null) {
+                    classes.add(clazz);
+                }
+            }
+        }
+
+        for (String subDirectoryName : cachedDirectory.getSubDirectories()) {
+            if (classCount + classes.size() >= classCriteria.getMaxClassLimit()) {
+                break;
+            }
+
+            Path subDirectory = directory.resolve(subDirectoryName);
+            if (classFilter.isDirectoryExcluded(subDirectory.toString())) {
+                continue;
+            } else if (!classCriteria.isRecursiveSearch()) {
+                LOGGER.trace("Non recursive search criteria specified, so skipping directory");
+            } else if (subDirectoryName.indexOf(PKG_SEPARATOR) >= 0) {
+                LOGGER.debug("Directory {} contains character {}, so skipping directory", subDirectory, PKG_SEPARATOR);
+            } else {
+                classes.addAll(findClasses(scanCache, subDirectory, packageName + String.valueOf(PKG_SEPARATOR) + subDirectoryName, classCriteria, classCount + classes.size()));
+            }
+        }
+
+        LOGGER.debug("Found {} classes in directory {}", classes.size(), directory);
+
+        return classes;
+    }
+
+    private static List<Class<?>> findClasses(File directory, String packageName, ClassCriteria classCriteria, int classCount) throws IOException, ClassNotFoundException {
         List<Class<?>> classes = new ArrayList<>();
 
         if (!directory.exists()) {
@@ -265,20 +939,22 @@ public final class TestReflectionUtils {
 
         LOGGER.debug("Searching for classes in package {} in directory {}", packageName, directory.getAbsolutePath());
 
-        for (File file : files) {
-            if (isPathRegexMatch(classCriteria, file)) {
-                continue;
-            }
+        ClassFilter classFilter = classCriteria.getClassFilter();
 
+        for (File file : files) {
             if (file.isDirectory()) {
-                processDirectory(file, packageName, classCriteria, classes, allClasses);
+                if (!classFilter.isDirectoryExcluded(file.getPath())) {
+                    processDirectory(file, packageName, classCriteria, classCount, classes);
+                }
             } else if (file.isFile()) {
-                processFile(directory, file, packageName, classCriteria, classes);
+                if (!classFilter.isPathExcluded(file.getPath())) {
+                    processFile(directory, file, packageName, classCriteria, classes);
+                }
             } else {
                 LOGGER.debug("File {} is not a directory nor a file, so skipping", file.getName());
             }
 
-            if (allClasses.size() + classes.size() >= classCriteria.getMaxClassLimit()) {
+            if (classCount + classes.size() >= classCriteria.getMaxClassLimit()) {
                 break;
             }
         }
@@ -288,160 +964,194 @@ public final class TestReflectionUtils {
         return classes;
     }
 
-    private static void processDirectory(File file, String packageName, ClassCriteria classCriteria, final List<Class<?>> allClasses, List<Class<?>> classes) throws ClassNotFoundException {
-        if (!classCriteria.isRecursiveSearch()) {
-            LOGGER.trace("Non recursive search criteria specified, so skipping directory");
-        } else if (file.getName().contains(String.valueOf(PKG_SEPARATOR))) {
-            LOGGER.debug("Directory {} contains character {}, so skipping directory", file.getAbsolutePath(), PKG_SEPARATOR);
-        } else {
-            String subPackageName = packageName + String.valueOf(PKG_SEPARATOR) + file.getName();
-            classes.addAll(findClasses(file, subPackageName, classCriteria, allClasses));
-        }
-    }
-
-    private static void processFile(File directory, File file, String packageName, ClassCriteria classCriteria, List<Class<?>> classes) throws ClassNotFoundException {
-        if (file.getName().endsWith(CLASS_FILE_SUFFIX)) {
-            String className = packageName + String.valueOf(PKG_SEPARATOR) + file.getName().replace(CLASS_FILE_SUFFIX, "");
-            LOGGER.trace("Found class {} in directory {}", className, directory.getAbsolutePath());
-            Class<?> clazz = Class.forName(className);
-            if (clazz.isInterface() && classCriteria.isExcludeInterfaces()) {
-                LOGGER.trace("Class search criteria specifies to exclude interfaces, so skipping class {}", className);
-            } else if (clazz.isEnum() && classCriteria.isExcludeEnums()) {
-                LOGGER.trace("Class search criteria specifies to exclude enums, so skipping class {}", className);
-            } else if (clazz.isAnnotation() && classCriteria.isExcludeAnnotations()) {
-                LOGGER.trace("Class search criteria specifies to exclude annotations, so skipping class {}", className);
-            } else if (clazz.isMemberClass() && classCriteria.isExcludeMemberClasses()) {
-                LOGGER.trace("Class search criteria specifies to exclude member classes, so skipping class {}", className);
-            } else {
-                classes.add(clazz);
-            }
-        } else {
-            LOGGER.debug("File {} does not have a class file ending {}, so skipping file", file.getAbsolutePath(), CLASS_FILE_SUFFIX);
+    private static List<Class<?>> findClassesInJar(File jarFile, PackageTrie packages, ClassCriteria classCriteria, int classCount) throws IOException, ClassNotFoundException {
+        if (!jarFile.isFile()) {
+            LOGGER.debug("Jar file {} does not exist, so skipping jar file", jarFile.getAbsolutePath());
+            return new ArrayList<>();
         }
-    }
 
-    static <T> List<GetterSetter> findGettersAndSetters(final Class<T> clazz) throws IntrospectionException {
-        return findGettersAndSetters(clazz, FieldCriteria.createDefault().build());
+        ZipCentralDirectory centralDirectory = ZipCentralDirectory.map(jarFile.toPath());
+        String location = jarFile.getAbsolutePath() + JAR_ENTRY_SEPARATOR;
+        return findClassesInZip(centralDirectory, "", packages, location, classCriteria.getClassLoader(TestReflectionUtils.class.getClassLoader()), classCriteria, classCount);
     }
 
-    static <T> List<GetterSetter> findGettersAndSetters(final Class<T> clazz, final FieldCriteria fieldCriteria) throws IntrospectionException {
-        if (clazz == null) {
-            throw new IllegalArgumentException("Input class is null");
-        }
+    private static List<Class<?>> findClassesInModule(String moduleName, PackageTrie packages, ClassCriteria classCriteria, int classCount) throws IOException, ClassNotFoundException {
+        List<Class<?>> classes = new ArrayList<>();
+        ClassLoader classLoader = classCriteria.getClassLoader(ModuleScanner.getClassLoader(moduleName));
 
-        List<GetterSetter> gettersAndSetters = new ArrayList<>();
+        ModuleScanner.visitClasses(moduleName, packages, classCriteria, (className, classFileSource) -> {
+            if (classCount + classes.size() >= classCriteria.getMaxClassLimit()) {
+                return Boolean.FALSE;
+            }
+            Class<?> clazz = loadClass(className, classFileSource, classLoader, classCriteria);
+            if (clazz != null) {
+                classes.add(clazz);
+            }
+            return Boolean.TRUE;
+        });
 
-        final PropertyDescriptor[] descriptors = Introspector.getBeanInfo(clazz).getPropertyDescriptors();
+        LOGGER.debug("Found {} classes in module {}", classes.size(), moduleName);
 
-        for (PropertyDescriptor descriptor : descriptors) {
+        return classes;
+    }
 
-            if (fieldCriteria.getExcludeFields().contains(descriptor.getName())) {
-                LOGGER.info("Skipping field {} as ordered", descriptor.getName());
-                continue;
+    private static List<Class<?>> findClassesInZip(ZipCentralDirectory centralDirectory, String rootPrefix, PackageTrie packages, String location,
+                                                   ClassLoader classLoader, ClassCriteria classCriteria, int classCount) throws IOException, ClassNotFoundException {
+        List<Class<?>> classes = new ArrayList<>();
+
+        LOGGER.debug("Searching for classes in packages {} in {}", packages, location);
+
+        visitClassesInZip(centralDirectory, rootPrefix, packages, location, classCriteria, (className, classFileSource) -> {
+            if (classCount + classes.size() >= classCriteria.getMaxClassLimit()) {
+                return Boolean.FALSE;
+            }
+            Class<?> clazz = loadClass(className, classFileSource, classLoader, classCriteria);
+            if (clazz != null) {
+                classes.add(clazz);
             }
+            return Boolean.TRUE;
+        });
 
-            findBooleanGetters(clazz, descriptor);
+        LOGGER.debug("Found {} classes in {}", classes.size(), location);
 
-            final Method getter = descriptor.getReadMethod();
-            final Method setter = descriptor.getWriteMethod();
+        return classes;
+    }
 
-            if (getter != null && setter != null) {
+    /**
+     * Visit the class entries of the packages in a zip archive that are not excluded by their path. The archive is read once
+     * for all the packages, entries outside the common parent package of the packages are skipped by comparing name bytes.
+     */
+    static void visitClassesInZip(ZipCentralDirectory centralDirectory, String rootPrefix, PackageTrie packages, String location,
+                                  ClassCriteria classCriteria, ClassVisitor visitor) throws IOException, ClassNotFoundException {
+        String commonPath = packages.getCommonPackageName().replace(PKG_SEPARATOR, DIR_SEPARATOR);
+        byte[] prefix = (commonPath.isEmpty() ? rootPrefix : rootPrefix + commonPath + DIR_SEPARATOR).getBytes(StandardCharsets.UTF_8);
+        ClassEntryMatcher matcher = new ClassEntryMatcher(packages, rootPrefix, location, classCriteria);
+
+        int entry = centralDirectory.getFirstEntry();
+        for (int i = 0; i < centralDirectory.getEntryCount(); i++, entry = centralDirectory.getNextEntry(entry)) {
+            if (!centralDirectory.isNamePrefix(entry, prefix) || !centralDirectory.isNameSuffix(entry, CLASS_FILE_SUFFIX_BYTES)) {
+                continue;
+            }
 
-                final Class<?> returnType = getter.getReturnType();
-                final Class<?>[] params = setter.getParameterTypes();
+            String className = matcher.match(centralDirectory.getName(entry));
+            if (className == null) {
+                continue;
+            }
 
-                if (params.length == 1 && params[0] == returnType) {
-                    gettersAndSetters.add(new GetterSetter(descriptor, getter, setter));
-                } else {
-                    LOGGER.debug("Getter and setter for field {} has non matching type", descriptor.getName());
-                }
-            } else {
-                LOGGER.debug("Getter or setter missing for field {}", descriptor.getName());
+            LOGGER.trace("Found class {} in {}", className, location);
+            final int classEntry = entry;
+            if (!visitor.visit(className, () -> centralDirectory.getData(classEntry))) {
+                break;
             }
         }
+    }
 
-        return gettersAndSetters;
+    private static void processDirectory(File file, String packageName, ClassCriteria classCriteria, int classCount, List<Class<?>> classes) throws IOException, ClassNotFoundException {
+        if (!classCriteria.isRecursiveSearch()) {
+            LOGGER.trace("Non recursive search criteria specified, so skipping directory");
+        } else if (file.getName().contains(String.valueOf(PKG_SEPARATOR))) {
+            LOGGER.debug("Directory {} contains character {}, so skipping directory", file.getAbsolutePath(), PKG_SEPARATOR);
+        } else {
+            String subPackageName = packageName + String.valueOf(PKG_SEPARATOR) + file.getName();
+            classes.addAll(findClasses(file, subPackageName, classCriteria, classCount + classes.size()));
+        }
     }
 
-    static <T> List<Getter> findGetters(final Class<T> clazz) throws IntrospectionException {
-        return findGetters(clazz, FieldCriteria.createDefault().build());
+    private static void processFile(File directory, File file, String packageName, ClassCriteria classCriteria, List<Class<?>> classes) throws IOException, ClassNotFoundException {
+        LOGGER.trace("Found file {} in directory {}", file.getName(), directory.getAbsolutePath());
+        Class<?> clazz = loadClassFile(file.toPath(), packageName, classCriteria, !classCriteria.isSkipInitialization());
+        if (clazz != null) {
+            classes.add(clazz);
+        }
     }
 
-    static <T> List<Getter> findGetters(final Class<T> clazz, final FieldCriteria fieldCriteria) throws IntrospectionException {
-        if (clazz == null) {
-            throw new IllegalArgumentException("Input class is null");
+    static Class<?> loadClassFile(Path file, String packageName, ClassCriteria classCriteria, boolean initialize) throws IOException, ClassNotFoundException {
+        String fileName = file.getFileName().toString();
+        if (fileName.endsWith(CLASS_FILE_SUFFIX)) {
+            String className = packageName + String.valueOf(PKG_SEPARATOR) + fileName.replace(CLASS_FILE_SUFFIX, "");
+            return loadClass(className, () -> ByteBuffer.wrap(Files.readAllBytes(file)), classCriteria.getClassLoader(TestReflectionUtils.class.getClassLoader()), classCriteria, initialize);
+        } else {
+            LOGGER.debug("File {} does not have a class file ending {}, so skipping file", fileName, CLASS_FILE_SUFFIX);
+            return null;
         }
+    }
 
-        List<Getter> getters = new ArrayList<>();
+    /**
+     * Load a class if it matches the search criteria. The cheapest checks are done first, so the class file is only read
+     * if the class name matches, and the class is only loaded if the class file matches.
+     */
+    static Class<?> loadClass(String className, ClassFileSource classFileSource, ClassLoader classLoader, ClassCriteria classCriteria) throws IOException, ClassNotFoundException {
+        return loadClass(className, classFileSource, classLoader, classCriteria, !classCriteria.isSkipInitialization());
+    }
 
-        final PropertyDescriptor[] descriptors = Introspector.getBeanInfo(clazz).getPropertyDescriptors();
+    /**
+     * Load a class if it matches the search criteria, initializing it only if asked to, whatever the search criteria says.
+     */
+    static Class<?> loadClass(String className, ClassFileSource classFileSource, ClassLoader classLoader, ClassCriteria classCriteria, boolean initialize) throws IOException, ClassNotFoundException {
+        ClassFilter classFilter = classCriteria.getClassFilter();
 
-        for (PropertyDescriptor descriptor : descriptors) {
+        if (!classFilter.acceptName(className)) {
+            return null;
+        }
 
-            if (fieldCriteria.getExcludeFields().contains(descriptor.getName())) {
-                LOGGER.info("Skipping field {} as ordered", descriptor.getName());
-                continue;
+        if (classFilter.isClassFileRequired()) {
+            ClassFileInfo classFileInfo;
+            try {
+                classFileInfo = classFileSource.readInfo();
+            } catch (IOException e) {
+                LOGGER.warn("Unable to read class file of class {}, so skipping class", className, e);
+                return null;
             }
 
-            findBooleanGetters(clazz, descriptor);
-
-            final Method getter = descriptor.getReadMethod();
-
-            if (getter != null) {
-                getters.add(new Getter(descriptor, getter));
-            } else {
-                LOGGER.debug("Getter missing for field {}", descriptor.getName());
+            if (!classFilter.acceptClassFile(classFileInfo)) {
+                return null;
             }
         }
 
-        return getters;
+        if (classFilter.isClassRequired() && !classFilter.acceptClass(Class.forName(className, Boolean.FALSE, classLoader))) {
+            return null;
+        }
+
+        return Class.forName(className, initialize, classLoader);
     }
 
-    private static <T> void findBooleanGetters(Class<T> clazz, PropertyDescriptor descriptor) throws IntrospectionException {
-        if (descriptor.getReadMethod() == null && Boolean.class.isAssignableFrom(descriptor.getPropertyType())) {
-            LOGGER.debug("Getter for field {} is boolean", descriptor.getName());
-            try {
-                PropertyDescriptor pd = new PropertyDescriptor(descriptor.getName(), clazz);
-                descriptor.setReadMethod(pd.getReadMethod());
-            } catch (IntrospectionException e) {
-                LOGGER.debug("Error while finding boolean getter", e);
-            }
-        } else {
-            LOGGER.trace("Getter for field {} is non boolean", descriptor.getName());
-        }
+    static <T> List<GetterSetter> findGettersAndSetters(final Class<T> clazz) throws IntrospectionException {
+        return findGettersAndSetters(clazz, FieldCriteria.createDefault().build());
     }
 
-    private static boolean isAllParamsMatch(final Class<?>[] actualParams, final Class<?>[] wantedParams) {
-        if (actualParams == null || wantedParams == null || actualParams.length != wantedParams.length) {
-            return Boolean.FALSE;
-        }
-        boolean allMatch = Boolean.TRUE;
-        for (int i = 0; i < actualParams.length; i++) {
-            allMatch = allMatch && actualParams[i].isAssignableFrom(wantedParams[i]);
+    static <T> List<GetterSetter> findGettersAndSetters(final Class<T> clazz, final FieldCriteria fieldCriteria) throws IntrospectionException {
+        if (clazz == null) {
+            throw new IllegalArgumentException("Input class is null");
         }
-        return allMatch;
+
+        return BeanProperties.get(clazz).getGettersAndSetters(fieldCriteria);
     }
 
-    private static boolean isParamMatch(final Class<?>[] actualParams, final Class<?> wantedParam) {
-        if (actualParams != null && wantedParam != null && actualParams.length > 0) {
-            for (Class<?> actualArg : actualParams) {
-                if (actualArg.isAssignableFrom(wantedParam)) {
-                    return Boolean.TRUE;
-                }
-            }
-        }
-        return Boolean.FALSE;
+    static <T> List<Getter> findGetters(final Class<T> clazz) throws IntrospectionException {
+        return findGetters(clazz, FieldCriteria.createDefault().build());
     }
 
-    private static boolean isPathRegexMatch(ClassCriteria classCriteria, File file) {
-        String filePath = file.getAbsolutePath();
-        for (String pathRegex : classCriteria.getExcludePathRegex()) {
-            Matcher matcher = Pattern.compile(pathRegex).matcher(filePath);
-            if (matcher.find()) {
-                LOGGER.trace("Search criteria specifies to exclude paths containing regex {}, so skipping path {}", pathRegex, filePath);
-                return Boolean.TRUE;
-            }
+    static <T> List<Getter> findGetters(final Class<T> clazz, final FieldCriteria fieldCriteria) throws IntrospectionException {
+        if (clazz == null) {
+            throw new IllegalArgumentException("Input class is null");
         }
-        return Boolean.FALSE;
+
+        return BeanProperties.get(clazz).getGetters(fieldCriteria);
+    }
+
+    /**
+     * Visitor of the classes found while searching, before they are loaded.
+     */
+    @FunctionalInterface
+    interface ClassVisitor {
+
+        /**
+         * @param className       Fully qualified name of the class.
+         * @param classFileSource Source of the class file.
+         * @return If the search should continue.
+         * @throws IOException            If reading the class file fails.
+         * @throws ClassNotFoundException If creating class for the class name fails.
+         */
+        boolean visit(String className, ClassFileSource classFileSource) throws IOException, ClassNotFoundException;
     }
 }
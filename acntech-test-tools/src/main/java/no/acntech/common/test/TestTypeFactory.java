@@ -13,6 +13,18 @@ public final class TestTypeFactory {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TestTypeFactory.class);
     private static final List<BasicType> TYPES = new ArrayList<>();
+    /**
+     * Test values given for the primitives, their wrappers and strings, also used by the tests generated from <b>TestBeans</b>.
+     */
+    public static final boolean BOOLEAN_VALUE = true;
+    public static final int INT_VALUE = 1337;
+    public static final long LONG_VALUE = 1337L;
+    public static final double DOUBLE_VALUE = 13.37D;
+    public static final float FLOAT_VALUE = 13.37F;
+    public static final char CHAR_VALUE = 'Y';
+    public static final byte BYTE_VALUE = 13;
+    public static final short SHORT_VALUE = 1337;
+    public static final String STRING_VALUE = "whatever";
 
     static {
         populateTypes();
@@ -163,7 +175,7 @@ public final class TestTypeFactory {
 
             @Override
             public String getType(Class<String> clazz) {
-                return "whatever";
+                return STRING_VALUE;
             }
         });
 
@@ -176,7 +188,7 @@ public final class TestTypeFactory {
 
             @Override
             public Boolean getType(Class<Boolean> clazz) {
-                return Boolean.TRUE;
+                return BOOLEAN_VALUE;
             }
         });
 
@@ -189,7 +201,7 @@ public final class TestTypeFactory {
 
             @Override
             public Integer getType(Class<Integer> clazz) {
-                return 1337;
+                return INT_VALUE;
             }
         });
 
@@ -202,7 +214,7 @@ public final class TestTypeFactory {
 
             @Override
             public Long getType(Class<Long> clazz) {
-                return 1337L;
+                return LONG_VALUE;
             }
         });
 
@@ -215,7 +227,7 @@ public final class TestTypeFactory {
 
             @Override
             public Double getType(Class<Double> clazz) {
-                return 13.37D;
+                return DOUBLE_VALUE;
             }
         });
 
@@ -228,7 +240,7 @@ public final class TestTypeFactory {
 
             @Override
             public Float getType(Class<Float> clazz) {
-                return 13.37F;
+                return FLOAT_VALUE;
             }
         });
 
@@ -241,7 +253,33 @@ public final class TestTypeFactory {
 
             @Override
             public Character getType(Class<Character> clazz) {
-                return 'Y';
+                return CHAR_VALUE;
+            }
+        });
+
+        // Byte
+        addBasicType(new BasicType<Byte>() {
+            @Override
+            public boolean isType(Class<Byte> clazz) {
+                return byte.class == clazz || Byte.class.isAssignableFrom(clazz);
+            }
+
+            @Override
+            public Byte getType(Class<Byte> clazz) {
+                return BYTE_VALUE;
+            }
+        });
+
+        // Short
+        addBasicType(new BasicType<Short>() {
+            @Override
+            public boolean isType(Class<Short> clazz) {
+                return short.class == clazz || Short.class.isAssignableFrom(clazz);
+            }
+
+            @Override
+            public Short getType(Class<Short> clazz) {
+                return SHORT_VALUE;
             }
         });
 
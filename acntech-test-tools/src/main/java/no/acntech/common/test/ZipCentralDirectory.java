@@ -0,0 +1,312 @@
+package no.acntech.common.test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Read only view of the central directory of a zip archive, like a jar file.
+ * The archive is memory mapped and entries are addressed by the offset of their central directory header,
+ * so entry names can be matched directly against the mapped bytes without inflating or decoding anything.
+ */
+final class ZipCentralDirectory {
+
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIZE = 20;
+    private static final int CENTRAL_DIRECTORY_HEADER_SIGNATURE = 0x02014b50;
+    private static final int CENTRAL_DIRECTORY_HEADER_SIZE = 46;
+    private static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50;
+    private static final int LOCAL_FILE_HEADER_SIZE = 30;
+    private static final int ZIP64_EXTRA_FIELD_ID = 0x0001;
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+    private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+    private static final int UNSIGNED_SHORT_MAX = 0xFFFF;
+    private static final long UNSIGNED_INT_MAX = 0xFFFFFFFFL;
+    private final ByteBuffer buffer;
+    private final int archiveOffset;
+    private final int centralDirectoryOffset;
+    private final int entryCount;
+
+    /**
+     * Read the central directory of a zip archive contained in a buffer.
+     *
+     * @param buffer Buffer holding the complete zip archive.
+     * @throws IOException If the buffer does not contain a valid zip archive.
+     */
+    ZipCentralDirectory(ByteBuffer buffer) throws IOException {
+        if (buffer == null) {
+            throw new IllegalArgumentException("Buffer is null");
+        }
+
+        this.buffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+
+        int endOffset = findEndOfCentralDirectory();
+        long entries = getUnsignedShort(endOffset + 10);
+        long size = getUnsignedInt(endOffset + 12);
+        long offset = getUnsignedInt(endOffset + 16);
+
+        if (entries == UNSIGNED_SHORT_MAX || size == UNSIGNED_INT_MAX || offset == UNSIGNED_INT_MAX) {
+            int locatorOffset = endOffset - ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIZE;
+            if (locatorOffset >= 0 && this.buffer.getInt(locatorOffset) == ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE) {
+                int zip64EndOffset = toOffset(this.buffer.getLong(locatorOffset + 8));
+                if (this.buffer.getInt(zip64EndOffset) != ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                    throw new IOException("Invalid zip64 end of central directory record");
+                }
+                entries = this.buffer.getLong(zip64EndOffset + 32);
+                size = this.buffer.getLong(zip64EndOffset + 40);
+                offset = this.buffer.getLong(zip64EndOffset + 48);
+                endOffset = zip64EndOffset;
+            }
+        }
+
+        // Archives may have data prepended, like the launch script of an executable jar, which offsets all entries
+        this.archiveOffset = toOffset(endOffset - size - offset);
+        this.centralDirectoryOffset = toOffset(archiveOffset + offset);
+        this.entryCount = toOffset(entries);
+    }
+
+    /**
+     * Memory map a zip archive file and read its central directory.
+     *
+     * @param path Path of zip archive file.
+     * @return The central directory.
+     * @throws IOException If reading the file fails or it is not a valid zip archive.
+     */
+    static ZipCentralDirectory map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Zip archive " + path + " is too large to be mapped");
+            }
+            return new ZipCentralDirectory(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * @return Handle of the first entry.
+     */
+    int getFirstEntry() {
+        return centralDirectoryOffset;
+    }
+
+    /**
+     * @param entry Handle of an entry.
+     * @return Handle of the entry following the given entry.
+     * @throws IOException If the entry is not a valid central directory header.
+     */
+    int getNextEntry(int entry) throws IOException {
+        if (buffer.getInt(entry) != CENTRAL_DIRECTORY_HEADER_SIGNATURE) {
+            throw new IOException("Invalid central directory header at offset " + entry);
+        }
+        return entry + CENTRAL_DIRECTORY_HEADER_SIZE + getNameLength(entry) + getUnsignedShort(entry + 30) + getUnsignedShort(entry + 32);
+    }
+
+    int getNameLength(int entry) {
+        return getUnsignedShort(entry + 28);
+    }
+
+    byte getNameByte(int entry, int index) {
+        return buffer.get(entry + CENTRAL_DIRECTORY_HEADER_SIZE + index);
+    }
+
+    String getName(int entry) {
+        byte[] name = new byte[getNameLength(entry)];
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(entry + CENTRAL_DIRECTORY_HEADER_SIZE);
+        duplicate.get(name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    boolean isNamePrefix(int entry, byte[] prefix) {
+        if (getNameLength(entry) < prefix.length) {
+            return Boolean.FALSE;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (getNameByte(entry, i) != prefix[i]) {
+                return Boolean.FALSE;
+            }
+        }
+        return Boolean.TRUE;
+    }
+
+    boolean isNameSuffix(int entry, byte[] suffix) {
+        int nameLength = getNameLength(entry);
+        if (nameLength < suffix.length) {
+            return Boolean.FALSE;
+        }
+        for (int i = 0; i < suffix.length; i++) {
+            if (getNameByte(entry, nameLength - suffix.length + i) != suffix[i]) {
+                return Boolean.FALSE;
+            }
+        }
+        return Boolean.TRUE;
+    }
+
+    /**
+     * @param entry     Handle of an entry.
+     * @param character Character to search for.
+     * @param fromIndex Index of the name to start searching from.
+     * @return Index of the character in the entry name, or -1 if the name does not contain it.
+     */
+    int indexOfNameByte(int entry, char character, int fromIndex) {
+        int nameLength = getNameLength(entry);
+        for (int i = fromIndex; i < nameLength; i++) {
+            if (getNameByte(entry, i) == character) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find an entry by its exact name.
+     *
+     * @param name Name of the entry.
+     * @return Handle of the entry, or -1 if no entry has the name.
+     * @throws IOException If the central directory is invalid.
+     */
+    int findEntry(String name) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        int entry = getFirstEntry();
+        for (int i = 0; i < entryCount; i++, entry = getNextEntry(entry)) {
+            if (getNameLength(entry) == nameBytes.length && isNamePrefix(entry, nameBytes)) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Read the data of an entry. Stored entries are returned as a view of the archive buffer,
+     * while deflated entries are inflated into memory.
+     *
+     * @param entry Handle of an entry.
+     * @return Buffer holding the uncompressed data of the entry.
+     * @throws IOException If the entry is invalid or uses an unsupported compression method.
+     */
+    ByteBuffer getData(int entry) throws IOException {
+        int method = getUnsignedShort(entry + 10);
+        long compressedSize = getUnsignedInt(entry + 20);
+        long uncompressedSize = getUnsignedInt(entry + 24);
+        long localHeaderOffset = getUnsignedInt(entry + 42);
+
+        if (compressedSize == UNSIGNED_INT_MAX || uncompressedSize == UNSIGNED_INT_MAX || localHeaderOffset == UNSIGNED_INT_MAX) {
+            int extraOffset = entry + CENTRAL_DIRECTORY_HEADER_SIZE + getNameLength(entry);
+            int extraEnd = extraOffset + getUnsignedShort(entry + 30);
+            while (extraOffset + 4 <= extraEnd) {
+                int id = getUnsignedShort(extraOffset);
+                int size = getUnsignedShort(extraOffset + 2);
+                if (id == ZIP64_EXTRA_FIELD_ID) {
+                    int fieldOffset = extraOffset + 4;
+                    if (uncompressedSize == UNSIGNED_INT_MAX) {
+                        uncompressedSize = buffer.getLong(fieldOffset);
+                        fieldOffset += 8;
+                    }
+                    if (compressedSize == UNSIGNED_INT_MAX) {
+                        compressedSize = buffer.getLong(fieldOffset);
+                        fieldOffset += 8;
+                    }
+                    if (localHeaderOffset == UNSIGNED_INT_MAX) {
+                        localHeaderOffset = buffer.getLong(fieldOffset);
+                    }
+                    break;
+                }
+                extraOffset += 4 + size;
+            }
+        }
+
+        int localHeader = toOffset(archiveOffset + localHeaderOffset);
+        if (buffer.getInt(localHeader) != LOCAL_FILE_HEADER_SIGNATURE) {
+            throw new IOException("Invalid local file header for zip entry " + getName(entry));
+        }
+
+        int dataOffset = localHeader + LOCAL_FILE_HEADER_SIZE + getUnsignedShort(localHeader + 26) + getUnsignedShort(localHeader + 28);
+        ByteBuffer data = buffer.duplicate();
+        data.position(dataOffset);
+        data.limit(toOffset(dataOffset + compressedSize));
+
+        if (method == METHOD_STORED) {
+            return data.slice();
+        } else if (method == METHOD_DEFLATED) {
+            return ByteBuffer.wrap(inflate(data, toOffset(uncompressedSize)));
+        } else {
+            throw new IOException("Unsupported compression method " + method + " for zip entry " + getName(entry));
+        }
+    }
+
+    /**
+     * Read the central directory of a zip archive nested as an entry in this archive.
+     *
+     * @param entry Handle of an entry.
+     * @return The central directory of the nested archive.
+     * @throws IOException If the entry is not a valid zip archive.
+     */
+    ZipCentralDirectory getNestedArchive(int entry) throws IOException {
+        return new ZipCentralDirectory(getData(entry));
+    }
+
+    private static byte[] inflate(ByteBuffer data, int uncompressedSize) throws IOException {
+        byte[] input = new byte[data.remaining()];
+        data.get(input);
+        byte[] output = new byte[uncompressedSize];
+        Inflater inflater = new Inflater(Boolean.TRUE);
+        try {
+            inflater.setInput(input);
+            int length = 0;
+            while (length < output.length && !inflater.finished()) {
+                int inflated = inflater.inflate(output, length, output.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != output.length) {
+                throw new IOException("Zip entry was inflated to " + length + " bytes, expected " + output.length);
+            }
+            return output;
+        } catch (DataFormatException e) {
+            throw new IOException("Failed to inflate zip entry", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private int findEndOfCentralDirectory() throws IOException {
+        int limit = Math.max(0, buffer.limit() - END_OF_CENTRAL_DIRECTORY_SIZE - MAX_COMMENT_LENGTH);
+        for (int offset = buffer.limit() - END_OF_CENTRAL_DIRECTORY_SIZE; offset >= limit; offset--) {
+            if (buffer.getInt(offset) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                return offset;
+            }
+        }
+        throw new IOException("No end of central directory record found in zip archive");
+    }
+
+    private int getUnsignedShort(int offset) {
+        return buffer.getShort(offset) & UNSIGNED_SHORT_MAX;
+    }
+
+    private long getUnsignedInt(int offset) {
+        return buffer.getInt(offset) & UNSIGNED_INT_MAX;
+    }
+
+    private static int toOffset(long value) throws IOException {
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IOException("Invalid zip archive offset " + value);
+        }
+        return (int) value;
+    }
+}
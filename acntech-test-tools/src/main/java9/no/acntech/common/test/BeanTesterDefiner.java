@@ -0,0 +1,59 @@
+package no.acntech.common.test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Defines the generated tester classes of beans. On Java 15 and later each tester is defined as a hidden class in the
+ * package of the bean, which is released when no longer used, and is not found by name. Hidden classes are found through
+ * reflection, as this version is compiled for Java 9. Before Java 15, or if the package of the bean is not open for
+ * this library, each tester is defined in a classloader of its own, as a child of the classloader of the bean.
+ * This is the version used on Java 9 and later, packaged in the multi-release section of the jar.
+ */
+final class BeanTesterDefiner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BeanTesterDefiner.class);
+    private static final String CLASS_OPTION_CLASS = "java.lang.invoke.MethodHandles$Lookup$ClassOption";
+    private static final Object NO_CLASS_OPTIONS;
+    private static final Method DEFINE_HIDDEN_CLASS;
+
+    static {
+        Object noClassOptions = null;
+        Method defineHiddenClass = null;
+        try {
+            Class<?> classOptionClass = Class.forName(CLASS_OPTION_CLASS);
+            noClassOptions = Array.newInstance(classOptionClass, 0);
+            defineHiddenClass = MethodHandles.Lookup.class.getMethod("defineHiddenClass", byte[].class, boolean.class, noClassOptions.getClass());
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            LOGGER.debug("Hidden classes are not supported before Java 15, so defining bean testers in classloaders of their own");
+        }
+        NO_CLASS_OPTIONS = noClassOptions;
+        DEFINE_HIDDEN_CLASS = defineHiddenClass;
+    }
+
+    private BeanTesterDefiner() {
+    }
+
+    /**
+     * @param beanClass The bean tested.
+     * @param className Name of the tester.
+     * @param bytes     Class file of the tester.
+     * @return The tester class.
+     */
+    static Class<?> define(Class<?> beanClass, String className, byte[] bytes) {
+        if (DEFINE_HIDDEN_CLASS != null) {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(beanClass, MethodHandles.lookup());
+                return ((MethodHandles.Lookup) DEFINE_HIDDEN_CLASS.invoke(lookup, bytes, Boolean.FALSE, NO_CLASS_OPTIONS)).lookupClass();
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                LOGGER.debug("Unable to define tester of class {} as hidden class, so defining tester in classloader of its own", beanClass.getName(), e);
+            }
+        }
+        return new GeneratedClassLoader(beanClass.getClassLoader()).define(className, bytes);
+    }
+}
@@ -0,0 +1,187 @@
+package no.acntech.common.test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.module.ModuleReader;
+import java.lang.module.ModuleReference;
+import java.lang.module.ResolvedModule;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Searches named modules for classes. Modules of the runtime image are listed through the <b>jrt:/</b> file system,
+ * which reads the index of the image instead of probing for resources. Modules packaged as jar files are read like
+ * other jar files, and any other modules are listed by their module reader.
+ * This is the version used on Java 9 and later, packaged in the multi-release section of the jar.
+ */
+final class ModuleScanner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ModuleScanner.class);
+    private static final String JRT_SCHEME = "jrt";
+    private static final String FILE_SCHEME = "file";
+    private static final URI JRT_ROOT = URI.create("jrt:/");
+    private static final String MODULES_DIRECTORY = "/modules";
+    private static final char PKG_SEPARATOR = '.';
+    private static final char DIR_SEPARATOR = '/';
+    private static final String JAR_ENTRY_SEPARATOR = "!/";
+
+    private ModuleScanner() {
+    }
+
+    /**
+     * @return If the running Java version has modules.
+     */
+    static boolean isSupported() {
+        return Boolean.TRUE;
+    }
+
+    /**
+     * Find the named modules of the boot layer holding any of the packages.
+     *
+     * @param packages Packages to search.
+     * @return Locations of the modules by module name.
+     */
+    static Map<String, URI> findModules(PackageTrie packages) {
+        Map<String, URI> modules = new TreeMap<>();
+        for (ResolvedModule module : ModuleLayer.boot().configuration().modules()) {
+            ModuleReference reference = module.reference();
+            if (reference.location().isPresent() && isHoldingPackage(reference, packages)) {
+                modules.put(module.name(), reference.location().get());
+            }
+        }
+
+        LOGGER.debug("Found modules {} holding packages {}", modules.keySet(), packages);
+
+        return modules;
+    }
+
+    /**
+     * @param moduleName Name of the module.
+     * @return The classloader defining the classes of the module.
+     */
+    static ClassLoader getClassLoader(String moduleName) {
+        // Modules of the bootstrap classloader have no classloader, so their classes are loaded through delegation
+        return ModuleLayer.boot().findModule(moduleName)
+                .map(Module::getClassLoader)
+                .orElse(TestReflectionUtils.class.getClassLoader());
+    }
+
+    /**
+     * Visit the classes of the packages in a module that are not excluded by their path.
+     *
+     * @param moduleName    Name of the module.
+     * @param packages      Packages to search.
+     * @param classCriteria Package search criteria for classes.
+     * @param visitor       Visitor of the classes found.
+     * @throws IOException            If reading the module fails.
+     * @throws ClassNotFoundException If creating class for a class name fails.
+     */
+    static void visitClasses(String moduleName, PackageTrie packages, ClassCriteria classCriteria, TestReflectionUtils.ClassVisitor visitor) throws IOException, ClassNotFoundException {
+        Optional<ModuleReference> reference = ModuleLayer.boot().configuration().findModule(moduleName).map(ResolvedModule::reference);
+        URI location = reference.flatMap(ModuleReference::location).orElse(null);
+        if (location == null) {
+            LOGGER.debug("Module {} is not in the boot layer, so skipping module", moduleName);
+            return;
+        }
+
+        if (JRT_SCHEME.equals(location.getScheme())) {
+            visitClassesInImage(moduleName, packages, classCriteria, visitor);
+        } else if (FILE_SCHEME.equals(location.getScheme()) && Files.isRegularFile(Paths.get(location))) {
+            Path jarFile = Paths.get(location).toAbsolutePath();
+            LOGGER.debug("Searching for classes in packages {} in module {} in {}", packages, moduleName, jarFile);
+            TestReflectionUtils.visitClassesInZip(ZipCentralDirectory.map(jarFile), "", packages, jarFile + JAR_ENTRY_SEPARATOR, classCriteria, visitor);
+        } else {
+            visitClassesWithReader(moduleName, reference.get(), location, packages, classCriteria, visitor);
+        }
+    }
+
+    private static void visitClassesInImage(String moduleName, PackageTrie packages, ClassCriteria classCriteria, TestReflectionUtils.ClassVisitor visitor) throws IOException, ClassNotFoundException {
+        FileSystem fileSystem = FileSystems.getFileSystem(JRT_ROOT);
+        Path moduleDirectory = fileSystem.getPath(MODULES_DIRECTORY, moduleName);
+        ClassEntryMatcher matcher = new ClassEntryMatcher(packages, "", JRT_ROOT + moduleName + DIR_SEPARATOR, classCriteria);
+
+        LOGGER.debug("Searching for classes in packages {} in module {} of the runtime image", packages, moduleName);
+
+        for (String packageName : packages.getPackageNames()) {
+            Path packageDirectory = moduleDirectory.resolve(packageName.replace(PKG_SEPARATOR, DIR_SEPARATOR));
+            if (!Files.isDirectory(packageDirectory)) {
+                continue;
+            }
+
+            try (Stream<Path> paths = Files.walk(packageDirectory, classCriteria.isRecursiveSearch() ? Integer.MAX_VALUE : 1)) {
+                for (Iterator<Path> iterator = paths.iterator(); iterator.hasNext(); ) {
+                    Path path = iterator.next();
+                    String className = matcher.match(moduleDirectory.relativize(path).toString());
+                    if (className == null) {
+                        continue;
+                    }
+
+                    LOGGER.trace("Found class {} in module {}", className, moduleName);
+                    if (!visitor.visit(className, () -> ByteBuffer.wrap(Files.readAllBytes(path)))) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private static void visitClassesWithReader(String moduleName, ModuleReference reference, URI location, PackageTrie packages,
+                                               ClassCriteria classCriteria, TestReflectionUtils.ClassVisitor visitor) throws IOException, ClassNotFoundException {
+        ClassEntryMatcher matcher = new ClassEntryMatcher(packages, "", location.toString() + DIR_SEPARATOR, classCriteria);
+
+        LOGGER.debug("Searching for classes in packages {} in module {} in {}", packages, moduleName, location);
+
+        try (ModuleReader reader = reference.open(); Stream<String> names = reader.list()) {
+            for (Iterator<String> iterator = names.iterator(); iterator.hasNext(); ) {
+                String name = iterator.next();
+                String className = matcher.match(name);
+                if (className == null) {
+                    continue;
+                }
+
+                LOGGER.trace("Found class {} in module {}", className, moduleName);
+                if (!visitor.visit(className, () -> read(reference, name))) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Classes of a stream are read after the module is listed, when the reader listing it is closed, so the module is opened again.
+     */
+    private static ByteBuffer read(ModuleReference reference, String name) throws IOException {
+        try (ModuleReader reader = reference.open()) {
+            Optional<InputStream> resource = reader.open(name);
+            if (!resource.isPresent()) {
+                throw new NoSuchFileException(name);
+            }
+            try (InputStream in = resource.get()) {
+                return ByteBuffer.wrap(in.readAllBytes());
+            }
+        }
+    }
+
+    private static boolean isHoldingPackage(ModuleReference reference, PackageTrie packages) {
+        for (String packageName : reference.descriptor().packages()) {
+            if (packages.findSearchedPackage(packageName, 0, packageName.length(), PKG_SEPARATOR) >= 0) {
+                return Boolean.TRUE;
+            }
+        }
+        return Boolean.FALSE;
+    }
+}
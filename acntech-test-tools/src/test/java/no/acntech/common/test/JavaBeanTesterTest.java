@@ -3,16 +3,30 @@ package no.acntech.common.test;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+import no.acntech.common.test.testproperties.DummyObjectWithSmallPrimitives;
 import no.acntech.common.test.testsubject.DummyObjectWithAdvancedTypes;
 import no.acntech.common.test.testsubject.DummyObjectWithNoDefaultConstructor;
 import no.acntech.common.test.testsubject.DummyObjectWithPrimitives;
+import no.acntech.common.test.testsubject.subpackage.DummySubObject;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
 
 public class JavaBeanTesterTest {
 
     @Rule
     public ExpectedException thrown = ExpectedException.none();
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void testClassUsingNull() throws Exception {
         thrown.expect(IllegalArgumentException.class);
@@ -42,6 +56,44 @@ public class JavaBeanTesterTest {
         JavaBeanTester.testClass(DummyObjectWithPrimitives.class, "str", "int", "obj");
     }
 
+    @Test
+    public void testClassUsingTestBeanWithSmallPrimitives() throws Exception {
+        JavaBeanTester.testClass(DummyObjectWithSmallPrimitives.class, "brokenItgr");
+    }
+
+    @Test
+    public void testClassUsingTestBeanWithBrokenPrimitive() throws Exception {
+        thrown.expect(AssertionError.class);
+        thrown.expectMessage("brokenItgr");
+
+        JavaBeanTester.testClass(DummyObjectWithSmallPrimitives.class);
+    }
+
+    @Test
+    public void testClassUsingGeneratedTester() throws Exception {
+        List<GetterSetter> gettersAndSetters = TestReflectionUtils.findGettersAndSetters(DummyObjectWithSmallPrimitives.class);
+        ToIntFunction<Object[]> tester = BeanTesterGenerator.getTester(DummyObjectWithSmallPrimitives.class, gettersAndSetters);
+        Object[] values = new Object[gettersAndSetters.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = TestTypeFactory.createType(gettersAndSetters.get(i).getGetter().getReturnType());
+        }
+
+        assertThat("Tester not generated", tester, notNullValue());
+        assertThat("Tester not reused", BeanTesterGenerator.getTester(DummyObjectWithSmallPrimitives.class, gettersAndSetters), is(tester));
+        assertThat("Wrong field failed", gettersAndSetters.get(tester.applyAsInt(values)).getName(), is("brokenItgr"));
+
+        JavaBeanTester.testClass(DummyObjectWithPrimitives.class, FieldCriteria.createDefault().doGenerateTesters().build());
+        JavaBeanTester.testClass(DummyObjectWithAdvancedTypes.class, FieldCriteria.createDefault().doGenerateTesters().build());
+    }
+
+    @Test
+    public void testClassUsingGeneratedTesterWithBrokenPrimitive() throws Exception {
+        thrown.expect(AssertionError.class);
+        thrown.expectMessage("brokenItgr");
+
+        JavaBeanTester.testClass(DummyObjectWithSmallPrimitives.class, FieldCriteria.createDefault().doGenerateTesters().build());
+    }
+
     @Test
     public void testClassesPackageIsNull() throws Exception {
         thrown.expect(IllegalArgumentException.class);
@@ -66,6 +118,35 @@ public class JavaBeanTesterTest {
         JavaBeanTester.testClasses(DummyObjectWithPrimitives.class.getPackage(), ClassCriteria.createDefault().build());
     }
 
+    @Test
+    public void testClassesInPackageWithScanCache() throws Exception {
+        File scanCache = new File(temporaryFolder.getRoot(), "scan-cache.bin");
+
+        JavaBeanTester.testClasses(DummyObjectWithPrimitives.class.getPackage(), ClassCriteria.createDefault().withScanCache(scanCache).build());
+
+        assertThat("Scan cache not written", scanCache.isFile(), is(true));
+    }
+
+    @Test
+    public void testClassesInPackagesWithCriteria() throws Exception {
+        JavaBeanTester.testClasses(ClassCriteria.createRecursive().build(), DummyObjectWithPrimitives.class.getPackage(), DummySubObject.class.getPackage());
+    }
+
+    @Test
+    public void testChangedClassesWatcherIsNull() throws Exception {
+        thrown.expect(IllegalArgumentException.class);
+
+        JavaBeanTester.testChangedClasses(null);
+    }
+
+    @Test
+    public void testChangedClasses() throws Exception {
+        try (ClassWatcher classWatcher = TestReflectionUtils.watchClasses(ClassCriteria.createDefault().build(), DummyObjectWithPrimitives.class.getPackage().getName())) {
+            JavaBeanTester.testChangedClasses(classWatcher);
+            JavaBeanTester.testChangedClasses(classWatcher);
+        }
+    }
+
     @Test
     public void testClassesUsingTestBeanWithNoDefaultConstructor() throws Exception {
         JavaBeanTester.testClasses(DummyObjectWithNoDefaultConstructor.class);
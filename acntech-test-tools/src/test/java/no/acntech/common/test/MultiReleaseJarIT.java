@@ -0,0 +1,62 @@
+package no.acntech.common.test;
+
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+import no.acntech.common.test.testsubject.DummyObjectWithPrimitives;
+
+import static org.hamcrest.CoreMatchers.endsWith;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.Matchers.hasItemInArray;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests of the Java 9 classes in the multi-release section of the packaged jar, which are not used when testing from the class directories.
+ * Run by the failsafe plugin of the multi-release profile, so only on Java 9 or later.
+ */
+public class MultiReleaseJarIT {
+
+    @Test
+    public void testClassesLoadedFromJar() throws Exception {
+        assertThat("Classes not loaded from jar", ModuleScanner.class.getProtectionDomain().getCodeSource().getLocation().getPath(), endsWith(".jar"));
+        assertThat("Java 9 version of ModuleScanner not used", ModuleScanner.isSupported(), is(true));
+    }
+
+    @Test
+    public void testFindClassesInRuntimeImageSearchingModules() throws Exception {
+        Class<?>[] classes = TestReflectionUtils.findClasses(Function.class.getPackage(), ClassCriteria.createDefault().doSearchModules().build());
+
+        assertThat("Class in runtime image not found", classes, hasItemInArray(Function.class));
+    }
+
+    @Test
+    public void testGeneratedTesterDefined() throws Exception {
+        List<GetterSetter> gettersAndSetters = TestReflectionUtils.findGettersAndSetters(DummyObjectWithPrimitives.class);
+        ToIntFunction<Object[]> tester = BeanTesterGenerator.getTester(DummyObjectWithPrimitives.class, gettersAndSetters);
+
+        assertThat("Tester not generated", tester, notNullValue());
+
+        Method isHidden = findIsHidden();
+        if (isHidden == null) {
+            assertThat("Tester not defined in classloader of its own", tester.getClass().getClassLoader(), instanceOf(GeneratedClassLoader.class));
+        } else {
+            assertThat("Tester not defined as hidden class", isHidden.invoke(tester.getClass()), is((Object) Boolean.TRUE));
+        }
+
+        JavaBeanTester.testClass(DummyObjectWithPrimitives.class, FieldCriteria.createDefault().doGenerateTesters().build());
+    }
+
+    private static Method findIsHidden() {
+        try {
+            return Class.class.getMethod("isHidden");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
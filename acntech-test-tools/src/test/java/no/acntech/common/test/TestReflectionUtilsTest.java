@@ -1,21 +1,67 @@
 package no.acntech.common.test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Retention;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
-
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.JUnitCore;
+
+import no.acntech.common.test.testhierarchy.DummyAbstractType;
+import no.acntech.common.test.testhierarchy.DummyInheritedAnnotation;
+import no.acntech.common.test.testhierarchy.DummySubType;
+import no.acntech.common.test.testhierarchy.DummySubTypeImplementation;
+import no.acntech.common.test.testhierarchy.DummyType;
+import no.acntech.common.test.testhierarchy.DummyTypeImplementation;
+import no.acntech.common.test.testinitialization.DummyInitializedType;
+import no.acntech.common.test.testproperties.DummyObjectWithBooleanWrapper;
+import no.acntech.common.test.testproperties.DummyObjectWithFailingProperties;
+import no.acntech.common.test.testsubject.DummyEnum;
 import no.acntech.common.test.testsubject.DummyFinalObject;
 import no.acntech.common.test.testsubject.DummyObjectWithNoDefaultConstructor;
 import no.acntech.common.test.testsubject.DummyObjectWithPrimitives;
 import no.acntech.common.test.testsubject.subpackage.DummySubObject;
+import no.acntech.common.test.testsubject.subpackage.subsubpackage.DummySubSubObject;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasItemInArray;
 import static org.hamcrest.Matchers.hasSize;
 import static org.junit.Assert.assertThat;
 
@@ -24,6 +70,9 @@ public class TestReflectionUtilsTest {
     @Rule
     public ExpectedException thrown = ExpectedException.none();
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void testSetInternalFieldTargetIsNull() throws Exception {
         thrown.expect(IllegalArgumentException.class);
@@ -96,6 +145,35 @@ public class TestReflectionUtilsTest {
         assertThat(TestReflectionUtils.isFinalClass(DummyObjectWithPrimitives.class), is(Boolean.FALSE));
     }
 
+    @Test
+    public void testIsClassExistsWithExistingClass() {
+        ClassLoader classLoader = TestReflectionUtilsTest.class.getClassLoader();
+
+        assertThat("Existing class not found", TestReflectionUtils.isClassExists(DummyEnum.class.getName(), classLoader), is(true));
+        assertThat("JDK class not found", TestReflectionUtils.isClassExists("java.lang.String", classLoader), is(true));
+        assertThat("Array class not found", TestReflectionUtils.isClassExists(String[].class, classLoader), is(true));
+    }
+
+    @Test
+    public void testIsClassExistsWithMissingClass() {
+        ClassLoader classLoader = TestReflectionUtilsTest.class.getClassLoader();
+
+        assertThat("Missing class found", TestReflectionUtils.isClassExists("no.acntech.common.test.MissingClass", classLoader), is(false));
+        assertThat("Missing class found on second check", TestReflectionUtils.isClassExists("no.acntech.common.test.MissingClass", classLoader), is(false));
+    }
+
+    @Test
+    public void testIsClassExistsWithClassWithoutClassFile() throws Exception {
+        byte[] bytes = Files.readAllBytes(Paths.get(DummySubObject.class.getResource(DummySubObject.class.getSimpleName() + ".class").toURI()));
+        // Without a parent, the classloader has no class file resource for the class it defines
+        GeneratedClassLoader classLoader = new GeneratedClassLoader(null);
+        Class<?> clazz = classLoader.define(DummySubObject.class.getName(), bytes);
+
+        assertThat("Defined class not found", TestReflectionUtils.isClassExists(clazz, classLoader), is(true));
+        assertThat("Missing class found", TestReflectionUtils.isClassExists("no.acntech.common.test.MissingClass", classLoader), is(false));
+        assertThat("Archive class not found", TestReflectionUtils.isClassExists(DummySubObject.class, ArchiveClassLoader.open(createArchiveWithNestedJar(), null)), is(true));
+    }
+
     @Test
     public void testCreateBeanTargetIsNull() throws Exception {
         thrown.expect(IllegalArgumentException.class);
@@ -132,6 +210,35 @@ public class TestReflectionUtilsTest {
         assertThat("Value not correct", object.getStr(), is("1337"));
     }
 
+    @Test
+    public void testFindConstructorWithAllParamsMatchIsCached() throws Exception {
+        Constructor<IllegalStateException> constructor = TestReflectionUtils.findConstructorWithAllParamsMatch(IllegalStateException.class, String.class, RuntimeException.class);
+
+        assertThat("Wrong constructor", constructor.getParameterTypes(), is(new Class<?>[]{String.class, Throwable.class}));
+        assertThat("Constructor not cached", TestReflectionUtils.findConstructorWithAllParamsMatch(IllegalStateException.class, String.class, RuntimeException.class), is(constructor));
+    }
+
+    @Test
+    public void testFindConstructorWithAllParamsMatchNotFoundIsCached() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            try {
+                TestReflectionUtils.findConstructorWithAllParamsMatch(DummyObjectWithNoDefaultConstructor.class, Integer.class);
+                Assert.fail("No NoSuchConstructorException");
+            } catch (NoSuchConstructorException e) {
+                assertThat("Exception has no message", e.getMessage(), notNullValue());
+            }
+        }
+    }
+
+    @Test
+    public void testFindConstructorsWithParamMatchReturnsCopy() throws Exception {
+        Constructor<IllegalStateException>[] constructors = TestReflectionUtils.findConstructorsWithParamMatch(IllegalStateException.class, String.class);
+        assertThat("Wrong number of constructors", constructors.length, is(2));
+        constructors[0] = null;
+
+        assertThat("Cached constructors changed", TestReflectionUtils.findConstructorsWithParamMatch(IllegalStateException.class, String.class)[0], notNullValue());
+    }
+
     @Test
     public void testFindClassesPackageIsNull() throws Exception {
         thrown.expect(IllegalArgumentException.class);
@@ -217,6 +324,34 @@ public class TestReflectionUtilsTest {
         assertThat("Array of classes is not empty", classes.length, is(0));
     }
 
+    @Test
+    public void testFindClassesInPackageExcludePathGlobs() throws Exception {
+        Class<?>[] classes = TestReflectionUtils.findClasses(DummyObjectWithPrimitives.class.getPackage(), ClassCriteria.createRecursive().doExcludePathGlobs("**/subpackage/**").build());
+
+        assertThat("Package classes are null", classes, notNullValue());
+        assertThat("Wrong number og classes found in package", classes.length, is(9));
+    }
+
+    @Test
+    public void testFindClassesInPackageExcludePathRegexesAndGlobs() throws Exception {
+        Class<?>[] classes = TestReflectionUtils.findClasses(DummyObjectWithPrimitives.class.getPackage(), ClassCriteria.createRecursive()
+                .doExcludePaths("Dummy.*Object", "(m)\\1yEnum")
+                .doExcludePathGlobs("**/subsubpackage/**")
+                .build());
+
+        assertThat("Package classes are null", classes, notNullValue());
+        assertThat("Wrong number og classes found in package", classes.length, is(2));
+    }
+
+    @Test
+    public void testFindClassesInJarPackageExcludePathGlobs() throws Exception {
+        Class<?>[] classes = TestReflectionUtils.findClasses(Test.class.getPackage(), ClassCriteria.createRecursive().withMaxClassLimit(Integer.MAX_VALUE).doExcludePathGlobs("**/rules/**").build());
+
+        assertThat("Package classes are null", classes, notNullValue());
+        assertThat("Class in jar not found", classes, hasItemInArray(Test.class));
+        assertThat("Class in excluded jar directory found", classes, not(hasItemInArray(ExpectedException.class)));
+    }
+
     @Test
     public void testFindClassesInPackageRecursiveSearchCriteriaWithLimit() throws Exception {
         Class<?>[] classes = TestReflectionUtils.findClasses(DummyObjectWithPrimitives.class.getPackage(), ClassCriteria.createRecursive().withMaxClassLimit(7).build());
@@ -225,6 +360,648 @@ public class TestReflectionUtilsTest {
         assertThat("Wrong number og classes found in package", classes.length, is(7));
     }
 
+    @Test
+    public void testFindClassesInPackageParallelRecursiveSearchCriteria() throws Exception {
+        Class<?>[] classes = TestReflectionUtils.findClasses(DummyObjectWithPrimitives.class.getPackage(), ClassCriteria.createRecursive().doParallelSearch().build());
+
+        assertThat("Package classes are null", classes, notNullValue());
+        assertThat("Wrong number og classes found in package", classes.length, is(11));
+        assertThat("Classes differ from sequential search", classes, is(TestReflectionUtils.findClasses(DummyObjectWithPrimitives.class.getPackage(), ClassCriteria.createRecursive().build())));
+    }
+
+    @Test
+    public void testFindClassesInPackageParallelRecursiveSearchCriteriaWithLimit() throws Exception {
+        Class<?>[] classes = TestReflectionUtils.findClasses(DummyObjectWithPrimitives.class.getPackage(), ClassCriteria.createRecursive().doParallelSearch().withMaxClassLimit(7).build());
+        Class<?>[] sequentialClasses = TestReflectionUtils.findClasses(DummyObjectWithPrimitives.class.getPackage(), ClassCriteria.createRecursive().withMaxClassLimit(7).build());
+
+        assertThat("Package classes are null", classes, notNullValue());
+        assertThat("Wrong number og classes found in package", classes.length, is(7));
+        assertThat("Classes differ from sequential search", classes, is(sequentialClasses));
+    }
+
+    @Test
+    public void testFindClassesInPackageParallelSearchWithoutInitialization() throws Exception {
+        Class<?>[] classes = TestReflectionUtils.findClasses("no.acntech.common.test.testinitialization", ClassCriteria.createDefault().doParallelSearch().doSkipInitialization().build());
+
+        assertThat("Wrong number og classes found in package", classes.length, is(1));
+        assertThat("Class was initialized", System.getProperty(DummyInitializedType.INITIALIZED_PROPERTY), nullValue());
+    }
+
+    @Test
+    public void testFindClassesInPackageWithScanCache() throws Exception {
+        File scanCache = new File(temporaryFolder.getRoot(), "scan-cache.bin");
+        ClassCriteria classCriteria = ClassCriteria.createRecursive().withScanCache(scanCache).build();
+
+        Class<?>[] coldClasses = TestReflectionUtils.findClasses(DummyObjectWithPrimitives.class.getPackage(), classCriteria);
+        Class<?>[] warmClasses = TestReflectionUtils.findClasses(DummyObjectWithPrimitives.class.getPackage(), classCriteria);
+
+        assertThat("Scan cache not written", scanCache.isFile(), is(true));
+        assertThat("Wrong number og classes found in package", coldClasses.length, is(11));
+        assertThat("Wrong number og classes found in package using scan cache", warmClasses.length, is(11));
+        assertThat("Class not found using scan cache", warmClasses, hasItemInArray(DummySubObject.class));
+    }
+
+    @Test
+    public void testFindClassesInPackageWithScanCacheExcludeAll() throws Exception {
+        File scanCache = new File(temporaryFolder.getRoot(), "scan-cache.bin");
+        TestReflectionUtils.findClasses(DummyObjectWithPrimitives.class.getPackage(), ClassCriteria.createDefault().withScanCache(scanCache).build());
+        Class<?>[] classes = TestReflectionUtils.findClasses(DummyObjectWithPrimitives.class.getPackage(), ClassCriteria.createDefault().withScanCache(scanCache).doExcludeAll().build());
+
+        assertThat("Package classes are null", classes, notNullValue());
+        assertThat("Wrong number og classes found in package", classes.length, is(5));
+    }
+
+    @Test
+    public void testFindClassesInPackageWithCorruptScanCache() throws Exception {
+        File scanCache = temporaryFolder.newFile("scan-cache.bin");
+        Files.write(scanCache.toPath(), "corrupt".getBytes(StandardCharsets.UTF_8));
+
+        Class<?>[] classes = TestReflectionUtils.findClasses(DummyObjectWithPrimitives.class.getPackage(), ClassCriteria.createDefault().withScanCache(scanCache).build());
+
+        assertThat("Package classes are null", classes, notNullValue());
+        assertThat("Wrong number og classes found in package", classes.length, is(9));
+    }
+
+    @Test
+    public void testFindClassesInPackageWithClassIndex() throws Exception {
+        File classIndex = createClassIndex();
+
+        Class<?>[] classes = TestReflectionUtils.findClasses(DummyObjectWithPrimitives.class.getPackage(), ClassCriteria.createRecursive().withClassIndex(classIndex).build());
+
+        assertThat("Package classes are null", classes, notNullValue());
+        assertThat("Wrong number og classes found in package", classes.length, is(11));
+        assertThat("Class in child package not found", classes, hasItemInArray(DummySubObject.class));
+    }
+
+    @Test
+    public void testFindClassesInPackageWithClassIndexNonRecursive() throws Exception {
+        File classIndex = createClassIndex();
+
+        Class<?>[] classes = TestReflectionUtils.findClasses(DummyObjectWithPrimitives.class.getPackage(), ClassCriteria.createDefault().withClassIndex(classIndex).build());
+
+        assertThat("Package classes are null", classes, notNullValue());
+        assertThat("Wrong number og classes found in package", classes.length, is(9));
+    }
+
+    @Test
+    public void testFindClassesInPackageWithClassIndexExcludeAll() throws Exception {
+        File classIndex = createClassIndex();
+
+        Class<?>[] classes = TestReflectionUtils.findClasses(DummyObjectWithPrimitives.class.getPackage(), ClassCriteria.createDefault().withClassIndex(classIndex).doExcludeAll().build());
+
+        assertThat("Package classes are null", classes, notNullValue());
+        assertThat("Wrong number og classes found in package", classes.length, is(5));
+    }
+
+    @Test
+    public void testFindClassesInPackageWithClassIndexExcludePathGlobs() throws Exception {
+        File classIndex = createClassIndex();
+
+        Class<?>[] classes = TestReflectionUtils.findClasses(DummyObjectWithPrimitives.class.getPackage(), ClassCriteria.createRecursive().withClassIndex(classIndex).doExcludePathGlobs("**/subpackage/**").build());
+
+        assertThat("Package classes are null", classes, notNullValue());
+        assertThat("Wrong number og classes found in package", classes.length, is(9));
+    }
+
+    @Test
+    public void testFindClassesInPackageWithMissingClassIndex() throws Exception {
+        File classIndex = new File(temporaryFolder.getRoot(), "missing-class-index.bin");
+
+        Class<?>[] classes = TestReflectionUtils.findClasses(DummyObjectWithPrimitives.class.getPackage(), ClassCriteria.createRecursive().withClassIndex(classIndex).build());
+
+        assertThat("Package classes are null", classes, notNullValue());
+        assertThat("Wrong number og classes found in package", classes.length, is(11));
+    }
+
+    @Test
+    public void testStreamClassesPackageIsNull() throws Exception {
+        thrown.expect(IllegalArgumentException.class);
+
+        TestReflectionUtils.streamClasses((Package) null, ClassCriteria.createDefault().build());
+    }
+
+    @Test
+    public void testStreamClassesInPackageRecursiveSearchCriteria() throws Exception {
+        try (Stream<Class<?>> classes = TestReflectionUtils.streamClasses(DummyObjectWithPrimitives.class.getPackage(), ClassCriteria.createRecursive().build())) {
+            List<Class<?>> classList = classes.collect(Collectors.toList());
+
+            assertThat("Wrong number og classes found in package", classList, hasSize(11));
+            assertThat("Class in child package not found", classList.contains(DummySubObject.class), is(true));
+        }
+    }
+
+    @Test
+    public void testStreamClassesInPackageIgnoresMaxClassLimit() throws Exception {
+        try (Stream<Class<?>> classes = TestReflectionUtils.streamClasses(DummyObjectWithPrimitives.class.getPackage(), ClassCriteria.createRecursive().withMaxClassLimit(3).build())) {
+            assertThat("Wrong number og classes found in package", classes.count(), is(11L));
+        }
+    }
+
+    @Test
+    public void testStreamClassesInPackageWithLimitAndFilter() throws Exception {
+        try (Stream<Class<?>> classes = TestReflectionUtils.streamClasses(DummyObjectWithPrimitives.class.getPackage(), ClassCriteria.createRecursive().build())) {
+            List<Class<?>> classList = classes.filter(clazz -> !clazz.isInterface()).limit(3).collect(Collectors.toList());
+
+            assertThat("Wrong number og classes found in package", classList, hasSize(3));
+        }
+    }
+
+    @Test
+    public void testStreamClassesInPackageParallel() throws Exception {
+        try (Stream<Class<?>> classes = TestReflectionUtils.streamClasses(DummyObjectWithPrimitives.class.getPackage(), ClassCriteria.createRecursive().doParallelSearch().build())) {
+            assertThat("Stream is not parallel", classes.isParallel(), is(true));
+            assertThat("Wrong number og classes found in package", classes.distinct().count(), is(11L));
+        }
+    }
+
+    @Test
+    public void testStreamClassesParallelWithoutInitialization() throws Exception {
+        try (Stream<Class<?>> classes = TestReflectionUtils.streamClasses("no.acntech.common.test.testinitialization", ClassCriteria.createDefault().doParallelSearch().doSkipInitialization().build())) {
+            assertThat("Wrong number og classes found in package", classes.count(), is(1L));
+        }
+        assertThat("Class was initialized", System.getProperty(DummyInitializedType.INITIALIZED_PROPERTY), nullValue());
+    }
+
+    @Test
+    public void testStreamClassesInPackageWithClassIndexExcludeAll() throws Exception {
+        File classIndex = createClassIndex();
+
+        try (Stream<Class<?>> classes = TestReflectionUtils.streamClasses(DummyObjectWithPrimitives.class.getPackage(), ClassCriteria.createDefault().withClassIndex(classIndex).doExcludeAll().build())) {
+            assertThat("Wrong number og classes found in package", classes.count(), is(5L));
+        }
+    }
+
+    @Test
+    public void testStreamClassesInPackageOnClassPathTwice() throws Exception {
+        Path classesDirectory = Paths.get(DummyObjectWithPrimitives.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        Path packageDirectory = classesDirectory.resolve(DummyObjectWithPrimitives.class.getPackage().getName().replace('.', '/'));
+        File jarFile = temporaryFolder.newFile("package.jar");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jarFile))) {
+            // Class loaders only find a package in a jar file through its directory entries
+            String directoryName = "";
+            for (Path name : classesDirectory.relativize(packageDirectory)) {
+                directoryName += name + "/";
+                out.putNextEntry(new ZipEntry(directoryName));
+                out.closeEntry();
+            }
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(packageDirectory, "*.class")) {
+                for (Path file : files) {
+                    out.putNextEntry(new ZipEntry(classesDirectory.relativize(file).toString().replace('\\', '/')));
+                    out.write(Files.readAllBytes(file));
+                    out.closeEntry();
+                }
+            }
+        }
+
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{jarFile.toURI().toURL()}, contextClassLoader)) {
+            thread.setContextClassLoader(classLoader);
+            try (Stream<Class<?>> classes = TestReflectionUtils.streamClasses(DummyObjectWithPrimitives.class.getPackage(), ClassCriteria.createDefault().build())) {
+                assertThat("Wrong number og classes found in package", classes.count(), is(9L));
+            }
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+    }
+
+    @Test
+    public void testCopyClassCriteriaWithClassLoader() throws Exception {
+        ClassCriteria classCriteria = ClassCriteria.createDefault().doExcludeNames("*Enum").build();
+        ClassLoader classLoader = new GeneratedClassLoader(null);
+        ClassCriteria copiedCriteria = classCriteria.copyWithClassLoader(classLoader);
+        copiedCriteria.getExcludeNames().add("*Final*");
+
+        assertThat("Classloader not copied", copiedCriteria.getClassLoader(null), is(classLoader));
+        assertThat("Initialization not skipped", copiedCriteria.isSkipInitialization(), is(true));
+        assertThat("Names excluded by original changed", classCriteria.getExcludeNames(), is(Collections.singleton("*Enum")));
+        assertThat("Class filter shared with original", copiedCriteria.getClassFilter(), not(classCriteria.getClassFilter()));
+    }
+
+    @Test
+    public void testClassEntriesInRootPackageSkipMetaInfAndModuleInfo() throws Exception {
+        ClassEntryMatcher matcher = new ClassEntryMatcher(new PackageTrie(Boolean.TRUE, ""), "", "root.jar!/", ClassCriteria.createRecursive().build());
+
+        assertThat("Multi-release class matched", matcher.match("META-INF/versions/9/no/acntech/Dummy.class"), nullValue());
+        assertThat("Module descriptor matched", matcher.match("module-info.class"), nullValue());
+        assertThat("Module descriptor in package matched", matcher.match("no/acntech/module-info.class"), nullValue());
+        assertThat("Class in root package not matched", matcher.match("Dummy.class"), is("Dummy"));
+        assertThat("Class in package not matched", matcher.match("no/acntech/Dummy.class"), is("no.acntech.Dummy"));
+    }
+
+    @Test
+    public void testStreamClassesInJarPackage() throws Exception {
+        try (Stream<Class<?>> classes = TestReflectionUtils.streamClasses(Test.class.getPackage(), ClassCriteria.createDefault().build())) {
+            List<Class<?>> classList = classes.collect(Collectors.toList());
+
+            assertThat("Class in jar not found", classList.contains(Test.class), is(true));
+            assertThat("Class in child package of jar found", classList.contains(ExpectedException.class), is(false));
+        }
+    }
+
+    @Test
+    public void testFindClassesInPackagesIsNull() throws Exception {
+        thrown.expect(IllegalArgumentException.class);
+
+        TestReflectionUtils.findClasses(ClassCriteria.createDefault().build(), DummyEnum.class.getPackage().getName(), null);
+    }
+
+    @Test
+    public void testFindClassesInOverlappingPackages() throws Exception {
+        Class<?>[] classes = TestReflectionUtils.findClasses(ClassCriteria.createRecursive().build(),
+                DummySubObject.class.getPackage().getName(), DummyObjectWithPrimitives.class.getPackage().getName(), DummySubObject.class.getPackage().getName());
+
+        assertThat("Package classes are null", classes, notNullValue());
+        assertThat("Wrong number og classes found in packages", classes.length, is(11));
+    }
+
+    @Test
+    public void testFindClassesInPackagesWithLimit() throws Exception {
+        Class<?>[] classes = TestReflectionUtils.findClasses(ClassCriteria.createDefault().withMaxClassLimit(10).build(),
+                DummyObjectWithPrimitives.class.getPackage().getName(), DummyType.class.getPackage().getName());
+
+        assertThat("Package classes are null", classes, notNullValue());
+        assertThat("Wrong number og classes found in packages", classes.length, is(10));
+    }
+
+    @Test
+    public void testFindClassesInPackagesNonRecursive() throws Exception {
+        Class<?>[] classes = TestReflectionUtils.findClasses(ClassCriteria.createDefault().build(),
+                DummyObjectWithPrimitives.class.getPackage().getName(), DummySubSubObject.class.getPackage().getName());
+
+        assertThat("Package classes are null", classes, notNullValue());
+        assertThat("Wrong number og classes found in packages", classes.length, is(10));
+        assertThat("Class in child package found", classes, not(hasItemInArray(DummySubObject.class)));
+    }
+
+    @Test
+    public void testFindClassesInJarAndDirectoryPackages() throws Exception {
+        Class<?>[] classes = TestReflectionUtils.findClasses(ClassCriteria.createDefault().build(),
+                Test.class.getPackage().getName(), ExpectedException.class.getPackage().getName(), DummyEnum.class.getPackage().getName());
+
+        assertThat("Package classes are null", classes, notNullValue());
+        assertThat("Class in jar not found", classes, hasItemInArray(Test.class));
+        assertThat("Class in jar child package not found", classes, hasItemInArray(ExpectedException.class));
+        assertThat("Class in directory not found", classes, hasItemInArray(DummyEnum.class));
+        assertThat("Class in other jar child package found", classes, not(hasItemInArray(JUnitCore.class)));
+    }
+
+    @Test
+    public void testStreamClassesInPackages() throws Exception {
+        try (Stream<Class<?>> classes = TestReflectionUtils.streamClasses(ClassCriteria.createRecursive().build(),
+                DummyObjectWithPrimitives.class.getPackage().getName(), DummySubObject.class.getPackage().getName())) {
+            assertThat("Wrong number og classes found in packages", classes.count(), is(11L));
+        }
+    }
+
+    @Test
+    public void testFindClassesInPackageSearchingModules() throws Exception {
+        Class<?>[] classes = TestReflectionUtils.findClasses(DummyObjectWithPrimitives.class.getPackage(), ClassCriteria.createDefault().doSearchModules().build());
+
+        assertThat("Package classes are null", classes, notNullValue());
+        assertThat("Wrong number og classes found in package", classes.length, is(9));
+    }
+
+    @Test
+    public void testFindClassesInPackageIncludeNames() throws Exception {
+        Class<?>[] classes = TestReflectionUtils.findClasses(DummyObjectWithPrimitives.class.getPackage(), ClassCriteria.createDefault().doIncludeNames("DummyObjectWith*").build());
+
+        assertThat("Package classes are null", classes, notNullValue());
+        assertThat("Wrong number og classes found in package", classes.length, is(5));
+    }
+
+    @Test
+    public void testFindClassesInPackageExcludeNames() throws Exception {
+        Class<?>[] classes = TestReflectionUtils.findClasses(DummyObjectWithPrimitives.class.getPackage(), ClassCriteria.createRecursive().doExcludeNames("no.acntech.**.subpackage.**").build());
+
+        assertThat("Package classes are null", classes, notNullValue());
+        assertThat("Wrong number og classes found in package", classes.length, is(9));
+    }
+
+    @Test
+    public void testFindClassesInPackageWithSuperType() throws Exception {
+        Class<?>[] classes = TestReflectionUtils.findClasses(DummyObjectWithPrimitives.class.getPackage(), ClassCriteria.createDefault().withSuperType(Enum.class).build());
+
+        assertThat("Package classes are null", classes, notNullValue());
+        assertThat("Wrong classes found in package", classes, is(new Class<?>[]{DummyEnum.class}));
+    }
+
+    @Test
+    public void testFindClassesInPackageWithModifiers() throws Exception {
+        Class<?>[] classes = TestReflectionUtils.findClasses(DummyObjectWithPrimitives.class.getPackage(), ClassCriteria.createDefault().withModifiers(Modifier.FINAL).withoutModifiers(Modifier.ABSTRACT).build());
+
+        assertThat("Package classes are null", classes, notNullValue());
+        assertThat("Wrong number og classes found in package", classes.length, is(2));
+    }
+
+    @Test
+    public void testFindClassesInJarPackageWithAnnotation() throws Exception {
+        Class<?>[] classes = TestReflectionUtils.findClasses(Test.class.getPackage(), ClassCriteria.createDefault().withAnnotation(Retention.class).build());
+
+        assertThat("Package classes are null", classes, notNullValue());
+        assertThat("Annotated class not found", classes, hasItemInArray(Test.class));
+        assertThat("Class without annotation found", classes, not(hasItemInArray(Assert.class)));
+    }
+
+    @Test
+    public void testFindClassesInJarPackage() throws Exception {
+        Class<?>[] classes = TestReflectionUtils.findClasses(ExpectedException.class.getPackage(), ClassCriteria.createDefault().build());
+
+        assertThat("Package classes are null", classes, notNullValue());
+        assertThat("Class in jar not found", classes, hasItemInArray(ExpectedException.class));
+    }
+
+    @Test
+    public void testFindClassesInJarPackageNonRecursive() throws Exception {
+        Class<?>[] classes = TestReflectionUtils.findClasses(Test.class.getPackage(), ClassCriteria.createDefault().build());
+
+        assertThat("Package classes are null", classes, notNullValue());
+        assertThat("Class in jar not found", classes, hasItemInArray(Test.class));
+        assertThat("Class in jar child package found", classes, not(hasItemInArray(ExpectedException.class)));
+    }
+
+    @Test
+    public void testFindClassesInJarPackageExcludeAll() throws Exception {
+        Class<?>[] classes = TestReflectionUtils.findClasses(Test.class.getPackage(), ClassCriteria.createRecursive().doExcludeAll().withMaxClassLimit(Integer.MAX_VALUE).build());
+
+        assertThat("Package classes are null", classes, notNullValue());
+        for (Class<?> clazz : classes) {
+            assertThat("Excluded class found in jar " + clazz.getName(), clazz.isInterface() || clazz.isEnum() || clazz.isMemberClass(), is(Boolean.FALSE));
+        }
+    }
+
+    @Test
+    public void testFindClassesInJarPackageRecursiveWithLimit() throws Exception {
+        Class<?>[] classes = TestReflectionUtils.findClasses(Test.class.getPackage(), ClassCriteria.createRecursive().withMaxClassLimit(3).build());
+
+        assertThat("Package classes are null", classes, notNullValue());
+        assertThat("Wrong number og classes found in package", classes.length, is(3));
+    }
+
+    @Test
+    public void testFindClassesInArchiveWithNestedJar() throws Exception {
+        File archive = createArchiveWithNestedJar();
+
+        Class<?>[] classes = TestReflectionUtils.findClasses(archive, DummyObjectWithPrimitives.class.getPackage().getName(), ClassCriteria.createRecursive().build());
+
+        assertThat("Package classes are null", classes, notNullValue());
+        assertThat("Wrong number og classes found in package", classes.length, is(11));
+        assertThat("Class in nested jar not found", classes, hasItemInArray(DummySubObject.class));
+    }
+
+    @Test
+    public void testFindClassesInArchiveNonRecursive() throws Exception {
+        File archive = createArchiveWithNestedJar();
+
+        Class<?>[] classes = TestReflectionUtils.findClasses(archive, DummyObjectWithPrimitives.class.getPackage().getName(), ClassCriteria.createDefault().build());
+
+        assertThat("Package classes are null", classes, notNullValue());
+        assertThat("Wrong number og classes found in package", classes.length, is(9));
+    }
+
+    @Test
+    public void testArchiveClassLoaderDefinesPackagesAndResources() throws Exception {
+        File archive = createArchiveWithNestedJar();
+        String resourceName = DummySubObject.class.getName().replace('.', '/') + ".class";
+
+        // The bootstrap class loader is the parent, so the class is defined by the archive class loader
+        ArchiveClassLoader classLoader = ArchiveClassLoader.open(archive, null);
+        Class<?> clazz = classLoader.loadClass(DummySubObject.class.getName());
+
+        assertThat("Class not defined by archive class loader", clazz.getClassLoader(), is(classLoader));
+        assertThat("Package not defined", clazz.getPackage(), notNullValue());
+        assertThat("Wrong package", clazz.getPackage().getName(), is(DummySubObject.class.getPackage().getName()));
+        assertThat("Resource not found", clazz.getResource(DummySubObject.class.getSimpleName() + ".class"), notNullValue());
+        assertThat("Wrong number of resources", Collections.list(classLoader.getResources(resourceName)), hasSize(1));
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        Files.copy(Paths.get(DummySubObject.class.getResource(DummySubObject.class.getSimpleName() + ".class").toURI()), expected);
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        try (InputStream in = classLoader.getResourceAsStream(resourceName)) {
+            byte[] buffer = new byte[1024];
+            for (int length = in.read(buffer); length >= 0; length = in.read(buffer)) {
+                actual.write(buffer, 0, length);
+            }
+        }
+        assertThat("Wrong resource content", actual.toByteArray(), is(expected.toByteArray()));
+    }
+
+    @Test
+    public void testFindSubtypesTypeIsNull() throws Exception {
+        thrown.expect(IllegalArgumentException.class);
+
+        TestReflectionUtils.findSubtypes(null, ClassCriteria.createDefault().build());
+    }
+
+    @Test
+    public void testFindSubtypes() throws Exception {
+        Class<?>[] classes = TestReflectionUtils.findSubtypes(DummyType.class, ClassCriteria.createDefault().build());
+
+        assertThat("Subtypes are null", classes, notNullValue());
+        assertThat("Wrong number og subtypes found", classes.length, is(4));
+        assertThat("Indirect subtype not found", classes, hasItemInArray(DummySubTypeImplementation.class));
+    }
+
+    @Test
+    public void testFindSubtypesIndexedPerClassLoaderAndReindexed() throws Exception {
+        Path classesDirectory = Paths.get(DummyType.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        Path packagePath = classesDirectory.relativize(classesDirectory.resolve(DummyType.class.getPackage().getName().replace('.', '/')));
+        Path directory = temporaryFolder.newFolder("classes").toPath();
+        Files.createDirectories(directory.resolve(packagePath));
+        Files.copy(classesDirectory.resolve(packagePath).resolve("DummySubType.class"), directory.resolve(packagePath).resolve("DummySubType.class"));
+
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        // Without a parent, the class path of the classloader only holds the class directory
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{directory.toUri().toURL()}, null)) {
+            thread.setContextClassLoader(classLoader);
+            assertThat("Wrong subtypes found", TestReflectionUtils.findSubtypes(DummyType.class, ClassCriteria.createDefault().build()), is(new Class<?>[]{DummySubType.class}));
+
+            Files.copy(classesDirectory.resolve(packagePath).resolve("DummySubTypeImplementation.class"), directory.resolve(packagePath).resolve("DummySubTypeImplementation.class"));
+            assertThat("Added class not found", TestReflectionUtils.findSubtypes(DummyType.class, ClassCriteria.createDefault().build()), hasItemInArray(DummySubTypeImplementation.class));
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+
+        assertThat("Wrong number og subtypes found", TestReflectionUtils.findSubtypes(DummyType.class, ClassCriteria.createDefault().build()).length, is(4));
+    }
+
+    @Test
+    public void testFindSubtypesWithClassIndex() throws Exception {
+        File classIndex = createClassIndex();
+
+        Class<?>[] classes = TestReflectionUtils.findSubtypes(DummyAbstractType.class, ClassCriteria.createDefault().withClassIndex(classIndex).build());
+
+        assertThat("Subtypes are null", classes, notNullValue());
+        assertThat("Wrong subtypes found", classes, is(new Class<?>[]{DummyTypeImplementation.class}));
+    }
+
+    @Test
+    public void testFindImplementors() throws Exception {
+        Class<?>[] classes = TestReflectionUtils.findImplementors(DummyType.class, ClassCriteria.createDefault().build());
+
+        assertThat("Implementations are null", classes, notNullValue());
+        assertThat("Wrong number og implementations found", classes.length, is(2));
+        assertThat("Implementation not found", classes, hasItemInArray(DummyTypeImplementation.class));
+        assertThat("Implementation of sub interface not found", classes, hasItemInArray(DummySubTypeImplementation.class));
+    }
+
+    @Test
+    public void testFindImplementorsExcludeNames() throws Exception {
+        Class<?>[] classes = TestReflectionUtils.findImplementors(DummyType.class, ClassCriteria.createDefault().doExcludeNames("*SubType*").build());
+
+        assertThat("Implementations are null", classes, notNullValue());
+        assertThat("Wrong implementations found", classes, is(new Class<?>[]{DummyTypeImplementation.class}));
+    }
+
+    @Test
+    public void testFindAnnotatedWithInheritedAnnotation() throws Exception {
+        Class<?>[] classes = TestReflectionUtils.findAnnotatedWith(DummyInheritedAnnotation.class, ClassCriteria.createDefault().build());
+
+        assertThat("Annotated types are null", classes, notNullValue());
+        assertThat("Wrong number og annotated types found", classes.length, is(2));
+        assertThat("Annotated class not found", classes, hasItemInArray(DummyAbstractType.class));
+        assertThat("Class inheriting annotation not found", classes, hasItemInArray(DummyTypeImplementation.class));
+    }
+
+    @Test
+    public void testFindClassesSkipInitialization() throws Exception {
+        Class<?>[] classes = TestReflectionUtils.findClasses("no.acntech.common.test.testinitialization", ClassCriteria.createDefault().doSkipInitialization().build());
+
+        assertThat("Package classes are null", classes, notNullValue());
+        assertThat("Wrong number og classes found in package", classes.length, is(1));
+        assertThat("Class was initialized", System.getProperty(DummyInitializedType.INITIALIZED_PROPERTY), nullValue());
+    }
+
+    @Test
+    public void testFindClassesInShards() throws Exception {
+        Set<Class<?>> shardedClasses = new HashSet<>();
+        int shardedClassCount = 0;
+        for (int shardIndex = 0; shardIndex < 3; shardIndex++) {
+            Class<?>[] classes = TestReflectionUtils.findClasses(DummyObjectWithPrimitives.class.getPackage(), ClassCriteria.createRecursive().withShard(shardIndex, 3).build());
+            shardedClasses.addAll(Arrays.asList(classes));
+            shardedClassCount += classes.length;
+        }
+
+        assertThat("Classes found in more than one shard", shardedClassCount, is(shardedClasses.size()));
+        assertThat("Wrong number og classes found in shards", shardedClasses.size(), is(11));
+    }
+
+    @Test
+    public void testFindClassesShardIndexOutOfRange() throws Exception {
+        thrown.expect(IllegalArgumentException.class);
+
+        ClassCriteria.createDefault().withShard(3, 3);
+    }
+
+    @Test
+    public void testFindClassesShardFromSystemProperties() throws Exception {
+        System.setProperty(ClassCriteria.SHARD_INDEX_PROPERTY, "1");
+        System.setProperty(ClassCriteria.SHARD_COUNT_PROPERTY, "2");
+        try {
+            Class<?>[] classes = TestReflectionUtils.findClasses(DummyObjectWithPrimitives.class.getPackage(), ClassCriteria.createRecursive().doShardFromSystemProperties().build());
+            Class<?>[] shardClasses = TestReflectionUtils.findClasses(DummyObjectWithPrimitives.class.getPackage(), ClassCriteria.createRecursive().withShard(1, 2).build());
+
+            assertThat("Wrong classes found in shard", classes, is(shardClasses));
+        } finally {
+            System.clearProperty(ClassCriteria.SHARD_INDEX_PROPERTY);
+            System.clearProperty(ClassCriteria.SHARD_COUNT_PROPERTY);
+        }
+    }
+
+    @Test
+    public void testFindClassesWithSharedScan() throws Exception {
+        Class<?>[] classes = TestReflectionUtils.findClasses(DummyObjectWithPrimitives.class.getPackage(), ClassCriteria.createDefault().doShareScan().doExcludeNames("*Enum", "*Final*").build());
+        Class<?>[] sharedClasses = TestReflectionUtils.findClasses(DummyObjectWithPrimitives.class.getPackage(), ClassCriteria.createDefault().doExcludeNames("*Final*", "*Enum").doShareScan().build());
+
+        assertThat("Package classes are null", classes, notNullValue());
+        assertThat("Wrong number og classes found in package", classes.length, is(7));
+        assertThat("Shared classes differ from classes found", sharedClasses, is(classes));
+    }
+
+    @Test
+    public void testSharedScanIsSearchedOnce() throws Exception {
+        PackageTrie packages = new PackageTrie(Boolean.FALSE, "no.acntech.common.test.shared");
+        ClassCriteria classCriteria = ClassCriteria.createDefault().doShareScan().build();
+        AtomicInteger searches = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String[]>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> ScanResultCache.get(getClass().getClassLoader(), packages, classCriteria, () -> {
+                    searches.incrementAndGet();
+                    return new String[]{"no.acntech.common.test.shared.DummyClass"};
+                })));
+            }
+            for (Future<String[]> result : results) {
+                assertThat("Wrong shared result", result.get(), is(new String[]{"no.acntech.common.test.shared.DummyClass"}));
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat("Shared scan searched more than once", searches.get(), is(1));
+    }
+
+    @Test
+    public void testSharedScanFailureIsNotShared() throws Exception {
+        PackageTrie packages = new PackageTrie(Boolean.FALSE, "no.acntech.common.test.failed");
+        ClassCriteria classCriteria = ClassCriteria.createDefault().doShareScan().build();
+        try {
+            ScanResultCache.get(getClass().getClassLoader(), packages, classCriteria, () -> {
+                throw new IOException("Search failed");
+            });
+            Assert.fail("Failed search did not throw exception");
+        } catch (IOException e) {
+            assertThat("Wrong exception thrown", e.getMessage(), is("Search failed"));
+        }
+
+        String[] classNames = ScanResultCache.get(getClass().getClassLoader(), packages, classCriteria, () -> new String[0]);
+
+        assertThat("Failed search was shared", classNames, is(new String[0]));
+    }
+
+    @Test
+    public void testFindClassNames() throws Exception {
+        String[] classNames = TestReflectionUtils.findClassNames(ClassCriteria.createDefault().build(), "no.acntech.common.test.testinitialization");
+
+        assertThat("Class names are null", classNames, notNullValue());
+        assertThat("Wrong class names found", classNames, is(new String[]{"no.acntech.common.test.testinitialization.DummyInitializedType"}));
+        assertThat("Class was initialized", System.getProperty(DummyInitializedType.INITIALIZED_PROPERTY), nullValue());
+    }
+
+    @Test
+    public void testFindClassNamesWithSuperType() throws Exception {
+        String[] classNames = TestReflectionUtils.findClassNames(ClassCriteria.createDefault().withSuperType(DummyType.class).build(), DummyType.class.getPackage().getName());
+
+        assertThat("Class names are null", classNames, notNullValue());
+        assertThat("Wrong number og class names found", classNames.length, is(5));
+        assertThat("Indirect subtype not found", classNames, hasItemInArray(DummySubTypeImplementation.class.getName()));
+    }
+
+    @Test
+    public void testWatchClasses() throws Exception {
+        try (ClassWatcher classWatcher = TestReflectionUtils.watchClasses(ClassCriteria.createDefault().doSkipInitialization().build(), "no.acntech.common.test.testinitialization")) {
+            Class<?>[] classes = classWatcher.pollChangedClasses();
+
+            assertThat("Classes found are not changed classes on first poll", classes, is(classWatcher.getClasses()));
+            assertThat("Wrong number og classes found", classes.length, is(1));
+            assertThat("Unchanged classes found", classWatcher.pollChangedClasses(), is(new Class<?>[0]));
+
+            Path classFile = Paths.get(classes[0].getResource(classes[0].getSimpleName() + ".class").toURI());
+            Files.write(classFile, Files.readAllBytes(classFile));
+            Class<?>[] changedClasses = classWatcher.pollChangedClasses(10, TimeUnit.SECONDS);
+
+            assertThat("Wrong number og changed classes found", changedClasses.length, is(1));
+            assertThat("Wrong changed class found", changedClasses[0].getName(), is(classes[0].getName()));
+            assertThat("Changed class not loaded again", changedClasses[0], not(classes[0]));
+            assertThat("Changed class not replaced in classes found", classWatcher.getClasses(), is(changedClasses));
+            // Writing the class file may give more than one event, which must not load the unchanged class again
+            assertThat("Unchanged class loaded again", classWatcher.pollChangedClasses(500, TimeUnit.MILLISECONDS), is(new Class<?>[0]));
+            assertThat("Unchanged class replaced in classes found", classWatcher.getClasses(), is(changedClasses));
+        }
+    }
+
     @Test
     public void testFindGettersAndSettersClassIsNull() throws Exception {
         thrown.expect(IllegalArgumentException.class);
@@ -259,6 +1036,120 @@ public class TestReflectionUtilsTest {
         assertThat("List of getters and setters is not empty", gettersAndSetters, hasSize(14));
     }
 
+    @Test
+    public void testFindGettersAndSettersWithBooleanWrapper() throws Exception {
+        List<GetterSetter> gettersAndSetters = TestReflectionUtils.findGettersAndSetters(DummyObjectWithBooleanWrapper.class);
+
+        assertThat("List is null", gettersAndSetters, notNullValue());
+        assertThat("Wrong fields found", gettersAndSetters.stream().map(GetterSetter::getName).collect(Collectors.toList()), is(Arrays.asList("active", "enabled", "name")));
+        assertThat("Boolean getter not found", gettersAndSetters.get(0).getGetter().getName(), is("isActive"));
+        assertThat("Boolean getter not preferred", gettersAndSetters.get(1).getGetter().getName(), is("isEnabled"));
+        assertThat("Setter with non matching type found", gettersAndSetters.get(2).getSetter().getParameterTypes()[0], is((Object) String.class));
+    }
+
+    @Test
+    public void testFindGettersAndSettersReusesProperties() throws Exception {
+        List<GetterSetter> gettersAndSetters = TestReflectionUtils.findGettersAndSetters(DummyObjectWithPrimitives.class);
+        List<GetterSetter> someGettersAndSetters = TestReflectionUtils.findGettersAndSetters(DummyObjectWithPrimitives.class, FieldCriteria
+                .createDefault()
+                .doExcludeFields("bool2", "chr")
+                .build());
+
+        assertThat("List of getters and setters has wrong size", someGettersAndSetters, hasSize(14));
+        assertThat("Properties are not reused", gettersAndSetters.containsAll(someGettersAndSetters), is(true));
+    }
+
+    @Test
+    public void testGettersAndSettersCallField() throws Exception {
+        List<GetterSetter> gettersAndSetters = TestReflectionUtils.findGettersAndSetters(DummyObjectWithPrimitives.class);
+        DummyObjectWithPrimitives subject = TestReflectionUtils.createBean(DummyObjectWithPrimitives.class);
+
+        for (GetterSetter getterSetter : gettersAndSetters) {
+            Object expected = TestTypeFactory.createType(getterSetter.getGetter().getReturnType());
+            getterSetter.set(subject, expected);
+
+            assertThat("Wrong value of field " + getterSetter.getName(), getterSetter.get(subject), is(expected));
+        }
+    }
+
+    @Test
+    public void testGetterCalledWithWrongBean() throws Exception {
+        thrown.expect(IllegalArgumentException.class);
+        List<GetterSetter> gettersAndSetters = TestReflectionUtils.findGettersAndSetters(DummyObjectWithPrimitives.class);
+
+        gettersAndSetters.get(0).get(new DummyObjectWithNoDefaultConstructor("whatever"));
+    }
+
+    @Test
+    public void testSetterCalledWithWrongValue() throws Exception {
+        thrown.expect(IllegalArgumentException.class);
+        List<GetterSetter> gettersAndSetters = TestReflectionUtils.findGettersAndSetters(DummyObjectWithPrimitives.class);
+        DummyObjectWithPrimitives subject = new DummyObjectWithPrimitives();
+
+        gettersAndSetters.get(0).set(subject, new Object());
+    }
+
+    @Test
+    public void testConstructorCalledWithWrongArguments() throws Exception {
+        thrown.expect(IllegalArgumentException.class);
+
+        BeanConstructors.newInstance(DummyObjectWithNoDefaultConstructor.class.getConstructor(String.class), 1337);
+    }
+
+    @Test
+    public void testConstructorCalledWithNullForPrimitive() throws Exception {
+        thrown.expect(IllegalArgumentException.class);
+
+        BeanConstructors.newInstance(DummyObjectWithFailingProperties.class.getConstructor(int.class), (Object) null);
+    }
+
+    @Test
+    public void testConstructorThrowingClassCastException() throws Exception {
+        thrown.expect(InvocationTargetException.class);
+
+        BeanConstructors.newInstance(DummyObjectWithFailingProperties.class.getConstructor(int.class), -1);
+    }
+
+    @Test
+    public void testGetterThrowingClassCastException() throws Exception {
+        thrown.expect(InvocationTargetException.class);
+        List<GetterSetter> gettersAndSetters = TestReflectionUtils.findGettersAndSetters(DummyObjectWithFailingProperties.class);
+
+        findProperty(gettersAndSetters, "value").get(new DummyObjectWithFailingProperties(1));
+    }
+
+    @Test
+    public void testSetterThrowingClassCastException() throws Exception {
+        thrown.expect(InvocationTargetException.class);
+        List<GetterSetter> gettersAndSetters = TestReflectionUtils.findGettersAndSetters(DummyObjectWithFailingProperties.class);
+
+        findProperty(gettersAndSetters, "value").set(new DummyObjectWithFailingProperties(1), "whatever");
+    }
+
+    @Test
+    public void testPrimitiveSetterThrowingClassCastException() throws Exception {
+        thrown.expect(InvocationTargetException.class);
+        List<GetterSetter> gettersAndSetters = TestReflectionUtils.findGettersAndSetters(DummyObjectWithFailingProperties.class);
+
+        ((PrimitiveGetterSetter) findProperty(gettersAndSetters, "count")).testPrimitive(new DummyObjectWithFailingProperties(1));
+    }
+
+    @Test
+    public void testPrimitiveCalledWithWrongBean() throws Exception {
+        thrown.expect(IllegalArgumentException.class);
+        List<GetterSetter> gettersAndSetters = TestReflectionUtils.findGettersAndSetters(DummyObjectWithFailingProperties.class);
+
+        ((PrimitiveGetterSetter) findProperty(gettersAndSetters, "count")).testPrimitive(new DummyObjectWithPrimitives());
+    }
+
+    @Test
+    public void testSetterCalledWithNullForPrimitive() throws Exception {
+        thrown.expect(IllegalArgumentException.class);
+        List<GetterSetter> gettersAndSetters = TestReflectionUtils.findGettersAndSetters(DummyObjectWithFailingProperties.class);
+
+        findProperty(gettersAndSetters, "count").set(new DummyObjectWithFailingProperties(1), null);
+    }
+
     @Test
     public void testFindGetters() throws Exception {
         List<Getter> getters = TestReflectionUtils.findGetters(DummyObjectWithNoDefaultConstructor.class, FieldCriteria
@@ -269,4 +1160,68 @@ public class TestReflectionUtilsTest {
         assertThat("List is null", getters, notNullValue());
         assertThat("List of getters and setters is not empty", getters, hasSize(1));
     }
-}
\ No newline at end of file
+
+    private File createClassIndex() throws Exception {
+        Path classDirectory = Paths.get(DummyObjectWithPrimitives.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        File classIndex = new File(temporaryFolder.getRoot(), "class-index.bin");
+        ClassIndex.create(classIndex.toPath(), classDirectory);
+        return classIndex;
+    }
+
+    private File createArchiveWithNestedJar() throws Exception {
+        Path classesDirectory = Paths.get(DummyObjectWithPrimitives.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        Path packageDirectory = classesDirectory.resolve(DummyObjectWithPrimitives.class.getPackage().getName().replace('.', '/'));
+        Path subPackageDirectory = classesDirectory.resolve(DummySubObject.class.getPackage().getName().replace('.', '/'));
+
+        ByteArrayOutputStream nestedJar = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(nestedJar)) {
+            for (Path file : listFiles(subPackageDirectory)) {
+                out.putNextEntry(new ZipEntry(classesDirectory.relativize(file).toString().replace('\\', '/')));
+                out.write(Files.readAllBytes(file));
+                out.closeEntry();
+            }
+        }
+
+        File archive = temporaryFolder.newFile("archive.jar");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(archive))) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(packageDirectory, "*.class")) {
+                for (Path file : files) {
+                    out.putNextEntry(new ZipEntry("BOOT-INF/classes/" + classesDirectory.relativize(file).toString().replace('\\', '/')));
+                    out.write(Files.readAllBytes(file));
+                    out.closeEntry();
+                }
+            }
+
+            byte[] nestedJarBytes = nestedJar.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(nestedJarBytes);
+            ZipEntry nestedJarEntry = new ZipEntry("BOOT-INF/lib/nested.jar");
+            nestedJarEntry.setMethod(ZipEntry.STORED);
+            nestedJarEntry.setSize(nestedJarBytes.length);
+            nestedJarEntry.setCrc(crc.getValue());
+            out.putNextEntry(nestedJarEntry);
+            out.write(nestedJarBytes);
+            out.closeEntry();
+
+            out.putNextEntry(new ZipEntry("BOOT-INF/classpath.idx"));
+            out.write("- \"BOOT-INF/lib/nested.jar\"\n".getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+        return archive;
+    }
+
+    private static List<Path> listFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+    }
+
+    private static GetterSetter findProperty(List<GetterSetter> gettersAndSetters, String name) {
+        for (GetterSetter getterSetter : gettersAndSetters) {
+            if (getterSetter.getName().equals(name)) {
+                return getterSetter;
+            }
+        }
+        throw new AssertionError("Property " + name + " not found");
+    }
+}
@@ -0,0 +1,5 @@
+package no.acntech.common.test.testhierarchy;
+
+@DummyInheritedAnnotation
+public abstract class DummyAbstractType implements DummyType {
+}
@@ -0,0 +1,10 @@
+package no.acntech.common.test.testhierarchy;
+
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+public @interface DummyInheritedAnnotation {
+}
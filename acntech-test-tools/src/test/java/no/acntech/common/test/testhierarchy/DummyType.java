@@ -0,0 +1,4 @@
+package no.acntech.common.test.testhierarchy;
+
+public interface DummyType {
+}
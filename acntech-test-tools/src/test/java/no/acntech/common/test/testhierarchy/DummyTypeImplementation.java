@@ -0,0 +1,4 @@
+package no.acntech.common.test.testhierarchy;
+
+public class DummyTypeImplementation extends DummyAbstractType {
+}
@@ -0,0 +1,10 @@
+package no.acntech.common.test.testinitialization;
+
+public class DummyInitializedType {
+
+    public static final String INITIALIZED_PROPERTY = "no.acntech.common.test.testinitialization.initialized";
+
+    static {
+        System.setProperty(INITIALIZED_PROPERTY, Boolean.TRUE.toString());
+    }
+}
@@ -0,0 +1,48 @@
+package no.acntech.common.test.testproperties;
+
+public class DummyObjectWithBooleanWrapper {
+
+    private Boolean active;
+    private boolean enabled;
+    private String name;
+
+    public Boolean isActive() {
+        return active;
+    }
+
+    public void setActive(Boolean active) {
+        this.active = active;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean getEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(Object name) {
+        this.name = String.valueOf(name);
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public static String getConstant() {
+        return "constant";
+    }
+
+    public String getIndexed(int index) {
+        return name;
+    }
+}
@@ -0,0 +1,29 @@
+package no.acntech.common.test.testproperties;
+
+public class DummyObjectWithFailingProperties {
+
+    private int count;
+
+    public DummyObjectWithFailingProperties(int count) {
+        if (count < 0) {
+            throw new ClassCastException("Count is negative");
+        }
+        this.count = count;
+    }
+
+    public Object getValue() {
+        throw new ClassCastException("Getter failed");
+    }
+
+    public void setValue(Object value) {
+        throw new ClassCastException("Setter failed");
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        throw new ClassCastException("Setter failed");
+    }
+}
@@ -0,0 +1,32 @@
+package no.acntech.common.test.testproperties;
+
+public class DummyObjectWithSmallPrimitives {
+
+    private byte bte;
+    private short shrt;
+    private int brokenItgr;
+
+    public byte getBte() {
+        return bte;
+    }
+
+    public void setBte(byte bte) {
+        this.bte = bte;
+    }
+
+    public short getShrt() {
+        return shrt;
+    }
+
+    public void setShrt(short shrt) {
+        this.shrt = shrt;
+    }
+
+    public int getBrokenItgr() {
+        return brokenItgr;
+    }
+
+    public void setBrokenItgr(int brokenItgr) {
+        this.brokenItgr = brokenItgr + 1;
+    }
+}